@@ -0,0 +1,168 @@
+package com.clanboards.clashdata.service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frozen copy of the map-based scoring path that {@link RiskService} used before {@link
+ * RiskKernel}, kept as the benchmark baseline.
+ */
+final class LegacyRiskScorer {
+
+  private static final Map<String, Double> DEFAULT_WEIGHTS =
+      Map.of(
+          "war", 0.40,
+          "idle", 0.35,
+          "don_deficit", 0.15,
+          "don_drop", 0.10);
+  private static final int MAX_SCORE = 100;
+
+  private final Clock clock;
+
+  LegacyRiskScorer(Clock clock) {
+    this.clock = clock;
+  }
+
+  RiskService.RiskCalculationResult score(PlayerRiskState state, Map<String, Double> weights) {
+    LocalDateTime now = LocalDateTime.now(clock);
+
+    WarRiskData warRisk = calculateWarRisk(state, now);
+
+    long idleDays = ChronoUnit.DAYS.between(state.lastActivity(), now);
+    IdleRiskData idleRisk =
+        new IdleRiskData(
+            getIdlePercentageFromDays((int) idleDays), (int) idleDays, state.lastActivity());
+
+    Map<String, Double> actualWeights = mergeWeights(weights);
+
+    double rawScore =
+        actualWeights.get("war") * warRisk.percentage
+            + actualWeights.get("idle") * idleRisk.percentage
+            + actualWeights.get("don_deficit") * state.deficitRisk()
+            + actualWeights.get("don_drop") * state.dropRisk();
+
+    int totalScore = (int) Math.round(rawScore * MAX_SCORE);
+
+    List<Map<String, Object>> breakdown =
+        buildRiskBreakdown(
+            actualWeights, warRisk, idleRisk, state.deficitRisk(), state.dropRisk());
+
+    return new RiskService.RiskCalculationResult(totalScore, idleRisk.lastActivityTime, breakdown);
+  }
+
+  private WarRiskData calculateWarRisk(PlayerRiskState state, LocalDateTime now) {
+    if (state.warUsed() == null) {
+      return new WarRiskData(0.0, "not in war roster");
+    }
+
+    int warUsed = state.warUsed();
+    int cap = state.warCap();
+    double warMissPct = state.warMissPct();
+
+    if (warUsed == 0 && ChronoUnit.HOURS.between(state.warTs(), now) < 24) {
+      warMissPct = 0.0;
+    }
+
+    String reason;
+    if (warUsed == 0) {
+      reason = "no war attacks used";
+    } else {
+      int missed = cap - warUsed;
+      reason = String.format("missed %d war attack%s", missed, missed != 1 ? "s" : "");
+    }
+
+    return new WarRiskData(warMissPct, reason);
+  }
+
+  private double getIdlePercentageFromDays(int days) {
+    if (days >= 4) return 1.0;
+    if (days == 3) return 0.75;
+    if (days == 2) return 0.50;
+    return 0.0;
+  }
+
+  private Map<String, Double> mergeWeights(Map<String, Double> customWeights) {
+    Map<String, Double> weights = new HashMap<>(DEFAULT_WEIGHTS);
+    if (customWeights != null) {
+      for (Map.Entry<String, Double> entry : customWeights.entrySet()) {
+        if (weights.containsKey(entry.getKey()) && entry.getValue() != null) {
+          weights.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    return weights;
+  }
+
+  private List<Map<String, Object>> buildRiskBreakdown(
+      Map<String, Double> weights,
+      WarRiskData warRisk,
+      IdleRiskData idleRisk,
+      double deficitRisk,
+      double dropRisk) {
+    List<Map<String, Object>> breakdown = new ArrayList<>();
+
+    int warPts = (int) Math.round(weights.get("war") * warRisk.percentage * MAX_SCORE);
+    int idlePts = (int) Math.round(weights.get("idle") * idleRisk.percentage * MAX_SCORE);
+    int deficitPts = (int) Math.round(weights.get("don_deficit") * deficitRisk * MAX_SCORE);
+    int dropPts = (int) Math.round(weights.get("don_drop") * dropRisk * MAX_SCORE);
+
+    if (warPts > 0) {
+      Map<String, Object> warBreakdown = new HashMap<>();
+      warBreakdown.put("points", warPts);
+      warBreakdown.put("reason", warRisk.reason);
+      breakdown.add(warBreakdown);
+    }
+
+    if (idlePts > 0) {
+      Map<String, Object> idleBreakdown = new HashMap<>();
+      idleBreakdown.put("points", idlePts);
+      idleBreakdown.put(
+          "reason",
+          String.format("inactive for %d day%s", idleRisk.days, idleRisk.days != 1 ? "s" : ""));
+      breakdown.add(idleBreakdown);
+    }
+
+    if (deficitPts > 0) {
+      Map<String, Object> deficitBreakdown = new HashMap<>();
+      deficitBreakdown.put("points", deficitPts);
+      deficitBreakdown.put("reason", "donation deficit");
+      breakdown.add(deficitBreakdown);
+    }
+
+    if (dropPts > 0) {
+      Map<String, Object> dropBreakdown = new HashMap<>();
+      dropBreakdown.put("points", dropPts);
+      dropBreakdown.put("reason", "donations dropped");
+      breakdown.add(dropBreakdown);
+    }
+
+    return breakdown;
+  }
+
+  private static class WarRiskData {
+    final double percentage;
+    final String reason;
+
+    WarRiskData(double percentage, String reason) {
+      this.percentage = percentage;
+      this.reason = reason;
+    }
+  }
+
+  private static class IdleRiskData {
+    final double percentage;
+    final int days;
+    final LocalDateTime lastActivityTime;
+
+    IdleRiskData(double percentage, int days, LocalDateTime lastActivityTime) {
+      this.percentage = percentage;
+      this.days = days;
+      this.lastActivityTime = lastActivityTime;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.entity.PlayerSnapshot;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scores a whole clan with the pre-kernel map-based path and with {@link RiskKernel}.
+ *
+ * <p>The {@code *Cached} benchmarks start from materialized states, which is what a clan request
+ * does when every member's state is current. The {@code *Rebuild} benchmarks also materialize each
+ * state from its history, as after new snapshots land. Run with {@code ./gradlew jmh}; the gc
+ * profiler reports allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RiskScoringBenchmark {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 0);
+  private static final Map<String, Double> WEIGHTS = Map.of("war", 0.5, "idle", 0.3);
+
+  @Param({"10", "30", "50"})
+  int clanSize;
+
+  @Param({"100", "500", "2000"})
+  int historySize;
+
+  private RiskService riskService;
+  private LegacyRiskScorer legacy;
+  private PlayerHistory[] histories;
+  private PlayerRiskState[] states;
+  private long now;
+
+  @Setup
+  public void setUp() {
+    Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    riskService = new RiskService(null, null, null, clock, HistoryResolution.RAW);
+    legacy = new LegacyRiskScorer(clock);
+    now = PlayerHistory.toEpoch(NOW);
+
+    Random random = new Random(42);
+    histories = new PlayerHistory[clanSize];
+    states = new PlayerRiskState[clanSize];
+    for (int p = 0; p < clanSize; p++) {
+      histories[p] = PlayerHistory.of(syntheticHistory(random, "#P" + p));
+      states[p] = riskService.materialize(histories[p]);
+    }
+  }
+
+  @Benchmark
+  public void legacyCached(Blackhole bh) {
+    for (PlayerRiskState state : states) {
+      bh.consume(legacy.score(state, WEIGHTS));
+    }
+  }
+
+  @Benchmark
+  public void kernelCached(Blackhole bh) {
+    RiskWeights weights = RiskWeights.of(WEIGHTS);
+    RiskScore score = new RiskScore();
+    for (PlayerRiskState state : states) {
+      bh.consume(RiskKernel.score(state, now, weights, score).score());
+    }
+  }
+
+  @Benchmark
+  public void kernelCachedWithBreakdown(Blackhole bh) {
+    RiskWeights weights = RiskWeights.of(WEIGHTS);
+    RiskScore score = new RiskScore();
+    for (PlayerRiskState state : states) {
+      bh.consume(RiskKernel.score(state, now, weights, score).breakdown());
+    }
+  }
+
+  @Benchmark
+  public void legacyRebuild(Blackhole bh) {
+    for (PlayerHistory history : histories) {
+      bh.consume(legacy.score(riskService.materialize(history), WEIGHTS));
+    }
+  }
+
+  @Benchmark
+  public void kernelRebuild(Blackhole bh) {
+    RiskWeights weights = RiskWeights.of(WEIGHTS);
+    RiskScore score = new RiskScore();
+    for (PlayerHistory history : histories) {
+      bh.consume(RiskKernel.score(riskService.materialize(history), now, weights, score).score());
+    }
+  }
+
+  /** Hourly snapshots ending an hour before now, with a war every two days. */
+  private List<PlayerSnapshot> syntheticHistory(Random random, String playerTag) {
+    List<PlayerSnapshot> snapshots = new ArrayList<>(historySize);
+    int trophies = 4000 + random.nextInt(1000);
+    int donations = 0;
+    int received = 0;
+    for (int i = 0; i < historySize; i++) {
+      LocalDateTime ts = NOW.minusHours(historySize - i);
+      trophies += random.nextInt(61) - 30;
+      donations += random.nextInt(4);
+      received += random.nextInt(6);
+
+      PlayerSnapshot snapshot = new PlayerSnapshot();
+      snapshot.setPlayerTag(playerTag);
+      snapshot.setTs(ts);
+      snapshot.setTrophies(trophies);
+      snapshot.setDonations(donations);
+      snapshot.setDonationsReceived(received);
+      snapshot.setWarAttacksUsed(i % 48 < 24 ? random.nextInt(3) : null);
+      snapshot.setLastSeen(ts.minusMinutes(random.nextInt(600)));
+      snapshots.add(snapshot);
+    }
+    return snapshots;
+  }
+}
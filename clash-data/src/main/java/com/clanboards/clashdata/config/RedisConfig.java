@@ -1,19 +1,23 @@
 package com.clanboards.clashdata.config;
 
 import java.net.URI;
+import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 @Configuration
 public class RedisConfig {
   @Bean
   public RedisConnectionFactory redisConnectionFactory(
-      @Value("${REDIS_URL:redis://localhost:6379}") String url) {
+      @Value("${REDIS_URL:redis://localhost:6379}") String url,
+      @Value("${REDIS_COMMAND_TIMEOUT_MS:2000}") long commandTimeoutMs) {
     URI uri = URI.create(url);
     RedisStandaloneConfiguration config = new RedisStandaloneConfiguration();
     config.setHostName(uri.getHost());
@@ -25,11 +29,25 @@ public class RedisConfig {
       config.setUsername(parts[0]);
       config.setPassword(parts[1]);
     }
-    return new LettuceConnectionFactory(config);
+    // Blocking callers share one multiplexed connection, so a bounded command timeout is what keeps
+    // a slow Redis from parking an unbounded number of virtual threads
+    LettuceClientConfiguration clientConfig =
+        LettuceClientConfiguration.builder()
+            .commandTimeout(Duration.ofMillis(commandTimeoutMs))
+            .build();
+    return new LettuceConnectionFactory(config, clientConfig);
   }
 
   @Bean
   public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory factory) {
     return new StringRedisTemplate(factory);
   }
+
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(
+      RedisConnectionFactory factory) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(factory);
+    return container;
+  }
 }
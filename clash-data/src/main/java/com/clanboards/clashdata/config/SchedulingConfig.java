@@ -0,0 +1,36 @@
+package com.clanboards.clashdata.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/** Enables {@code @Scheduled} background jobs such as snapshot retention. */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+  public static final String RETENTION_SCHEDULER = "retentionScheduler";
+
+  /** Default scheduler for jobs that do not name one, such as the leaderboard refresh. */
+  @Bean
+  public ThreadPoolTaskScheduler taskScheduler() {
+    return singleThreadScheduler("scheduling-");
+  }
+
+  /**
+   * Snapshot retention can run for many minutes, so it gets its own thread instead of delaying
+   * every other job on the default one.
+   */
+  @Bean(RETENTION_SCHEDULER)
+  public ThreadPoolTaskScheduler retentionScheduler() {
+    return singleThreadScheduler("retention-");
+  }
+
+  private static ThreadPoolTaskScheduler singleThreadScheduler(String threadNamePrefix) {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(1);
+    scheduler.setThreadNamePrefix(threadNamePrefix);
+    return scheduler;
+  }
+}
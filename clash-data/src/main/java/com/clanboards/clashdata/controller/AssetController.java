@@ -3,12 +3,15 @@ package com.clanboards.clashdata.controller;
 import com.clanboards.clashdata.service.AssetService;
 import java.net.URL;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/v1/clan-data/assets")
@@ -24,7 +27,8 @@ public class AssetController {
   }
 
   @GetMapping
-  public ResponseEntity<byte[]> getAsset(@RequestParam(required = false) String url) {
+  public ResponseEntity<Resource> getAsset(
+      @RequestParam(required = false) String url, WebRequest webRequest) {
     // Validate URL parameter is present and not empty
     if (url == null || url.trim().isEmpty()) {
       return ResponseEntity.badRequest().build();
@@ -49,9 +53,24 @@ public class AssetController {
       // Fetch asset via service
       AssetService.AssetResponse assetResponse = assetService.getAsset(url);
 
-      return ResponseEntity.ok()
-          .header("Content-Type", assetResponse.contentType())
-          .body(assetResponse.data());
+      // Answer a matching If-None-Match here so an unread upstream body is released right away
+      if (assetResponse.etag() != null && webRequest.checkNotModified(assetResponse.etag())) {
+        assetResponse.body().close();
+        return null;
+      }
+
+      ResponseEntity.BodyBuilder response =
+          ResponseEntity.ok()
+              .header("Content-Type", assetResponse.contentType())
+              .cacheControl(assetService.cacheControl());
+      if (assetResponse.etag() != null) {
+        response.eTag(assetResponse.etag());
+      }
+      if (assetResponse.contentLength() >= 0) {
+        response.contentLength(assetResponse.contentLength());
+      }
+      // The body is copied to the client as it is read, never buffered whole
+      return response.body(new InputStreamResource(assetResponse.body()));
 
     } catch (Exception e) {
       // Invalid URL or service error
@@ -1,19 +1,25 @@
 package com.clanboards.clashdata.controller;
 
 import com.clanboards.clashdata.service.LoyaltyService;
+import com.clanboards.clashdata.service.RiskLeaderboardService;
 import com.clanboards.clashdata.service.RiskService;
 import com.clanboards.clashdata.service.SnapshotService;
 import com.clanboards.clashdata.service.UserContextService;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.clanboards.clashdata.util.ETags;
+import com.clanboards.clashdata.util.JsonBytes;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -21,9 +27,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class ClanController {
 
   private static final Logger log = LoggerFactory.getLogger(ClanController.class);
+  private static final int MAX_BATCH_TAGS = 50;
+  private static final int MAX_WHAT_IF_PROFILES = 32;
   private final SnapshotService snapshotService;
   private final LoyaltyService loyaltyService;
   private final RiskService riskService;
+  private final RiskLeaderboardService riskLeaderboardService;
   private final UserContextService userContextService;
 
   @Autowired
@@ -31,26 +40,54 @@ public class ClanController {
       SnapshotService snapshotService,
       LoyaltyService loyaltyService,
       RiskService riskService,
+      RiskLeaderboardService riskLeaderboardService,
       UserContextService userContextService) {
     this.snapshotService = snapshotService;
     this.loyaltyService = loyaltyService;
     this.riskService = riskService;
+    this.riskLeaderboardService = riskLeaderboardService;
     this.userContextService = userContextService;
   }
 
   @GetMapping("/{tag}")
-  public ResponseEntity<JsonNode> getClan(@PathVariable String tag) {
+  public ResponseEntity<byte[]> getClan(@PathVariable String tag) {
     log.info("Received request for clan tag: {}", tag);
 
-    JsonNode clanData = snapshotService.getClan(tag);
+    // Cached snapshots are passed through as stored, without a parse/serialize round trip
+    byte[] clanData = snapshotService.getClanJson(tag);
 
     if (clanData == null) {
       log.warn("Clan not found for tag: {}", tag);
       return ResponseEntity.notFound().build();
     }
 
+    // A matching If-None-Match turns this into a 304 before the body is written
     log.info("Successfully retrieved clan data for tag: {}", tag);
-    return ResponseEntity.ok(clanData);
+    return ResponseEntity.ok()
+        .eTag(ETags.strong(clanData))
+        .cacheControl(snapshotService.cacheControl())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(clanData);
+  }
+
+  @GetMapping
+  public ResponseEntity<byte[]> getClans(@RequestParam List<String> tags) {
+    log.info("Received batch request for {} clan tags", tags.size());
+
+    if (tags.isEmpty() || tags.size() > MAX_BATCH_TAGS) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    // Each element keeps the single-clan shape; unknown tags are left out of the array
+    Map<String, byte[]> clans = snapshotService.getClansJson(tags);
+    byte[] body = JsonBytes.array(clans.values());
+
+    log.info("Successfully retrieved {} of {} requested clans", clans.size(), tags.size());
+    return ResponseEntity.ok()
+        .eTag(ETags.strong(body))
+        .cacheControl(snapshotService.cacheControl())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(body);
   }
 
   @GetMapping("/{tag}/members/loyalty")
@@ -58,7 +95,7 @@ public class ClanController {
     log.info("Received request for clan loyalty for tag: {}", tag);
 
     // First refresh clan snapshot to ensure membership list is current
-    snapshotService.getClan(tag);
+    snapshotService.getClanJson(tag);
 
     Map<String, Integer> loyaltyData = loyaltyService.getClanLoyalty(tag);
 
@@ -70,9 +107,17 @@ public class ClanController {
   }
 
   @GetMapping("/{tag}/members/at-risk")
-  public ResponseEntity<List<Map<String, Object>>> getClanAtRisk(@PathVariable String tag) {
+  public ResponseEntity<List<Map<String, Object>>> getClanAtRisk(
+      @PathVariable String tag,
+      @RequestParam(defaultValue = "0") int limit,
+      @RequestParam(defaultValue = "0") int minScore) {
     log.info("Received request for clan at-risk members for tag: {}", tag);
 
+    // limit=0 returns every member at or above minScore
+    if (limit < 0 || minScore < 0 || minScore > 100) {
+      return ResponseEntity.badRequest().build();
+    }
+
     // Extract user weights from authentication context if available
     Map<String, Double> weights = userContextService.getUserWeights();
 
@@ -82,7 +127,7 @@ public class ClanController {
       log.debug("No user weights found, using default weights for risk calculation");
     }
 
-    List<Map<String, Object>> riskData = riskService.getClanAtRisk(tag, weights);
+    List<Map<String, Object>> riskData = riskService.getClanAtRisk(tag, weights, limit, minScore);
 
     log.info(
         "Successfully retrieved at-risk data for clan tag: {} with {} members",
@@ -90,4 +135,42 @@ public class ClanController {
         riskData.size());
     return ResponseEntity.ok(riskData);
   }
+
+  @GetMapping("/members/at-risk")
+  public ResponseEntity<List<Map<String, Object>>> getClansAtRisk(
+      @RequestParam List<String> tags,
+      @RequestParam(defaultValue = "20") int limit,
+      @RequestParam(defaultValue = "0") int minScore,
+      @RequestParam(defaultValue = "100") int maxScore) {
+    log.info("Received cross-clan at-risk request for {} clan tags", tags.size());
+
+    if (tags.isEmpty() || tags.size() > MAX_BATCH_TAGS) {
+      return ResponseEntity.badRequest().build();
+    }
+    if (limit < 0 || minScore < 0 || maxScore > 100 || minScore > maxScore) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    // Served from the leaderboard index with default weights, so every caller sees one ordering
+    List<Map<String, Object>> riskData =
+        riskLeaderboardService.getAtRisk(tags, minScore, maxScore, limit);
+
+    log.info(
+        "Successfully retrieved {} at-risk members across {} clans", riskData.size(), tags.size());
+    return ResponseEntity.ok(riskData);
+  }
+
+  @PostMapping("/{tag}/members/at-risk/what-if")
+  public ResponseEntity<Map<String, Object>> simulateClanAtRisk(
+      @PathVariable String tag, @RequestBody List<Map<String, Double>> profiles) {
+    log.info("Received what-if request for clan tag: {} with {} profiles", tag, profiles.size());
+
+    // Each profile is one set of slider positions; unknown keys fall back to the defaults
+    if (profiles.isEmpty() || profiles.size() > MAX_WHAT_IF_PROFILES) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    Map<String, Object> simulation = riskService.simulateClanAtRisk(tag, profiles);
+    return ResponseEntity.ok(simulation);
+  }
 }
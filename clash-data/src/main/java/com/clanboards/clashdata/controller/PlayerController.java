@@ -1,14 +1,19 @@
 package com.clanboards.clashdata.controller;
 
+import com.clanboards.clashdata.service.HistoryEncoding;
+import com.clanboards.clashdata.service.HistoryResolution;
 import com.clanboards.clashdata.service.PlayerService;
+import com.clanboards.clashdata.util.ETags;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -24,10 +29,10 @@ public class PlayerController {
   }
 
   @GetMapping("/{playerTag}")
-  public ResponseEntity<JsonNode> getPlayer(@PathVariable String playerTag) {
+  public ResponseEntity<byte[]> getPlayer(@PathVariable String playerTag) {
     log.info("Received request for player profile for tag: {}", playerTag);
 
-    JsonNode playerData = playerService.getPlayerProfile(playerTag);
+    byte[] playerData = playerService.getPlayerProfileJson(playerTag);
 
     if (playerData == null) {
       log.warn("Player not found for tag: {}", playerTag);
@@ -35,7 +40,42 @@ public class PlayerController {
     }
 
     log.info("Successfully retrieved player profile for tag: {}", playerTag);
-    return ResponseEntity.ok(playerData);
+    return ResponseEntity.ok()
+        .eTag(ETags.strong(playerData))
+        .cacheControl(playerService.cacheControl())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(playerData);
+  }
+
+  @GetMapping("/{playerTag}/history")
+  public ResponseEntity<JsonNode> getPlayerHistory(
+      @PathVariable String playerTag,
+      @RequestParam(defaultValue = "30") int days,
+      @RequestParam(defaultValue = "raw") String resolution,
+      @RequestParam(defaultValue = "0") int maxPoints,
+      @RequestParam(defaultValue = "plain") String encoding) {
+    log.info("Received request for player history for tag: {} ({} days)", playerTag, days);
+
+    HistoryResolution historyResolution = HistoryResolution.parse(resolution);
+    HistoryEncoding historyEncoding = HistoryEncoding.parse(encoding);
+    if (days < 1 || days > 30 || historyResolution == null || historyEncoding == null) {
+      return ResponseEntity.badRequest().build();
+    }
+    // LTTB keeps the first and last point, so fewer than 3 cannot show a shape
+    if (maxPoints < 0 || (maxPoints > 0 && maxPoints < 3)) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    JsonNode history =
+        playerService.getPlayerHistory(
+            playerTag, days, historyResolution, maxPoints, historyEncoding);
+
+    if (history == null) {
+      log.warn("Player history not found for tag: {}", playerTag);
+      return ResponseEntity.notFound().build();
+    }
+
+    return ResponseEntity.ok(history);
   }
 
   @GetMapping("/by-user/{userSub}")
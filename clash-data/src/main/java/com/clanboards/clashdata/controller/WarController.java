@@ -1,12 +1,12 @@
 package com.clanboards.clashdata.controller;
 
 import com.clanboards.clashdata.service.WarService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.clanboards.clashdata.util.ETags;
+import java.nio.charset.StandardCharsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,29 +18,32 @@ import org.springframework.web.bind.annotation.RestController;
 public class WarController {
 
   private static final Logger log = LoggerFactory.getLogger(WarController.class);
+  private static final byte[] NOT_IN_WAR =
+      "{\"state\":\"notInWar\"}".getBytes(StandardCharsets.UTF_8);
   private final WarService warService;
-  private final ObjectMapper objectMapper;
 
   @Autowired
-  public WarController(WarService warService, ObjectMapper objectMapper) {
+  public WarController(WarService warService) {
     this.warService = warService;
-    this.objectMapper = objectMapper;
   }
 
   @GetMapping("/{clanTag}/current")
-  public ResponseEntity<JsonNode> getCurrentWar(@PathVariable String clanTag) {
+  public ResponseEntity<byte[]> getCurrentWar(@PathVariable String clanTag) {
     log.info("Received request for current war data for clan tag: {}", clanTag);
 
-    JsonNode warData = warService.getCurrentWarSnapshot(clanTag);
+    byte[] warData = warService.getCurrentWarJson(clanTag);
 
     if (warData == null) {
       log.info("No war data found for clan tag: {}, returning notInWar state", clanTag);
-      ObjectNode notInWarResponse = objectMapper.createObjectNode();
-      notInWarResponse.put("state", "notInWar");
-      return ResponseEntity.ok(notInWarResponse);
+      warData = NOT_IN_WAR;
+    } else {
+      log.info("Successfully retrieved war data for clan tag: {}", clanTag);
     }
 
-    log.info("Successfully retrieved war data for clan tag: {}", clanTag);
-    return ResponseEntity.ok(warData);
+    return ResponseEntity.ok()
+        .eTag(ETags.strong(warData))
+        .cacheControl(warService.cacheControl())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(warData);
   }
 }
@@ -0,0 +1,58 @@
+package com.clanboards.clashdata.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Pointer from each player to their newest row in {@code player_snapshots}. The table is kept
+ * current by a database trigger on snapshot insert, so this service only reads it.
+ */
+@Entity
+@Table(name = "player_latest")
+public class PlayerLatest {
+
+  @Id
+  @Column(name = "player_tag", length = 15)
+  private String playerTag;
+
+  @Column(name = "snapshot_id", nullable = false)
+  private Long snapshotId;
+
+  @Column(name = "clan_tag", length = 15)
+  private String clanTag;
+
+  @Column(name = "ts", nullable = false)
+  private LocalDateTime ts;
+
+  public String getPlayerTag() {
+    return playerTag;
+  }
+
+  public void setPlayerTag(String playerTag) {
+    this.playerTag = playerTag;
+  }
+
+  public Long getSnapshotId() {
+    return snapshotId;
+  }
+
+  public void setSnapshotId(Long snapshotId) {
+    this.snapshotId = snapshotId;
+  }
+
+  public String getClanTag() {
+    return clanTag;
+  }
+
+  public void setClanTag(String clanTag) {
+    this.clanTag = clanTag;
+  }
+
+  public LocalDateTime getTs() {
+    return ts;
+  }
+
+  public void setTs(LocalDateTime ts) {
+    this.ts = ts;
+  }
+}
@@ -0,0 +1,233 @@
+package com.clanboards.clashdata.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * One player's snapshots for one UTC day, folded into a single row: trophy range and closing
+ * value, donation counters at the first and last snapshot, and the most war attacks used. The
+ * table is kept current by a database trigger on snapshot insert, so this service only reads it.
+ */
+@Entity
+@Table(name = "player_snapshot_daily")
+@IdClass(PlayerSnapshotDaily.Key.class)
+public class PlayerSnapshotDaily {
+
+  @Id
+  @Column(name = "player_tag", length = 15)
+  private String playerTag;
+
+  @Id
+  @Column(name = "snapshot_date")
+  private LocalDate day;
+
+  @Column(name = "clan_tag", length = 15)
+  private String clanTag;
+
+  @Column(name = "samples", nullable = false)
+  private Integer samples;
+
+  @Column(name = "first_ts", nullable = false)
+  private LocalDateTime firstTs;
+
+  @Column(name = "last_ts", nullable = false)
+  private LocalDateTime lastTs;
+
+  @Column(name = "trophies_min")
+  private Integer trophiesMin;
+
+  @Column(name = "trophies_max")
+  private Integer trophiesMax;
+
+  @Column(name = "trophies_last")
+  private Integer trophiesLast;
+
+  @Column(name = "donations_first")
+  private Integer donationsFirst;
+
+  @Column(name = "donations_last")
+  private Integer donationsLast;
+
+  @Column(name = "donations_received_first")
+  private Integer donationsReceivedFirst;
+
+  @Column(name = "donations_received_last")
+  private Integer donationsReceivedLast;
+
+  @Column(name = "war_attacks_used_max")
+  private Integer warAttacksUsedMax;
+
+  @Column(name = "last_seen")
+  private LocalDateTime lastSeen;
+
+  public String getPlayerTag() {
+    return playerTag;
+  }
+
+  public void setPlayerTag(String playerTag) {
+    this.playerTag = playerTag;
+  }
+
+  public LocalDate getDay() {
+    return day;
+  }
+
+  public void setDay(LocalDate day) {
+    this.day = day;
+  }
+
+  public String getClanTag() {
+    return clanTag;
+  }
+
+  public void setClanTag(String clanTag) {
+    this.clanTag = clanTag;
+  }
+
+  public Integer getSamples() {
+    return samples;
+  }
+
+  public void setSamples(Integer samples) {
+    this.samples = samples;
+  }
+
+  public LocalDateTime getFirstTs() {
+    return firstTs;
+  }
+
+  public void setFirstTs(LocalDateTime firstTs) {
+    this.firstTs = firstTs;
+  }
+
+  public LocalDateTime getLastTs() {
+    return lastTs;
+  }
+
+  public void setLastTs(LocalDateTime lastTs) {
+    this.lastTs = lastTs;
+  }
+
+  public Integer getTrophiesMin() {
+    return trophiesMin;
+  }
+
+  public void setTrophiesMin(Integer trophiesMin) {
+    this.trophiesMin = trophiesMin;
+  }
+
+  public Integer getTrophiesMax() {
+    return trophiesMax;
+  }
+
+  public void setTrophiesMax(Integer trophiesMax) {
+    this.trophiesMax = trophiesMax;
+  }
+
+  public Integer getTrophiesLast() {
+    return trophiesLast;
+  }
+
+  public void setTrophiesLast(Integer trophiesLast) {
+    this.trophiesLast = trophiesLast;
+  }
+
+  public Integer getDonationsFirst() {
+    return donationsFirst;
+  }
+
+  public void setDonationsFirst(Integer donationsFirst) {
+    this.donationsFirst = donationsFirst;
+  }
+
+  public Integer getDonationsLast() {
+    return donationsLast;
+  }
+
+  public void setDonationsLast(Integer donationsLast) {
+    this.donationsLast = donationsLast;
+  }
+
+  public Integer getDonationsReceivedFirst() {
+    return donationsReceivedFirst;
+  }
+
+  public void setDonationsReceivedFirst(Integer donationsReceivedFirst) {
+    this.donationsReceivedFirst = donationsReceivedFirst;
+  }
+
+  public Integer getDonationsReceivedLast() {
+    return donationsReceivedLast;
+  }
+
+  public void setDonationsReceivedLast(Integer donationsReceivedLast) {
+    this.donationsReceivedLast = donationsReceivedLast;
+  }
+
+  public Integer getWarAttacksUsedMax() {
+    return warAttacksUsedMax;
+  }
+
+  public void setWarAttacksUsedMax(Integer warAttacksUsedMax) {
+    this.warAttacksUsedMax = warAttacksUsedMax;
+  }
+
+  public LocalDateTime getLastSeen() {
+    return lastSeen;
+  }
+
+  public void setLastSeen(LocalDateTime lastSeen) {
+    this.lastSeen = lastSeen;
+  }
+
+  /**
+   * Donations made over the day. The game resets the counter at the start of each season, so a
+   * last value below the first means the reset fell inside the day and only the last value counts.
+   */
+  public int getDonationsDelta() {
+    return delta(donationsFirst, donationsLast);
+  }
+
+  /** Donations received over the day, with the same season-reset handling as donations. */
+  public int getDonationsReceivedDelta() {
+    return delta(donationsReceivedFirst, donationsReceivedLast);
+  }
+
+  private static int delta(Integer first, Integer last) {
+    if (last == null) {
+      return 0;
+    }
+    if (first == null || last < first) {
+      return last;
+    }
+    return last - first;
+  }
+
+  /** Composite primary key: one row per player per day. */
+  public static class Key implements Serializable {
+    private String playerTag;
+    private LocalDate day;
+
+    public Key() {}
+
+    public Key(String playerTag, LocalDate day) {
+      this.playerTag = playerTag;
+      this.day = day;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key other)) return false;
+      return Objects.equals(playerTag, other.playerTag) && Objects.equals(day, other.day);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(playerTag, day);
+    }
+  }
+}
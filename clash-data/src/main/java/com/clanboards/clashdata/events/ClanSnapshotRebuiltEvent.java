@@ -0,0 +1,6 @@
+package com.clanboards.clashdata.events;
+
+import java.time.LocalDateTime;
+
+/** Published after a clan snapshot is rebuilt from the database; the tag is normalized. */
+public record ClanSnapshotRebuiltEvent(String clanTag, LocalDateTime ts) {}
@@ -0,0 +1,39 @@
+package com.clanboards.clashdata.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest-snapshot fields needed to render one clan member, as returned by {@link
+ * PlayerSnapshotRepository#findLatestMemberRows}. The JSON columns are reduced to the few values
+ * the member list shows, so the full snapshot and player blobs are never loaded.
+ */
+public interface ClanMemberRow {
+  String getPlayerTag();
+
+  String getName();
+
+  String getRole();
+
+  Integer getTownHall();
+
+  Integer getTrophies();
+
+  Integer getDonations();
+
+  Integer getDonationsReceived();
+
+  Integer getWarAttacksUsed();
+
+  LocalDateTime getLastSeen();
+
+  LocalDateTime getTs();
+
+  /** Tiny league icon URL from the snapshot data, or null. */
+  String getLeagueIcon();
+
+  /** The snapshot's {@code labels} array as raw JSON text, or null. */
+  String getLabels();
+
+  /** Deep link from the player record, falling back to the snapshot data. */
+  String getDeepLink();
+}
@@ -1,11 +1,24 @@
 package com.clanboards.clashdata.repository;
 
 import com.clanboards.clashdata.entity.ClanSnapshot;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ClanSnapshotRepository extends JpaRepository<ClanSnapshot, Long> {
 
   ClanSnapshot findTopByClanTagOrderByTsDesc(String clanTag);
+
+  /** Latest snapshot of each clan in one query; clans with no snapshot are left out. */
+  @Query(
+      """
+      SELECT cs FROM ClanSnapshot cs
+      WHERE cs.clanTag IN :clanTags
+        AND cs.ts = (SELECT MAX(c2.ts) FROM ClanSnapshot c2 WHERE c2.clanTag = cs.clanTag)
+      """)
+  List<ClanSnapshot> findLatestByClanTags(@Param("clanTags") Collection<String> clanTags);
 }
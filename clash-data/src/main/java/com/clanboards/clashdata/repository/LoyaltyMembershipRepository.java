@@ -1,6 +1,7 @@
 package com.clanboards.clashdata.repository;
 
 import com.clanboards.clashdata.entity.LoyaltyMembership;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -15,4 +16,6 @@ public interface LoyaltyMembershipRepository extends JpaRepository<LoyaltyMember
   List<String> findActivePlayerTagsByClanTag(@Param("clanTag") String clanTag);
 
   List<LoyaltyMembership> findByClanTagAndLeftAtIsNull(String clanTag);
+
+  List<LoyaltyMembership> findByClanTagInAndLeftAtIsNull(Collection<String> clanTags);
 }
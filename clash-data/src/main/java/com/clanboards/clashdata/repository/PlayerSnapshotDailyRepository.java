@@ -0,0 +1,20 @@
+package com.clanboards.clashdata.repository;
+
+import com.clanboards.clashdata.entity.PlayerSnapshotDaily;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PlayerSnapshotDailyRepository
+    extends JpaRepository<PlayerSnapshotDaily, PlayerSnapshotDaily.Key> {
+
+  /**
+   * Daily rollups for many players from {@code since} on, ordered by player and then by day so
+   * callers can group rows without re-sorting.
+   */
+  List<PlayerSnapshotDaily> findByPlayerTagInAndDayGreaterThanEqualOrderByPlayerTagAscDayAsc(
+      Collection<String> playerTags, LocalDate since);
+}
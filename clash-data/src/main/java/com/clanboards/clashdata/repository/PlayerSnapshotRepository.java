@@ -2,42 +2,108 @@ package com.clanboards.clashdata.repository;
 
 import com.clanboards.clashdata.entity.PlayerSnapshot;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PlayerSnapshotRepository extends JpaRepository<PlayerSnapshot, Long> {
 
+  /** Latest snapshot of each player, resolved through the {@code player_latest} pointer table. */
   @Query(
       """
-      SELECT ps FROM PlayerSnapshot ps
-      WHERE ps.playerTag IN :playerTags
-      AND ps.ts = (
-        SELECT MAX(ps2.ts)
-        FROM PlayerSnapshot ps2
-        WHERE ps2.playerTag = ps.playerTag
-      )
+      SELECT ps FROM PlayerLatest pl
+      JOIN PlayerSnapshot ps ON ps.id = pl.snapshotId
+      WHERE pl.playerTag IN :playerTags
       """)
   List<PlayerSnapshot> findLatestSnapshotsByPlayerTags(
       @Param("playerTags") List<String> playerTags);
 
+  /**
+   * Latest snapshot of each player joined with the player record, reduced to the columns the clan
+   * member list renders. One query regardless of clan size.
+   */
+  @Query(
+      value =
+          """
+          SELECT
+            ps.player_tag AS "playerTag",
+            ps.name AS "name",
+            ps.role AS "role",
+            ps.town_hall AS "townHall",
+            ps.trophies AS "trophies",
+            ps.donations AS "donations",
+            ps.donations_received AS "donationsReceived",
+            ps.war_attacks_used AS "warAttacksUsed",
+            ps.last_seen AS "lastSeen",
+            ps.ts AS "ts",
+            ps.data -> 'league' -> 'iconUrls' ->> 'tiny' AS "leagueIcon",
+            CAST(ps.data -> 'labels' AS text) AS "labels",
+            COALESCE(p.data ->> 'deep_link', ps.data ->> 'deep_link') AS "deepLink"
+          FROM player_latest pl
+          JOIN player_snapshots ps ON ps.id = pl.snapshot_id
+          LEFT JOIN players p ON p.tag = ps.player_tag
+          WHERE pl.player_tag IN (:playerTags)
+          ORDER BY ps.player_tag
+          """,
+      nativeQuery = true)
+  List<ClanMemberRow> findLatestMemberRows(@Param("playerTags") Collection<String> playerTags);
+
   List<PlayerSnapshot> findByPlayerTagAndTsAfterOrderByTsAsc(
       String playerTag, LocalDateTime cutoff);
 
+  /**
+   * Load the history window for many players in a single query, ordered by player and then by
+   * timestamp so callers can group rows without re-sorting.
+   */
+  List<PlayerSnapshot> findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+      Collection<String> playerTags, LocalDateTime cutoff);
+
+  /** Latest snapshots of the players whose newest snapshot was taken in {@code clanTag}. */
   @Query(
       """
-      SELECT ps FROM PlayerSnapshot ps
-      WHERE ps.clanTag = :clanTag
-      AND ps.ts = (
-        SELECT MAX(ps2.ts)
-        FROM PlayerSnapshot ps2
-        WHERE ps2.playerTag = ps.playerTag
-      )
+      SELECT ps FROM PlayerLatest pl
+      JOIN PlayerSnapshot ps ON ps.id = pl.snapshotId
+      WHERE pl.clanTag = :clanTag
       """)
   List<PlayerSnapshot> findLatestSnapshotsForClan(@Param("clanTag") String clanTag);
 
   PlayerSnapshot findTopByPlayerTagOrderByTsDesc(String playerTag);
+
+  @Query("SELECT MIN(ps.ts) FROM PlayerSnapshot ps")
+  LocalDateTime findOldestTs();
+
+  /**
+   * Delete every snapshot in {@code [from, to)} that has a newer snapshot of the same player before
+   * {@code bucketEnd}. The slice must lie inside a single bucket ending at {@code bucketEnd}, which
+   * leaves each player's newest snapshot of that bucket. Each row in the slice is visited once,
+   * with an index probe on {@code (player_tag, ts)} for a newer row, so the cost follows the size
+   * of the slice. A player's newest snapshot is always the newest of its bucket, so {@code
+   * player_latest} never points at a deleted row.
+   *
+   * @return the number of rows deleted
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          """
+          DELETE FROM player_snapshots p
+          WHERE p.ts >= :from AND p.ts < :to
+            AND EXISTS (
+              SELECT 1 FROM player_snapshots n
+              WHERE n.player_tag = p.player_tag
+                AND n.ts > p.ts
+                AND n.ts < :bucketEnd)
+          """,
+      nativeQuery = true)
+  int deleteSupersededInBucket(
+      @Param("from") LocalDateTime from,
+      @Param("to") LocalDateTime to,
+      @Param("bucketEnd") LocalDateTime bucketEnd);
 }
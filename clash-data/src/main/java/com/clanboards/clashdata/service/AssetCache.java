@@ -0,0 +1,139 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.util.ETags;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Proxied asset bodies held in direct (off-heap) buffers, bounded by total bytes.
+ *
+ * <p>The on-heap part is only a Caffeine index of URL to buffer and upstream validators, weighted
+ * by body size, so tens of thousands of icons cost the collector a few small objects each. An
+ * evicted buffer's native memory is released once its last reader is done with it.
+ *
+ * <p>Entries are fresh for {@code asset.cache-ttl} after they were fetched or last revalidated.
+ * Past that they stay in the index, so {@link AssetService} can revalidate them upstream with a
+ * conditional request instead of downloading the body again.
+ */
+@Component
+public class AssetCache implements MeterBinder {
+
+  // Rough on-heap cost of an index entry, so empty bodies still carry some weight
+  private static final int ENTRY_OVERHEAD = 128;
+
+  private final Cache<String, CachedAsset> index;
+  private final Clock clock;
+  private final int ttlSeconds;
+
+  public AssetCache(
+      Clock clock,
+      @Value("${clan-data.asset.cache.max-bytes:134217728}") long maxBytes,
+      @Value("${asset.cache-ttl:3600}") int ttlSeconds) {
+    this.clock = clock;
+    this.ttlSeconds = ttlSeconds;
+    this.index =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String url, CachedAsset asset) -> asset.length() + ENTRY_OVERHEAD)
+            .expireAfterAccess(1, TimeUnit.DAYS)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Index stats as {@code cache=assets}. The hit ratio and weighted evictions are what to watch
+   * when sizing {@code clan-data.asset.cache.max-bytes}.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, index, "assets");
+  }
+
+  /**
+   * A cached asset body and the upstream validators it was served with.
+   *
+   * @param etag upstream ETag, or null if none was sent
+   * @param lastModified upstream Last-Modified, or null if none was sent
+   * @param bodyEtag strong ETag derived from the body, for when upstream sent none
+   * @param fetchedAt when the body was fetched or last revalidated, in epoch seconds
+   */
+  public record CachedAsset(
+      ByteBuffer body,
+      String contentType,
+      String etag,
+      String lastModified,
+      String bodyEtag,
+      long fetchedAt) {
+
+    /** Validator to hand to clients: the upstream ETag, else the one derived from the body. */
+    public String clientEtag() {
+      return etag != null ? etag : bodyEtag;
+    }
+
+    /** A fresh stream over the body; concurrent readers never share a buffer position. */
+    public InputStream openStream() {
+      return new ByteBufferBackedInputStream(body.duplicate());
+    }
+
+    public int length() {
+      return body.remaining();
+    }
+  }
+
+  /** Cached asset, fresh or not, or null on a miss. */
+  public CachedAsset get(String url) {
+    return index.getIfPresent(url);
+  }
+
+  public boolean isFresh(CachedAsset asset) {
+    return clock.instant().getEpochSecond() - asset.fetchedAt() <= ttlSeconds;
+  }
+
+  public CachedAsset put(
+      String url, byte[] data, String contentType, String etag, String lastModified) {
+    ByteBuffer body = ByteBuffer.allocateDirect(data.length).put(data).flip();
+    CachedAsset asset =
+        new CachedAsset(
+            body.asReadOnlyBuffer(),
+            contentType,
+            etag,
+            lastModified,
+            ETags.strong(data),
+            clock.instant().getEpochSecond());
+    index.put(url, asset);
+    return asset;
+  }
+
+  /** Mark an entry fresh again after upstream confirmed it unchanged, keeping the same buffer. */
+  public CachedAsset touch(String url, CachedAsset asset) {
+    CachedAsset touched =
+        new CachedAsset(
+            asset.body(),
+            asset.contentType(),
+            asset.etag(),
+            asset.lastModified(),
+            asset.bodyEtag(),
+            clock.instant().getEpochSecond());
+    index.put(url, touched);
+    return touched;
+  }
+
+  /** Current weight of the cache: the off-heap body bytes plus a fixed allowance per entry. */
+  public long weightedSize() {
+    return index.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+  }
+
+  void cleanUp() {
+    index.cleanUp();
+  }
+}
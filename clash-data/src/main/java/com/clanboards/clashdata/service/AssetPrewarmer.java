@@ -0,0 +1,130 @@
+package com.clanboards.clashdata.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads badge and league icons into the {@link AssetCache} ahead of the first viewer.
+ *
+ * <p>Snapshot rebuilds hand over the icon URLs they render. URLs already fresh in the cache or on
+ * a host the proxy would refuse are ignored; the rest are fetched through {@link AssetService} on a
+ * small bounded pool. Each URL is queued at most once at a time, and prewarms are dropped when the
+ * queue is full, since the proxy still fetches on demand.
+ */
+@Component
+public class AssetPrewarmer {
+
+  private static final Logger log = LoggerFactory.getLogger(AssetPrewarmer.class);
+
+  private final AssetService assetService;
+  private final AssetCache assetCache;
+  private final String allowedHost;
+  private final boolean enabled;
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor executor;
+
+  public AssetPrewarmer(
+      AssetService assetService,
+      AssetCache assetCache,
+      @Value("${asset.allowed-host:api-assets.clashofclans.com}") String allowedHost,
+      @Value("${clan-data.asset.prewarm.enabled:true}") boolean enabled,
+      @Value("${clan-data.asset.prewarm.threads:2}") int threads,
+      @Value("${clan-data.asset.prewarm.queue-size:1000}") int queueSize) {
+    this.assetService = assetService;
+    this.assetCache = assetCache;
+    this.allowedHost = allowedHost;
+    this.enabled = enabled;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "asset-prewarm-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Queue icon URLs for background loading; nulls and URLs already queued are skipped. */
+  public void prewarm(Iterable<String> urls) {
+    if (!enabled) {
+      return;
+    }
+    for (String url : urls) {
+      if (url != null && isAllowed(url) && !isCached(url)) {
+        schedule(url);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void schedule(String url) {
+    if (!pending.add(url)) {
+      return;
+    }
+    try {
+      executor.execute(
+          () -> {
+            try {
+              load(url);
+            } catch (Exception e) {
+              log.debug("Failed to prewarm asset: {}", url, e);
+            } finally {
+              pending.remove(url);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      pending.remove(url);
+      log.debug("Prewarm queue full, skipping asset: {}", url);
+    }
+  }
+
+  private void load(String url) throws Exception {
+    if (isCached(url)) {
+      return;
+    }
+    // Reading the stream to the end is what stores the body in the cache
+    try (InputStream body = assetService.getAsset(url).body()) {
+      body.transferTo(OutputStream.nullOutputStream());
+    }
+    log.debug("Prewarmed asset: {}", url);
+  }
+
+  private boolean isCached(String url) {
+    AssetCache.CachedAsset cached = assetCache.get(url);
+    return cached != null && assetCache.isFresh(cached);
+  }
+
+  private boolean isAllowed(String url) {
+    try {
+      URI uri = URI.create(url);
+      String scheme = uri.getScheme();
+      return allowedHost.equals(uri.getHost())
+          && ("http".equals(scheme) || "https".equals(scheme));
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
@@ -1,35 +1,199 @@
 package com.clanboards.clashdata.service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.http.ResponseEntity;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 @Service
 public class AssetService {
 
-  private final RestTemplate restTemplate;
+  private static final Logger log = LoggerFactory.getLogger(AssetService.class);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
 
-  @Autowired
-  public AssetService(RestTemplate restTemplate) {
-    this.restTemplate = restTemplate;
+  private final HttpClient httpClient;
+  private final AssetCache assetCache;
+  private final int maxEntryBytes;
+  private final int clientMaxAge;
+
+  public AssetService(
+      HttpClient httpClient,
+      AssetCache assetCache,
+      @Value("${clan-data.asset.cache.max-entry-bytes:1048576}") int maxEntryBytes,
+      @Value("${asset.client-max-age:86400}") int clientMaxAge) {
+    this.httpClient = httpClient;
+    this.assetCache = assetCache;
+    this.maxEntryBytes = maxEntryBytes;
+    this.clientMaxAge = clientMaxAge;
   }
 
-  @Cacheable(value = "assets", key = "#url")
+  /**
+   * Asset body as a stream. Fresh cache entries are served without contacting upstream; stale ones
+   * are revalidated with a conditional request. Fetched bodies are streamed through to the caller
+   * and land in the cache once they have been read to the end.
+   */
   public AssetResponse getAsset(String url) throws IOException {
+    AssetCache.CachedAsset cached = assetCache.get(url);
+    if (cached != null && assetCache.isFresh(cached)) {
+      return fromCache(cached);
+    }
+
+    HttpResponse<InputStream> response;
     try {
-      ResponseEntity<byte[]> response = restTemplate.getForEntity(url, byte[].class);
-      String contentType = response.getHeaders().getFirst("Content-Type");
-      if (contentType == null || contentType.isEmpty()) {
-        contentType = "image/png";
-      }
-      return new AssetResponse(response.getBody(), contentType);
+      response = httpClient.send(request(url, cached), HttpResponse.BodyHandlers.ofInputStream());
     } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (cached != null) {
+        log.warn("Failed to revalidate asset: {}, serving cached copy", url, e);
+        return fromCache(cached);
+      }
       throw new RuntimeException("Failed to fetch asset: " + e.getMessage(), e);
     }
+
+    int status = response.statusCode();
+    if (status == 304 && cached != null) {
+      response.body().close();
+      log.debug("Asset unchanged upstream: {}", url);
+      return fromCache(assetCache.touch(url, cached));
+    }
+    if (status != 200) {
+      response.body().close();
+      if (cached != null) {
+        log.warn("Upstream returned {} revalidating asset: {}, serving cached copy", status, url);
+        return fromCache(cached);
+      }
+      throw new RuntimeException("Failed to fetch asset: upstream returned " + status);
+    }
+
+    String contentType = response.headers().firstValue("Content-Type").orElse("");
+    if (contentType.isEmpty()) {
+      contentType = "image/png";
+    }
+    String etag = response.headers().firstValue("ETag").orElse(null);
+    String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+    long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+
+    String storedType = contentType;
+    InputStream body =
+        new CachingInputStream(
+            response.body(),
+            maxEntryBytes,
+            data -> assetCache.put(url, data, storedType, etag, lastModified));
+    return new AssetResponse(body, contentLength, contentType, etag);
+  }
+
+  /** Long-lived caching for clients; asset URLs change whenever the image does. */
+  public CacheControl cacheControl() {
+    return CacheControl.maxAge(clientMaxAge, TimeUnit.SECONDS).cachePublic();
+  }
+
+  private static HttpRequest request(String url, AssetCache.CachedAsset cached) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT);
+    if (cached != null) {
+      if (cached.etag() != null) {
+        builder.header("If-None-Match", cached.etag());
+      }
+      if (cached.lastModified() != null) {
+        builder.header("If-Modified-Since", cached.lastModified());
+      }
+    }
+    return builder.GET().build();
   }
 
-  public record AssetResponse(byte[] data, String contentType) {}
+  private static AssetResponse fromCache(AssetCache.CachedAsset cached) {
+    return new AssetResponse(
+        cached.openStream(), cached.length(), cached.contentType(), cached.clientEtag());
+  }
+
+  /**
+   * An asset body ready to be streamed to the client.
+   *
+   * @param contentLength body length in bytes, or -1 if upstream did not say
+   * @param etag validator to hand to clients: upstream's, or one derived from the cached body. Null
+   *     only for a first fetch that upstream sent without an ETag
+   */
+  public record AssetResponse(
+      InputStream body, long contentLength, String contentType, String etag) {}
+
+  /**
+   * Passes an upstream body through while keeping a copy, which is handed to the cache once the
+   * stream has been read to the end. Bodies larger than the limit are passed through uncached.
+   */
+  private static final class CachingInputStream extends FilterInputStream {
+
+    private final int maxBytes;
+    private final Consumer<byte[]> onComplete;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    CachingInputStream(InputStream in, int maxBytes, Consumer<byte[]> onComplete) {
+      super(in);
+      this.maxBytes = maxBytes;
+      this.onComplete = onComplete;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        complete();
+      } else if (copy != null && copy.size() < maxBytes) {
+        copy.write(b);
+      } else {
+        copy = null;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n < 0) {
+        complete();
+      } else if (copy != null && copy.size() + n <= maxBytes) {
+        copy.write(b, off, n);
+      } else {
+        copy = null;
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // Skipped bytes never reach the copy, so it can no longer be cached
+      copy = null;
+      return super.skip(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void complete() {
+      if (copy == null) {
+        return;
+      }
+      byte[] data = copy.toByteArray();
+      copy = null;
+      try {
+        onComplete.accept(data);
+      } catch (Exception e) {
+        log.warn("Failed to cache streamed asset", e);
+      }
+    }
+  }
 }
@@ -0,0 +1,23 @@
+package com.clanboards.clashdata.service;
+
+import java.util.Locale;
+
+/** How the columns of a player history response are written. */
+public enum HistoryEncoding {
+  /** Every entry is the value at that point. */
+  PLAIN,
+  /** The first entry is the value at that point; later entries are the change from the last one. */
+  DELTA;
+
+  /** Parse a request parameter such as {@code "delta"}, or return null if it is not recognised. */
+  public static HistoryEncoding parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
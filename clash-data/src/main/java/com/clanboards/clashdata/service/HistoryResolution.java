@@ -0,0 +1,23 @@
+package com.clanboards.clashdata.service;
+
+import java.util.Locale;
+
+/** Granularity of a player history series. */
+public enum HistoryResolution {
+  /** Every stored snapshot. */
+  RAW,
+  /** One point per player per day, read from the {@code player_snapshot_daily} rollups. */
+  DAILY;
+
+  /** Parse a request parameter such as {@code "daily"}, or return null if it is not recognised. */
+  public static HistoryResolution parse(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.entity.PlayerSnapshot;
+import com.clanboards.clashdata.entity.PlayerSnapshotDaily;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar, immutable view of one player's snapshot history, oldest first.
+ *
+ * <p>Each field the risk and chart code reads is held in its own primitive array, so a point
+ * costs a few dozen bytes instead of a hydrated {@link PlayerSnapshot} with its JSON blob.
+ * Timestamps are stored as epoch seconds of the naive {@code ts} column (treated as UTC). Missing
+ * war attack counts are stored as {@link #NONE} and missing last-seen times as {@link #NO_TIME};
+ * missing trophy and donation counts are stored as 0.
+ */
+public final class PlayerHistory {
+
+  public static final int NONE = Integer.MIN_VALUE;
+  public static final long NO_TIME = Long.MIN_VALUE;
+
+  private static final PlayerHistory EMPTY =
+      new PlayerHistory(new long[0], new int[0], new int[0], new int[0], new int[0], new long[0]);
+
+  private final long[] ts;
+  private final int[] trophies;
+  private final int[] donations;
+  private final int[] donationsReceived;
+  private final int[] warAttacksUsed;
+  private final long[] lastSeen;
+
+  PlayerHistory(
+      long[] ts,
+      int[] trophies,
+      int[] donations,
+      int[] donationsReceived,
+      int[] warAttacksUsed,
+      long[] lastSeen) {
+    this.ts = ts;
+    this.trophies = trophies;
+    this.donations = donations;
+    this.donationsReceived = donationsReceived;
+    this.warAttacksUsed = warAttacksUsed;
+    this.lastSeen = lastSeen;
+  }
+
+  public static PlayerHistory empty() {
+    return EMPTY;
+  }
+
+  /** Build a history from snapshots ordered oldest first. */
+  public static PlayerHistory of(List<PlayerSnapshot> snapshots) {
+    return EMPTY.append(snapshots, NO_TIME);
+  }
+
+  /**
+   * Build a history with one point per day from rollups ordered oldest first. Each point sits at
+   * the day's last snapshot and carries its closing trophy and donation counts, the most war
+   * attacks used that day and the latest last-seen time.
+   */
+  public static PlayerHistory ofDaily(List<PlayerSnapshotDaily> days) {
+    int size = days.size();
+    long[] ts = new long[size];
+    int[] trophies = new int[size];
+    int[] donations = new int[size];
+    int[] donationsReceived = new int[size];
+    int[] warAttacksUsed = new int[size];
+    long[] lastSeen = new long[size];
+    for (int i = 0; i < size; i++) {
+      PlayerSnapshotDaily day = days.get(i);
+      ts[i] = toEpoch(day.getLastTs());
+      trophies[i] = orZero(day.getTrophiesLast());
+      donations[i] = orZero(day.getDonationsLast());
+      donationsReceived[i] = orZero(day.getDonationsReceivedLast());
+      warAttacksUsed[i] = day.getWarAttacksUsedMax() != null ? day.getWarAttacksUsedMax() : NONE;
+      lastSeen[i] = day.getLastSeen() != null ? toEpoch(day.getLastSeen()) : NO_TIME;
+    }
+    return new PlayerHistory(ts, trophies, donations, donationsReceived, warAttacksUsed, lastSeen);
+  }
+
+  public int size() {
+    return ts.length;
+  }
+
+  public boolean isEmpty() {
+    return ts.length == 0;
+  }
+
+  public long ts(int i) {
+    return ts[i];
+  }
+
+  public int trophies(int i) {
+    return trophies[i];
+  }
+
+  public int donations(int i) {
+    return donations[i];
+  }
+
+  public int donationsReceived(int i) {
+    return donationsReceived[i];
+  }
+
+  /** War attacks used at point {@code i}, or {@link #NONE} if the player was not in a war. */
+  public int warAttacksUsed(int i) {
+    return warAttacksUsed[i];
+  }
+
+  /** Last-seen time at point {@code i} in epoch seconds, or {@link #NO_TIME} if unknown. */
+  public long lastSeen(int i) {
+    return lastSeen[i];
+  }
+
+  /** Timestamp of the newest point, or {@link #NO_TIME} if the history is empty. */
+  public long lastTs() {
+    return ts.length == 0 ? NO_TIME : ts[ts.length - 1];
+  }
+
+  /**
+   * Return a history with {@code newer} appended and every point at or before {@code cutoff}
+   * dropped. Rows not newer than the current last point are ignored, so overlapping reloads are
+   * harmless.
+   *
+   * @param newer snapshots ordered oldest first
+   * @param cutoff epoch seconds; points at or before it are dropped
+   */
+  public PlayerHistory append(List<PlayerSnapshot> newer, long cutoff) {
+    long lastTs = lastTs();
+    int added = 0;
+    for (PlayerSnapshot snapshot : newer) {
+      long t = toEpoch(snapshot.getTs());
+      if (t > lastTs && t > cutoff) {
+        added++;
+        lastTs = t;
+      }
+    }
+
+    int keepFrom = firstIndexAfter(cutoff);
+    if (added == 0) {
+      return keepFrom == 0 ? this : slice(keepFrom);
+    }
+
+    int kept = ts.length - keepFrom;
+    int size = kept + added;
+    long[] newTs = Arrays.copyOfRange(ts, keepFrom, keepFrom + size);
+    int[] newTrophies = Arrays.copyOfRange(trophies, keepFrom, keepFrom + size);
+    int[] newDonations = Arrays.copyOfRange(donations, keepFrom, keepFrom + size);
+    int[] newReceived = Arrays.copyOfRange(donationsReceived, keepFrom, keepFrom + size);
+    int[] newWar = Arrays.copyOfRange(warAttacksUsed, keepFrom, keepFrom + size);
+    long[] newLastSeen = Arrays.copyOfRange(lastSeen, keepFrom, keepFrom + size);
+
+    int i = kept;
+    lastTs = lastTs();
+    for (PlayerSnapshot snapshot : newer) {
+      long t = toEpoch(snapshot.getTs());
+      if (t <= lastTs || t <= cutoff) {
+        continue;
+      }
+      newTs[i] = t;
+      newTrophies[i] = orZero(snapshot.getTrophies());
+      newDonations[i] = orZero(snapshot.getDonations());
+      newReceived[i] = orZero(snapshot.getDonationsReceived());
+      newWar[i] = snapshot.getWarAttacksUsed() != null ? snapshot.getWarAttacksUsed() : NONE;
+      newLastSeen[i] = snapshot.getLastSeen() != null ? toEpoch(snapshot.getLastSeen()) : NO_TIME;
+      lastTs = t;
+      i++;
+    }
+    return new PlayerHistory(newTs, newTrophies, newDonations, newReceived, newWar, newLastSeen);
+  }
+
+  /** Return the points strictly after {@code cutoff} (epoch seconds). */
+  public PlayerHistory since(long cutoff) {
+    int from = firstIndexAfter(cutoff);
+    return from == 0 ? this : slice(from);
+  }
+
+  /**
+   * Reduce the history to at most {@code maxPoints} points with Largest-Triangle-Three-Buckets on
+   * the trophy series. The first and last points are always kept; every kept point is a real
+   * snapshot, so its columns stay consistent with each other.
+   *
+   * @param maxPoints target point count; values below 3 or not below {@link #size()} return this
+   */
+  public PlayerHistory downsample(int maxPoints) {
+    int size = ts.length;
+    if (maxPoints < 3 || size <= maxPoints) {
+      return this;
+    }
+
+    int[] keep = new int[maxPoints];
+    int buckets = maxPoints - 2;
+    double bucketSize = (double) (size - 2) / buckets;
+    int a = 0;
+    for (int b = 0; b < buckets; b++) {
+      int start = (int) (b * bucketSize) + 1;
+      int end = b == buckets - 1 ? size - 1 : (int) ((b + 1) * bucketSize) + 1;
+      int nextEnd = b == buckets - 1 ? size : Math.min((int) ((b + 2) * bucketSize) + 1, size - 1);
+
+      // Average of the next bucket (just the last point for the final bucket)
+      double avgX = 0;
+      double avgY = 0;
+      for (int j = end; j < nextEnd; j++) {
+        avgX += ts[j] - ts[a];
+        avgY += trophies[j];
+      }
+      avgX /= nextEnd - end;
+      avgY /= nextEnd - end;
+
+      // Keep the point forming the largest triangle with the last kept point and that average
+      double maxArea = -1;
+      int chosen = start;
+      for (int j = start; j < end; j++) {
+        double area =
+            Math.abs(
+                (double) (ts[j] - ts[a]) * (avgY - trophies[a])
+                    - avgX * ((double) trophies[j] - trophies[a]));
+        if (area > maxArea) {
+          maxArea = area;
+          chosen = j;
+        }
+      }
+      keep[b + 1] = chosen;
+      a = chosen;
+    }
+    keep[maxPoints - 1] = size - 1;
+    return select(keep);
+  }
+
+  public static long toEpoch(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  public static LocalDateTime fromEpoch(long epochSeconds) {
+    return LocalDateTime.ofEpochSecond(epochSeconds, 0, ZoneOffset.UTC);
+  }
+
+  private int firstIndexAfter(long cutoff) {
+    int idx = Arrays.binarySearch(ts, cutoff);
+    if (idx < 0) {
+      return -idx - 1;
+    }
+    // Timestamps are strictly increasing, so the match is unique
+    return idx + 1;
+  }
+
+  private PlayerHistory slice(int from) {
+    if (from >= ts.length) {
+      return EMPTY;
+    }
+    return new PlayerHistory(
+        Arrays.copyOfRange(ts, from, ts.length),
+        Arrays.copyOfRange(trophies, from, ts.length),
+        Arrays.copyOfRange(donations, from, ts.length),
+        Arrays.copyOfRange(donationsReceived, from, ts.length),
+        Arrays.copyOfRange(warAttacksUsed, from, ts.length),
+        Arrays.copyOfRange(lastSeen, from, ts.length));
+  }
+
+  private PlayerHistory select(int[] indices) {
+    int size = indices.length;
+    long[] newTs = new long[size];
+    int[] newTrophies = new int[size];
+    int[] newDonations = new int[size];
+    int[] newReceived = new int[size];
+    int[] newWar = new int[size];
+    long[] newLastSeen = new long[size];
+    for (int i = 0; i < size; i++) {
+      int j = indices[i];
+      newTs[i] = ts[j];
+      newTrophies[i] = trophies[j];
+      newDonations[i] = donations[j];
+      newReceived[i] = donationsReceived[j];
+      newWar[i] = warAttacksUsed[j];
+      newLastSeen[i] = lastSeen[j];
+    }
+    return new PlayerHistory(newTs, newTrophies, newDonations, newReceived, newWar, newLastSeen);
+  }
+
+  private static int orZero(Integer value) {
+    return value != null ? value : 0;
+  }
+}
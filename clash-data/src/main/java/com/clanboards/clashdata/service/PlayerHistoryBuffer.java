@@ -0,0 +1,183 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.entity.PlayerSnapshot;
+import java.util.List;
+
+/**
+ * One player's cached history as a ring buffer over the same columns as {@link PlayerHistory},
+ * oldest first.
+ *
+ * <p>New snapshots are written at the tail and points that leave the window are dropped from the
+ * head, so keeping the window current costs only the points that changed. Capacity is a power of
+ * two and doubles when the buffer fills. Readers get an immutable {@link PlayerHistory} copy of the
+ * part they asked for; every access holds the buffer's lock.
+ *
+ * <p>The buffer also remembers when it was last synced with the database and the newest snapshot
+ * timestamp seen elsewhere for the player, which together decide whether a read needs a query.
+ */
+final class PlayerHistoryBuffer {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Columns columns = new Columns(INITIAL_CAPACITY);
+  private int head;
+  private int size;
+  private long syncedAt = PlayerHistory.NO_TIME;
+  private long knownLatestTs = PlayerHistory.NO_TIME;
+
+  /** Whether the buffer has been filled from the database at least once. */
+  synchronized boolean isLoaded() {
+    return syncedAt != PlayerHistory.NO_TIME;
+  }
+
+  /**
+   * Whether a read can be served without a query: the buffer was synced at or after {@code
+   * staleBefore} and holds every snapshot known to exist inside the window.
+   *
+   * @param staleBefore epoch seconds; syncs before it no longer count
+   * @param windowCutoff epoch seconds; snapshots at or before it are outside the window
+   */
+  synchronized boolean isCurrent(long staleBefore, long windowCutoff) {
+    return syncedAt != PlayerHistory.NO_TIME
+        && syncedAt >= staleBefore
+        && (knownLatestTs <= windowCutoff || lastTs() >= knownLatestTs);
+  }
+
+  /** Record that a snapshot taken at {@code latestTs} (epoch seconds) exists for the player. */
+  synchronized void noteLatest(long latestTs) {
+    knownLatestTs = Math.max(knownLatestTs, latestTs);
+  }
+
+  /** Timestamp of the newest point, or {@link PlayerHistory#NO_TIME} if the buffer is empty. */
+  synchronized long lastTs() {
+    return size == 0 ? PlayerHistory.NO_TIME : columns.ts[index(size - 1)];
+  }
+
+  /**
+   * Drop points at or before {@code cutoff}, append the snapshots newer than the last point and
+   * mark the buffer synced. Rows not newer than the last point are ignored, so overlapping reloads
+   * are harmless.
+   *
+   * @param newer snapshots ordered oldest first
+   * @param cutoff epoch seconds; points at or before it are dropped
+   * @param syncedAt epoch seconds the rows were read at
+   */
+  synchronized void append(List<PlayerSnapshot> newer, long cutoff, long syncedAt) {
+    while (size > 0 && columns.ts[head] <= cutoff) {
+      head = index(1);
+      size--;
+    }
+
+    long last = lastTs();
+    for (PlayerSnapshot snapshot : newer) {
+      long t = PlayerHistory.toEpoch(snapshot.getTs());
+      if (t <= last || t <= cutoff) {
+        continue;
+      }
+      if (size == columns.capacity()) {
+        columns = unwrap(head, size, size * 2);
+        head = 0;
+      }
+      columns.set(index(size), t, snapshot);
+      size++;
+      last = t;
+    }
+    this.syncedAt = Math.max(this.syncedAt, syncedAt);
+  }
+
+  /** Copy of the points strictly after {@code cutoff} (epoch seconds). */
+  synchronized PlayerHistory since(long cutoff) {
+    int from = firstIndexAfter(cutoff);
+    if (from == size) {
+      return PlayerHistory.empty();
+    }
+    return unwrap(index(from), size - from, size - from).toHistory();
+  }
+
+  /**
+   * Copy {@code count} points starting at physical slot {@code start} into the front of new
+   * columns of {@code capacity}.
+   */
+  private Columns unwrap(int start, int count, int capacity) {
+    Columns copy = new Columns(capacity);
+    // The live range wraps at most once, so each column is copied in at most two runs
+    int firstRun = Math.min(count, columns.capacity() - start);
+    copy.copyFrom(columns, start, 0, firstRun);
+    copy.copyFrom(columns, 0, firstRun, count - firstRun);
+    return copy;
+  }
+
+  /** Logical position of the first point after {@code cutoff}; timestamps strictly increase. */
+  private int firstIndexAfter(long cutoff) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (columns.ts[index(mid)] <= cutoff) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int index(int logical) {
+    return (head + logical) & (columns.capacity() - 1);
+  }
+
+  /** The column arrays, indexed by physical slot. */
+  private static final class Columns {
+    final long[] ts;
+    final int[] trophies;
+    final int[] donations;
+    final int[] donationsReceived;
+    final int[] warAttacksUsed;
+    final long[] lastSeen;
+
+    Columns(int capacity) {
+      ts = new long[capacity];
+      trophies = new int[capacity];
+      donations = new int[capacity];
+      donationsReceived = new int[capacity];
+      warAttacksUsed = new int[capacity];
+      lastSeen = new long[capacity];
+    }
+
+    int capacity() {
+      return ts.length;
+    }
+
+    void set(int i, long t, PlayerSnapshot snapshot) {
+      ts[i] = t;
+      trophies[i] = orZero(snapshot.getTrophies());
+      donations[i] = orZero(snapshot.getDonations());
+      donationsReceived[i] = orZero(snapshot.getDonationsReceived());
+      warAttacksUsed[i] =
+          snapshot.getWarAttacksUsed() != null ? snapshot.getWarAttacksUsed() : PlayerHistory.NONE;
+      lastSeen[i] =
+          snapshot.getLastSeen() != null
+              ? PlayerHistory.toEpoch(snapshot.getLastSeen())
+              : PlayerHistory.NO_TIME;
+    }
+
+    void copyFrom(Columns source, int from, int to, int length) {
+      System.arraycopy(source.ts, from, ts, to, length);
+      System.arraycopy(source.trophies, from, trophies, to, length);
+      System.arraycopy(source.donations, from, donations, to, length);
+      System.arraycopy(source.donationsReceived, from, donationsReceived, to, length);
+      System.arraycopy(source.warAttacksUsed, from, warAttacksUsed, to, length);
+      System.arraycopy(source.lastSeen, from, lastSeen, to, length);
+    }
+
+    /** Only valid when the columns are exactly full, as copies made by {@code unwrap} are. */
+    PlayerHistory toHistory() {
+      return new PlayerHistory(
+          ts, trophies, donations, donationsReceived, warAttacksUsed, lastSeen);
+    }
+  }
+
+  private static int orZero(Integer value) {
+    return value != null ? value : 0;
+  }
+}
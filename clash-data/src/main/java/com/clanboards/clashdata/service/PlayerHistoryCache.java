@@ -0,0 +1,68 @@
+package com.clanboards.clashdata.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache of {@link PlayerHistoryBuffer} keyed by player tag, each bounded to the
+ * configured history window.
+ *
+ * <p>A buffer synced within {@code clan-data.history.recheck-seconds} that holds the newest
+ * snapshot seen for its player is served without a query. Loading and incremental refresh live in
+ * {@link PlayerSnapshotService}.
+ */
+@Component
+public class PlayerHistoryCache implements MeterBinder {
+
+  private final Cache<String, PlayerHistoryBuffer> histories;
+  private final int windowDays;
+  private final int recheckSeconds;
+
+  public PlayerHistoryCache(
+      @Value("${clan-data.history.max-players:100000}") long maxPlayers,
+      @Value("${clan-data.history.window-days:30}") int windowDays,
+      @Value("${clan-data.history.recheck-seconds:60}") int recheckSeconds) {
+    this.histories =
+        Caffeine.newBuilder()
+            .maximumSize(maxPlayers)
+            .expireAfterAccess(1, TimeUnit.DAYS)
+            .recordStats()
+            .build();
+    this.windowDays = windowDays;
+    this.recheckSeconds = recheckSeconds;
+  }
+
+  /** Publishes the Caffeine stats of the history cache as {@code cache=player-history}. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, histories, "player-history");
+  }
+
+  /** The player's buffer, or null if it is not cached. */
+  PlayerHistoryBuffer get(String playerTag) {
+    return histories.getIfPresent(playerTag);
+  }
+
+  /** The player's buffer, creating an empty, unloaded one if it is not cached. */
+  PlayerHistoryBuffer getOrCreate(String playerTag) {
+    return histories.get(playerTag, k -> new PlayerHistoryBuffer());
+  }
+
+  public void invalidate(String playerTag) {
+    histories.invalidate(playerTag);
+  }
+
+  public int windowDays() {
+    return windowDays;
+  }
+
+  public int recheckSeconds() {
+    return recheckSeconds;
+  }
+}
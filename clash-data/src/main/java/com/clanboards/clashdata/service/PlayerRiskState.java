@@ -0,0 +1,45 @@
+package com.clanboards.clashdata.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Materialized risk inputs for one player, derived from their snapshot history.
+ *
+ * <p>Only the time-independent parts are stored. Idle days and the "war still in progress" grace
+ * period depend on the current time and are applied when the state is scored. The remaining
+ * components depend on which snapshots fall inside the history window, so a state also goes stale
+ * once the window has slid past the oldest snapshot it was built from.
+ *
+ * @param snapshotTs timestamp of the newest snapshot the state was built from
+ * @param windowStart timestamp of the oldest snapshot the state was built from
+ * @param warMissPct share of war attacks missed in the latest war, before the in-progress grace
+ * @param warUsed attacks used in the latest war, or null when the player was not in a war roster
+ * @param warCap attack cap used for the miss percentage
+ * @param warTs timestamp of the snapshot the war figures come from
+ * @param lastActivity last time the player was seen doing something
+ * @param deficitRisk donation deficit component in [0, 1]
+ * @param dropRisk donation drop component in [0, 1]
+ */
+public record PlayerRiskState(
+    LocalDateTime snapshotTs,
+    LocalDateTime windowStart,
+    double warMissPct,
+    Integer warUsed,
+    int warCap,
+    LocalDateTime warTs,
+    LocalDateTime lastActivity,
+    double deficitRisk,
+    double dropRisk) {
+
+  /**
+   * Whether this state already reflects a snapshot taken at {@code latestTs} and every snapshot it
+   * was built from is still at or after {@code windowCutoff}. Compared at second precision, which
+   * is what {@link PlayerHistory} keeps.
+   */
+  public boolean isCurrent(LocalDateTime latestTs, LocalDateTime windowCutoff) {
+    return latestTs != null
+        && !snapshotTs.isBefore(latestTs.truncatedTo(ChronoUnit.SECONDS))
+        && !windowStart.isBefore(windowCutoff);
+  }
+}
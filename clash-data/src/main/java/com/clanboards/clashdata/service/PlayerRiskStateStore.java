@@ -0,0 +1,59 @@
+package com.clanboards.clashdata.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process store of {@link PlayerRiskState} keyed by player tag.
+ *
+ * <p>Snapshots are written by the refresh worker, so entries are refreshed lazily: a reader that
+ * sees a newer latest snapshot than the stored {@code snapshotTs} rebuilds the state and puts it
+ * back. Until then every risk request is just a weighted sum over the stored components.
+ */
+@Component
+public class PlayerRiskStateStore implements MeterBinder {
+
+  private final Cache<String, PlayerRiskState> states;
+
+  public PlayerRiskStateStore(@Value("${clan-data.risk.state-max-size:100000}") long maxSize) {
+    this.states =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(1, TimeUnit.DAYS)
+            .recordStats()
+            .build();
+  }
+
+  /** Caffeine hit, miss, eviction and size metrics, tagged {@code cache=player-risk-state}. */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, states, "player-risk-state");
+  }
+
+  public PlayerRiskState get(String playerTag) {
+    return states.getIfPresent(playerTag);
+  }
+
+  public void put(String playerTag, PlayerRiskState state) {
+    states.asMap().merge(playerTag, state, PlayerRiskStateStore::newer);
+  }
+
+  public void invalidate(String playerTag) {
+    states.invalidate(playerTag);
+  }
+
+  public long size() {
+    return states.estimatedSize();
+  }
+
+  // Concurrent rebuilds may race; never let an older snapshot overwrite a newer one
+  private static PlayerRiskState newer(PlayerRiskState current, PlayerRiskState candidate) {
+    return candidate.snapshotTs().isBefore(current.snapshotTs()) ? current : candidate;
+  }
+}
@@ -1,19 +1,27 @@
 package com.clanboards.clashdata.service;
 
-import com.clanboards.clashdata.entity.PlayerSnapshot;
 import com.clanboards.clashdata.entity.User;
 import com.clanboards.clashdata.repository.UserRepository;
+import com.clanboards.clashdata.util.JsonBytes;
 import com.clanboards.clashdata.util.TagUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import java.util.List;
-import java.util.Map;
+import jakarta.annotation.PreDestroy;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -26,6 +34,8 @@ public class PlayerService {
   private final PlayerSnapshotService playerSnapshotService;
   private final UserRepository userRepository;
   private final ObjectMapper objectMapper;
+  private final long partTimeoutMs;
+  private final ExecutorService profileExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
   @Autowired
   public PlayerService(
@@ -34,66 +44,210 @@ public class PlayerService {
       RiskService riskService,
       PlayerSnapshotService playerSnapshotService,
       UserRepository userRepository,
-      ObjectMapper objectMapper) {
+      ObjectMapper objectMapper,
+      @Value("${clan-data.profile.part-timeout-ms:2000}") long partTimeoutMs) {
     this.snapshotService = snapshotService;
     this.loyaltyService = loyaltyService;
     this.riskService = riskService;
     this.playerSnapshotService = playerSnapshotService;
     this.userRepository = userRepository;
     this.objectMapper = objectMapper;
+    this.partTimeoutMs = partTimeoutMs;
   }
 
+  /** Player profile as a tree; see {@link #getPlayerProfileJson(String)}. */
   public JsonNode getPlayerProfile(String playerTag) {
+    byte[] profile = getPlayerProfileJson(playerTag);
+    if (profile == null) {
+      return null;
+    }
+    try {
+      return objectMapper.readTree(profile);
+    } catch (Exception e) {
+      throw new IllegalStateException("Failed to parse player profile: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Player profile as serialized JSON. The snapshot bytes from the cache are reused as-is and the
+   * loyalty and risk fields are appended to the end of the object, so a cache hit is never parsed.
+   *
+   * <p>Loyalty and risk only load once the player is known to exist, in parallel with each other.
+   * Together they get {@code clan-data.profile.part-timeout-ms}; a part still running then is
+   * cancelled and replaced by its default, so it stops holding a database connection.
+   */
+  public byte[] getPlayerProfileJson(String playerTag) {
     String normalizedTag = TagUtils.normalizeTag(playerTag);
     log.info("Fetching player profile for tag: {}", normalizedTag);
 
-    // Get player snapshot data (this mimics get_player_snapshot from Python)
-    JsonNode playerData = snapshotService.getPlayer(normalizedTag);
+    byte[] playerData = snapshotService.getPlayerJson(normalizedTag);
     if (playerData == null) {
       log.info("No player data found for tag: {}", normalizedTag);
       return null;
     }
 
-    // Create mutable copy to add loyalty and risk data
-    ObjectNode mutablePlayerData = playerData.deepCopy();
+    Future<Integer> loyalty =
+        profileExecutor.submit(
+            () -> loyaltyService.getClanLoyalty(normalizedTag).getOrDefault(normalizedTag, 0));
+    Future<RiskService.RiskCalculationResult> risk =
+        profileExecutor.submit(() -> riskService.getPlayerRisk(normalizedTag, null));
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(partTimeoutMs);
+
+    ObjectNode profileFields = objectMapper.createObjectNode();
+    addProfileFields(
+        profileFields,
+        await(loyalty, deadline, 0, "loyalty data", normalizedTag),
+        await(risk, deadline, null, "risk data", normalizedTag));
 
-    // Add loyalty data
+    byte[] profile;
     try {
-      Map<String, Integer> clanLoyalty = loyaltyService.getClanLoyalty(normalizedTag);
-      Integer loyalty = clanLoyalty.get(normalizedTag);
-      if (loyalty != null) {
-        mutablePlayerData.put("loyalty", loyalty);
-      } else {
-        mutablePlayerData.put("loyalty", 0);
-      }
+      profile = JsonBytes.appendFields(playerData, objectMapper.writeValueAsBytes(profileFields));
     } catch (Exception e) {
-      log.warn("Failed to get loyalty data for player: {}", normalizedTag, e);
-      mutablePlayerData.put("loyalty", 0);
+      throw new IllegalStateException("Failed to serialize player profile: " + e.getMessage(), e);
     }
 
-    // Add risk score and breakdown
+    log.info("Successfully built player profile for tag: {}", normalizedTag);
+    return profile;
+  }
+
+  /** Profiles are rebuilt from the player snapshot, so they follow its cache lifetimes. */
+  public CacheControl cacheControl() {
+    return snapshotService.cacheControl();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    profileExecutor.shutdownNow();
+  }
+
+  /**
+   * Result of a profile part, or {@code fallback} if it failed or is still running at {@code
+   * deadline} (a {@link System#nanoTime()} value), in which case it is cancelled.
+   */
+  private <T> T await(Future<T> part, long deadline, T fallback, String what, String tag) {
     try {
-      List<PlayerSnapshot> history = playerSnapshotService.getPlayerHistory(normalizedTag, 30);
-      if (!history.isEmpty()) {
-        int riskScore = riskService.calculateRiskScore(history, null, null);
-        mutablePlayerData.put("riskScore", riskScore);
-
-        // For now, create empty risk breakdown array
-        // TODO: Implement risk breakdown extraction from RiskService
-        ArrayNode riskBreakdown = objectMapper.createArrayNode();
-        mutablePlayerData.set("riskBreakdown", riskBreakdown);
+      return part.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      part.cancel(true);
+      Thread.currentThread().interrupt();
+    } catch (TimeoutException e) {
+      part.cancel(true);
+      log.warn("Timed out getting {} for player: {}", what, tag);
+    } catch (ExecutionException e) {
+      log.warn("Failed to get {} for player: {}", what, tag, e.getCause());
+    }
+    return fallback;
+  }
+
+  private void addProfileFields(
+      ObjectNode profileFields, int loyalty, RiskService.RiskCalculationResult risk) {
+    profileFields.put("loyalty", loyalty);
+
+    // Add risk score and breakdown
+    if (risk != null) {
+      profileFields.put("riskScore", risk.score());
+      profileFields.set("riskBreakdown", objectMapper.valueToTree(risk.breakdown()));
+    } else {
+      profileFields.put("riskScore", 0);
+      profileFields.set("riskBreakdown", objectMapper.createArrayNode());
+    }
+  }
+
+  /**
+   * Player history as parallel columns, served from the in-memory history cache.
+   *
+   * @return column arrays keyed by field name, or null if the player has no snapshots in the
+   *     window
+   */
+  public JsonNode getPlayerHistory(String playerTag, int days) {
+    return getPlayerHistory(playerTag, days, HistoryResolution.RAW);
+  }
+
+  public JsonNode getPlayerHistory(String playerTag, int days, HistoryResolution resolution) {
+    return getPlayerHistory(playerTag, days, resolution, 0, HistoryEncoding.PLAIN);
+  }
+
+  /**
+   * Player history as parallel columns at the given resolution. {@link HistoryResolution#DAILY}
+   * reads the daily rollups, one point per day, for charts that do not need every snapshot.
+   *
+   * <p>With {@link HistoryEncoding#DELTA} the {@code ts}, {@code trophies}, {@code donations} and
+   * {@code donationsReceived} columns hold the first value followed by the change from the previous
+   * point, which keeps a month of hourly points to a few KB. {@code warAttacksUsed} is always
+   * written as values since it may be null.
+   *
+   * @param maxPoints downsample to at most this many points; 0 keeps every point
+   * @return column arrays keyed by field name, or null if the player has no points in the window
+   */
+  public JsonNode getPlayerHistory(
+      String playerTag,
+      int days,
+      HistoryResolution resolution,
+      int maxPoints,
+      HistoryEncoding encoding) {
+    String normalizedTag = TagUtils.normalizeTag(playerTag);
+    PlayerHistory history = playerSnapshotService.getPlayerSeries(normalizedTag, days, resolution);
+    if (history.isEmpty()) {
+      log.info("No player history found for tag: {}", normalizedTag);
+      return null;
+    }
+    if (maxPoints > 0) {
+      history = history.downsample(maxPoints);
+    }
+
+    ObjectNode result = objectMapper.createObjectNode();
+    result.put("tag", normalizedTag);
+    result.put("resolution", resolution.name().toLowerCase(Locale.ROOT));
+    result.put("encoding", encoding.name().toLowerCase(Locale.ROOT));
+    result.put("points", history.size());
+    if (encoding == HistoryEncoding.DELTA) {
+      writeDeltas(result, history);
+    } else {
+      writeValues(result, history);
+    }
+    writeWarAttacksUsed(result, history);
+    return result;
+  }
+
+  private static void writeValues(ObjectNode result, PlayerHistory history) {
+    ArrayNode ts = result.putArray("ts");
+    ArrayNode trophies = result.putArray("trophies");
+    ArrayNode donations = result.putArray("donations");
+    ArrayNode donationsReceived = result.putArray("donationsReceived");
+    for (int i = 0; i < history.size(); i++) {
+      ts.add(history.ts(i));
+      trophies.add(history.trophies(i));
+      donations.add(history.donations(i));
+      donationsReceived.add(history.donationsReceived(i));
+    }
+  }
+
+  private static void writeDeltas(ObjectNode result, PlayerHistory history) {
+    ArrayNode ts = result.putArray("ts");
+    ArrayNode trophies = result.putArray("trophies");
+    ArrayNode donations = result.putArray("donations");
+    ArrayNode donationsReceived = result.putArray("donationsReceived");
+    ts.add(history.ts(0));
+    trophies.add(history.trophies(0));
+    donations.add(history.donations(0));
+    donationsReceived.add(history.donationsReceived(0));
+    for (int i = 1; i < history.size(); i++) {
+      ts.add(history.ts(i) - history.ts(i - 1));
+      trophies.add(history.trophies(i) - history.trophies(i - 1));
+      donations.add(history.donations(i) - history.donations(i - 1));
+      donationsReceived.add(history.donationsReceived(i) - history.donationsReceived(i - 1));
+    }
+  }
+
+  private static void writeWarAttacksUsed(ObjectNode result, PlayerHistory history) {
+    ArrayNode warAttacksUsed = result.putArray("warAttacksUsed");
+    for (int i = 0; i < history.size(); i++) {
+      if (history.warAttacksUsed(i) == PlayerHistory.NONE) {
+        warAttacksUsed.addNull();
       } else {
-        mutablePlayerData.put("riskScore", 0);
-        mutablePlayerData.set("riskBreakdown", objectMapper.createArrayNode());
+        warAttacksUsed.add(history.warAttacksUsed(i));
       }
-    } catch (Exception e) {
-      log.warn("Failed to calculate risk data for player: {}", normalizedTag, e);
-      mutablePlayerData.put("riskScore", 0);
-      mutablePlayerData.set("riskBreakdown", objectMapper.createArrayNode());
     }
-
-    log.info("Successfully built player profile for tag: {}", normalizedTag);
-    return mutablePlayerData;
   }
 
   public JsonNode getPlayerProfileByUser(String userSub) {
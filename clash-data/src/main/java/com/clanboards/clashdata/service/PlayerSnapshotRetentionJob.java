@@ -0,0 +1,155 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.config.SchedulingConfig;
+import com.clanboards.clashdata.repository.PlayerSnapshotRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compacts {@code player_snapshots} so it stops growing with time. Snapshots inside the raw window
+ * are kept as-is; older ones are thinned to each player's last snapshot per hour, and past the
+ * hourly window to the last per day. Per-day aggregates are already in {@code
+ * player_snapshot_daily}, which the insert trigger filled before any row was removed.
+ *
+ * <p>A pass walks one day at a time, oldest first, and each day one hour slice at a time. Every
+ * slice is one statement that removes all of its superseded rows, so each transaction stays short
+ * and no row is scanned twice. Passes run on their own scheduler thread, and only one node runs a
+ * pass at a time.
+ */
+@Component
+public class PlayerSnapshotRetentionJob {
+
+  private static final Logger log = LoggerFactory.getLogger(PlayerSnapshotRetentionJob.class);
+  static final String LOCK_KEY = "job:player-snapshot-retention";
+  static final String HOUR = "hour";
+  static final String DAY = "day";
+
+  private final PlayerSnapshotRepository playerSnapshotRepository;
+  private final SnapshotCache snapshotCache;
+  private final Clock clock;
+  private final boolean enabled;
+  private final int rawDays;
+  private final int hourlyDays;
+  private final int lockTtl;
+  private final Counter hourlyCompacted;
+  private final Counter dailyCompacted;
+  private final Timer passTimer;
+
+  // Days before this are already thinned to one point per day; saves rescanning them every pass
+  private volatile LocalDate dailyCompactedBefore;
+
+  public PlayerSnapshotRetentionJob(
+      PlayerSnapshotRepository playerSnapshotRepository,
+      SnapshotCache snapshotCache,
+      Clock clock,
+      MeterRegistry meterRegistry,
+      @Value("${clan-data.retention.enabled:false}") boolean enabled,
+      @Value("${clan-data.retention.raw-days:35}") int rawDays,
+      @Value("${clan-data.retention.hourly-days:90}") int hourlyDays,
+      @Value("${clan-data.retention.lock-ttl:3600}") int lockTtl) {
+    if (hourlyDays < rawDays) {
+      throw new IllegalArgumentException(
+          "clan-data.retention.hourly-days must not be shorter than raw-days");
+    }
+    this.playerSnapshotRepository = playerSnapshotRepository;
+    this.snapshotCache = snapshotCache;
+    this.clock = clock;
+    this.enabled = enabled;
+    this.rawDays = rawDays;
+    this.hourlyDays = hourlyDays;
+    this.lockTtl = lockTtl;
+    this.hourlyCompacted = compactedCounter(meterRegistry, HOUR);
+    this.dailyCompacted = compactedCounter(meterRegistry, DAY);
+    this.passTimer =
+        Timer.builder("player_snapshots.compaction")
+            .description("Time spent compacting player snapshots")
+            .register(meterRegistry);
+  }
+
+  @Scheduled(
+      cron = "${clan-data.retention.cron:0 30 3 * * *}",
+      scheduler = SchedulingConfig.RETENTION_SCHEDULER)
+  public void run() {
+    if (!enabled) {
+      return;
+    }
+    if (!snapshotCache.tryLock(LOCK_KEY, lockTtl)) {
+      log.info("Snapshot retention already running on another node; skipping");
+      return;
+    }
+    Timer.Sample sample = Timer.start();
+    try {
+      long deleted = compact();
+      log.info("Snapshot retention removed {} rows", deleted);
+    } catch (Exception e) {
+      log.error("Snapshot retention failed", e);
+    } finally {
+      sample.stop(passTimer);
+      snapshotCache.unlock(LOCK_KEY);
+    }
+  }
+
+  /**
+   * Run one compaction pass.
+   *
+   * @return the number of snapshots deleted
+   */
+  long compact() {
+    LocalDateTime oldest = playerSnapshotRepository.findOldestTs();
+    if (oldest == null) {
+      return 0;
+    }
+
+    LocalDate today = LocalDate.now(clock);
+    LocalDate rawStart = today.minusDays(rawDays);
+    LocalDate hourlyStart = today.minusDays(hourlyDays);
+
+    LocalDate day = oldest.toLocalDate();
+    if (dailyCompactedBefore != null && dailyCompactedBefore.isAfter(day)) {
+      day = dailyCompactedBefore;
+    }
+
+    long deleted = 0;
+    for (; day.isBefore(rawStart); day = day.plusDays(1)) {
+      if (day.isBefore(hourlyStart)) {
+        deleted += compactDay(day, DAY, dailyCompacted);
+      } else {
+        deleted += compactDay(day, HOUR, hourlyCompacted);
+      }
+    }
+    dailyCompactedBefore = hourlyStart;
+    return deleted;
+  }
+
+  private long compactDay(LocalDate day, String bucket, Counter counter) {
+    LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+    long deleted = 0;
+    for (LocalDateTime from = day.atStartOfDay(); from.isBefore(dayEnd); from = from.plusHours(1)) {
+      LocalDateTime to = from.plusHours(1);
+      LocalDateTime bucketEnd = HOUR.equals(bucket) ? to : dayEnd;
+      deleted += playerSnapshotRepository.deleteSupersededInBucket(from, to, bucketEnd);
+    }
+
+    if (deleted > 0) {
+      counter.increment(deleted);
+      log.debug("Compacted {} snapshots on {} to one per {}", deleted, day, bucket);
+    }
+    return deleted;
+  }
+
+  private static Counter compactedCounter(MeterRegistry meterRegistry, String bucket) {
+    return Counter.builder("player_snapshots.compacted")
+        .description("Player snapshots removed by downsampling")
+        .tag("resolution", bucket)
+        .register(meterRegistry);
+  }
+}
@@ -1,10 +1,20 @@
 package com.clanboards.clashdata.service;
 
 import com.clanboards.clashdata.entity.PlayerSnapshot;
+import com.clanboards.clashdata.entity.PlayerSnapshotDaily;
+import com.clanboards.clashdata.repository.PlayerSnapshotDailyRepository;
 import com.clanboards.clashdata.repository.PlayerSnapshotRepository;
 import com.clanboards.clashdata.util.TagUtils;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,10 +22,20 @@ import org.springframework.stereotype.Service;
 public class PlayerSnapshotService {
 
   private final PlayerSnapshotRepository playerSnapshotRepository;
+  private final PlayerSnapshotDailyRepository dailyRepository;
+  private final PlayerHistoryCache historyCache;
+  private final Clock clock;
 
   @Autowired
-  public PlayerSnapshotService(PlayerSnapshotRepository playerSnapshotRepository) {
+  public PlayerSnapshotService(
+      PlayerSnapshotRepository playerSnapshotRepository,
+      PlayerSnapshotDailyRepository dailyRepository,
+      PlayerHistoryCache historyCache,
+      Clock clock) {
     this.playerSnapshotRepository = playerSnapshotRepository;
+    this.dailyRepository = dailyRepository;
+    this.historyCache = historyCache;
+    this.clock = clock;
   }
 
   public List<PlayerSnapshot> getPlayerHistory(String playerTag) {
@@ -23,18 +43,190 @@ public class PlayerSnapshotService {
   }
 
   public List<PlayerSnapshot> getPlayerHistory(String playerTag, int days) {
-    String normalizedPlayerTag = TagUtils.normalizeTag(playerTag);
-    if (!normalizedPlayerTag.startsWith("#")) {
-      normalizedPlayerTag = "#" + normalizedPlayerTag;
-    }
+    String normalizedPlayerTag = toSnapshotTag(playerTag);
 
-    LocalDateTime cutoff = LocalDateTime.now().minusDays(days);
+    LocalDateTime cutoff = LocalDateTime.now(clock).minusDays(days);
     return playerSnapshotRepository.findByPlayerTagAndTsAfterOrderByTsAsc(
         normalizedPlayerTag, cutoff);
   }
 
+  public PlayerHistory getPlayerSeries(String playerTag, int days) {
+    String normalizedPlayerTag = toSnapshotTag(playerTag);
+    PlayerHistory series =
+        getPlayerSeries(List.of(normalizedPlayerTag), days).get(normalizedPlayerTag);
+    return series != null ? series : PlayerHistory.empty();
+  }
+
+  /**
+   * Columnar history for several players, served from {@link PlayerHistoryCache}.
+   *
+   * <p>Players whose cached buffer is current cost no query. Players not cached yet are loaded
+   * with one query over the whole window, and the remaining cached players with one query for the
+   * rows after the oldest of their last points.
+   *
+   * @param playerTags player tags, with or without the leading '#'
+   * @param days size of the window in days, capped at the cache window
+   * @return histories keyed by the player tag stored on the snapshot rows; players without points
+   *     in the window are absent
+   */
+  public Map<String, PlayerHistory> getPlayerSeries(Collection<String> playerTags, int days) {
+    Map<String, PlayerHistory> series = new LinkedHashMap<>();
+    if (playerTags == null || playerTags.isEmpty()) {
+      return series;
+    }
+
+    LocalDateTime now = LocalDateTime.now(clock);
+    LocalDateTime windowStart = now.minusDays(historyCache.windowDays());
+    long nowEpoch = PlayerHistory.toEpoch(now);
+    long windowCutoff = PlayerHistory.toEpoch(windowStart);
+    long staleBefore = nowEpoch - historyCache.recheckSeconds();
+
+    Map<String, PlayerHistoryBuffer> buffers = new LinkedHashMap<>();
+    Set<String> unloaded = new LinkedHashSet<>();
+    Set<String> behind = new LinkedHashSet<>();
+    long tailFrom = Long.MAX_VALUE;
+    for (String playerTag : playerTags) {
+      String normalizedPlayerTag = toSnapshotTag(playerTag);
+      PlayerHistoryBuffer buffer = historyCache.getOrCreate(normalizedPlayerTag);
+      buffers.put(normalizedPlayerTag, buffer);
+      if (!buffer.isLoaded()) {
+        unloaded.add(normalizedPlayerTag);
+      } else if (!buffer.isCurrent(staleBefore, windowCutoff)) {
+        behind.add(normalizedPlayerTag);
+        tailFrom = Math.min(tailFrom, Math.max(buffer.lastTs(), windowCutoff));
+      }
+    }
+
+    if (!unloaded.isEmpty()) {
+      sync(buffers, unloaded, windowStart, windowCutoff, nowEpoch);
+    }
+    if (!behind.isEmpty()) {
+      sync(buffers, behind, PlayerHistory.fromEpoch(tailFrom), windowCutoff, nowEpoch);
+    }
+
+    long requestCutoff = PlayerHistory.toEpoch(now.minusDays(days));
+    for (Map.Entry<String, PlayerHistoryBuffer> entry : buffers.entrySet()) {
+      PlayerHistory window = entry.getValue().since(requestCutoff);
+      if (!window.isEmpty()) {
+        series.put(entry.getKey(), window);
+      }
+    }
+    return series;
+  }
+
+  /**
+   * Load rows after {@code since} for {@code playerTags} with one query and append them to their
+   * buffers. Players without rows are still marked synced.
+   */
+  private void sync(
+      Map<String, PlayerHistoryBuffer> buffers,
+      Set<String> playerTags,
+      LocalDateTime since,
+      long windowCutoff,
+      long syncedAt) {
+    Map<String, List<PlayerSnapshot>> rows = new HashMap<>();
+    for (PlayerSnapshot row :
+        playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            playerTags, since)) {
+      rows.computeIfAbsent(row.getPlayerTag(), k -> new ArrayList<>()).add(row);
+    }
+    // Rows some players already hold are skipped by append
+    for (String playerTag : playerTags) {
+      buffers
+          .get(playerTag)
+          .append(rows.getOrDefault(playerTag, List.of()), windowCutoff, syncedAt);
+    }
+  }
+
+  public PlayerHistory getPlayerSeries(String playerTag, int days, HistoryResolution resolution) {
+    return resolution == HistoryResolution.DAILY
+        ? getDailySeries(playerTag, days)
+        : getPlayerSeries(playerTag, days);
+  }
+
+  /** Columnar history for several players at the requested resolution. */
+  public Map<String, PlayerHistory> getPlayerSeries(
+      Collection<String> playerTags, int days, HistoryResolution resolution) {
+    return resolution == HistoryResolution.DAILY
+        ? getDailySeries(playerTags, days)
+        : getPlayerSeries(playerTags, days);
+  }
+
+  public PlayerHistory getDailySeries(String playerTag, int days) {
+    String normalizedPlayerTag = toSnapshotTag(playerTag);
+    PlayerHistory series =
+        getDailySeries(List.of(normalizedPlayerTag), days).get(normalizedPlayerTag);
+    return series != null ? series : PlayerHistory.empty();
+  }
+
+  /**
+   * History with one point per day for several players, read from the daily rollups in one query.
+   * A 30-day window costs at most 31 rows per player however often the player is polled.
+   *
+   * @param playerTags player tags, with or without the leading '#'
+   * @param days size of the window in days
+   * @return histories keyed by the player tag stored on the rollup rows; players without points in
+   *     the window are absent
+   */
+  public Map<String, PlayerHistory> getDailySeries(Collection<String> playerTags, int days) {
+    Map<String, PlayerHistory> series = new LinkedHashMap<>();
+    if (playerTags == null || playerTags.isEmpty()) {
+      return series;
+    }
+
+    Set<String> normalizedTags = new LinkedHashSet<>();
+    for (String playerTag : playerTags) {
+      normalizedTags.add(toSnapshotTag(playerTag));
+    }
+
+    LocalDateTime cutoff = LocalDateTime.now(clock).minusDays(days);
+    Map<String, List<PlayerSnapshotDaily>> rows = new LinkedHashMap<>();
+    for (PlayerSnapshotDaily row :
+        dailyRepository.findByPlayerTagInAndDayGreaterThanEqualOrderByPlayerTagAscDayAsc(
+            normalizedTags, cutoff.toLocalDate())) {
+      // The cutoff day is only partly inside the window; keep it if its last point is
+      if (row.getLastTs().isAfter(cutoff)) {
+        rows.computeIfAbsent(row.getPlayerTag(), k -> new ArrayList<>()).add(row);
+      }
+    }
+
+    for (Map.Entry<String, List<PlayerSnapshotDaily>> entry : rows.entrySet()) {
+      series.put(entry.getKey(), PlayerHistory.ofDaily(entry.getValue()));
+    }
+    return series;
+  }
+
+  public PlayerSnapshot getLatestSnapshot(String playerTag) {
+    PlayerSnapshot latest =
+        playerSnapshotRepository.findTopByPlayerTagOrderByTsDesc(toSnapshotTag(playerTag));
+    noteLatest(latest);
+    return latest;
+  }
+
   public List<PlayerSnapshot> getLatestSnapshotsForClan(String clanTag) {
     String normalizedClanTag = TagUtils.normalizeTag(clanTag);
-    return playerSnapshotRepository.findLatestSnapshotsForClan(normalizedClanTag);
+    List<PlayerSnapshot> latest =
+        playerSnapshotRepository.findLatestSnapshotsForClan(normalizedClanTag);
+    latest.forEach(this::noteLatest);
+    return latest;
+  }
+
+  // A newer snapshot than a cached history holds means that history is no longer current
+  private void noteLatest(PlayerSnapshot latest) {
+    if (latest == null || latest.getTs() == null) {
+      return;
+    }
+    PlayerHistoryBuffer buffer = historyCache.get(latest.getPlayerTag());
+    if (buffer != null) {
+      buffer.noteLatest(PlayerHistory.toEpoch(latest.getTs()));
+    }
+  }
+
+  private static String toSnapshotTag(String playerTag) {
+    String normalizedPlayerTag = TagUtils.normalizeTag(playerTag);
+    if (!normalizedPlayerTag.startsWith("#")) {
+      normalizedPlayerTag = "#" + normalizedPlayerTag;
+    }
+    return normalizedPlayerTag;
   }
 }
@@ -0,0 +1,147 @@
+package com.clanboards.clashdata.service;
+
+/**
+ * Risk scoring over primitive inputs. Writes into a caller-owned {@link RiskScore} and allocates
+ * nothing, so a clan can be scored with one result object and one {@link RiskWeights}.
+ *
+ * <p>Times are epoch seconds of naive timestamps, matching {@link PlayerHistory}. A missing war
+ * is {@link PlayerHistory#NONE} attacks used.
+ */
+public final class RiskKernel {
+
+  /** Components per member, in order: war, idle, donation deficit, donation drop. */
+  public static final int COMPONENTS = 4;
+
+  static final int MAX_SCORE = 100;
+  private static final long DAY_SECONDS = 86_400;
+
+  private RiskKernel() {}
+
+  /** Score a materialized state at time {@code now}. */
+  public static RiskScore score(
+      PlayerRiskState state, long now, RiskWeights weights, RiskScore out) {
+    return score(
+        state.warMissPct(),
+        state.warUsed() != null ? state.warUsed() : PlayerHistory.NONE,
+        state.warCap(),
+        state.warTs() != null ? PlayerHistory.toEpoch(state.warTs()) : PlayerHistory.NO_TIME,
+        PlayerHistory.toEpoch(state.lastActivity()),
+        state.deficitRisk(),
+        state.dropRisk(),
+        now,
+        weights,
+        out);
+  }
+
+  /**
+   * Score one player.
+   *
+   * @param warMissPct share of attacks missed in the latest war
+   * @param warUsed attacks used in the latest war, or {@link PlayerHistory#NONE}
+   * @param warCap attack cap the miss share was computed against
+   * @param warTs time of the latest war snapshot
+   * @param lastActivity last time the player was seen doing something
+   * @param deficitRisk donation deficit component in [0, 1]
+   * @param dropRisk donation drop component in [0, 1]
+   * @param now current time
+   * @return {@code out}, filled in
+   */
+  public static RiskScore score(
+      double warMissPct,
+      int warUsed,
+      int warCap,
+      long warTs,
+      long lastActivity,
+      double deficitRisk,
+      double dropRisk,
+      long now,
+      RiskWeights weights,
+      RiskScore out) {
+    double warPct = warPercentage(warMissPct, warUsed, warTs, now);
+    int idleDays = idleDays(lastActivity, now);
+    double idlePct = idlePercentage(idleDays);
+
+    double rawScore =
+        weights.war() * warPct
+            + weights.idle() * idlePct
+            + weights.donationDeficit() * deficitRisk
+            + weights.donationDrop() * dropRisk;
+
+    out.score = (int) Math.round(rawScore * MAX_SCORE);
+    out.warPoints = points(weights.war(), warPct);
+    out.idlePoints = points(weights.idle(), idlePct);
+    out.deficitPoints = points(weights.donationDeficit(), deficitRisk);
+    out.dropPoints = points(weights.donationDrop(), dropRisk);
+    out.warUsed = warUsed;
+    out.warCap = warCap;
+    out.idleDays = idleDays;
+    out.lastActivity = lastActivity;
+    return out;
+  }
+
+  /**
+   * Write the four weighted-score inputs of a materialized state to {@code out[offset..offset+3]}
+   * in {@link #COMPONENTS} order, each in [0, 1].
+   */
+  public static void components(PlayerRiskState state, long now, double[] out, int offset) {
+    int warUsed = state.warUsed() != null ? state.warUsed() : PlayerHistory.NONE;
+    long warTs =
+        state.warTs() != null ? PlayerHistory.toEpoch(state.warTs()) : PlayerHistory.NO_TIME;
+    out[offset] = warPercentage(state.warMissPct(), warUsed, warTs, now);
+    out[offset + 1] = idlePercentage(idleDays(PlayerHistory.toEpoch(state.lastActivity()), now));
+    out[offset + 2] = state.deficitRisk();
+    out[offset + 3] = state.dropRisk();
+  }
+
+  /**
+   * Score every member under every weight profile: the product of a {@code members x COMPONENTS}
+   * component matrix and a {@code profiles x COMPONENTS} weight matrix, both row-major. Each score
+   * is rounded exactly as {@link #score} rounds it.
+   *
+   * @return {@code profiles x members} scores, row-major
+   */
+  public static int[] scoreAll(double[] components, int members, double[] weights, int profiles) {
+    int[] scores = new int[profiles * members];
+    for (int p = 0; p < profiles; p++) {
+      int w = p * COMPONENTS;
+      double war = weights[w];
+      double idle = weights[w + 1];
+      double deficit = weights[w + 2];
+      double drop = weights[w + 3];
+      int row = p * members;
+      for (int m = 0; m < members; m++) {
+        int c = m * COMPONENTS;
+        double rawScore =
+            war * components[c]
+                + idle * components[c + 1]
+                + deficit * components[c + 2]
+                + drop * components[c + 3];
+        scores[row + m] = (int) Math.round(rawScore * MAX_SCORE);
+      }
+    }
+    return scores;
+  }
+
+  private static double warPercentage(double warMissPct, int warUsed, long warTs, long now) {
+    if (warUsed == PlayerHistory.NONE) {
+      return 0.0;
+    }
+    // Don't penalize if war is still in progress (less than 24 hours ago and 0 attacks)
+    return warUsed == 0 && now - warTs < DAY_SECONDS ? 0.0 : warMissPct;
+  }
+
+  private static int idleDays(long lastActivity, long now) {
+    return (int) ((now - lastActivity) / DAY_SECONDS);
+  }
+
+  static double idlePercentage(int days) {
+    if (days >= 4) return 1.0;
+    if (days == 3) return 0.75;
+    if (days == 2) return 0.50;
+    return 0.0;
+  }
+
+  private static int points(double weight, double pct) {
+    return (int) Math.round(weight * pct * MAX_SCORE);
+  }
+}
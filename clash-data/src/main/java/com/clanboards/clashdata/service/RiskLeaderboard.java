@@ -0,0 +1,118 @@
+package com.clanboards.clashdata.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the latest default-weight risk score of every member of the tracked clans.
+ *
+ * <p>Each clan's members sit in a skip list ordered by score, highest first, so a query over a set
+ * of clans walks only the entries inside its score range and stops after {@code limit} per clan.
+ * A clan is re-indexed as a whole, which also drops members who have left it.
+ */
+@Component
+public class RiskLeaderboard {
+
+  /** One indexed player; clan tags are normalized without {@code #}. */
+  public record Entry(String playerTag, String clanTag, String name, int score) {}
+
+  // Highest score first; player tag breaks ties so distinct players never collide
+  private static final Comparator<Entry> BY_SCORE =
+      Comparator.comparingInt(Entry::score).reversed().thenComparing(Entry::playerTag);
+
+  private final ConcurrentMap<String, NavigableSet<Entry>> clans = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, String> playerClans = new ConcurrentHashMap<>();
+
+  /** Replace everything indexed for {@code clanTag} with its current members. */
+  public void indexClan(String clanTag, Collection<Entry> members) {
+    NavigableSet<Entry> index = new ConcurrentSkipListSet<>(BY_SCORE);
+    index.addAll(members);
+    NavigableSet<Entry> previous = clans.put(clanTag, index);
+
+    Set<String> current = new HashSet<>();
+    for (Entry entry : members) {
+      current.add(entry.playerTag());
+      String oldClan = playerClans.put(entry.playerTag(), clanTag);
+      if (oldClan != null && !oldClan.equals(clanTag)) {
+        // The player moved clans; drop their entry from the old one
+        NavigableSet<Entry> old = clans.get(oldClan);
+        if (old != null) {
+          old.removeIf(e -> e.playerTag().equals(entry.playerTag()));
+        }
+      }
+    }
+    if (previous != null) {
+      for (Entry entry : previous) {
+        if (!current.contains(entry.playerTag())) {
+          playerClans.remove(entry.playerTag(), clanTag);
+        }
+      }
+    }
+  }
+
+  public void removeClan(String clanTag) {
+    NavigableSet<Entry> removed = clans.remove(clanTag);
+    if (removed != null) {
+      for (Entry entry : removed) {
+        playerClans.remove(entry.playerTag(), clanTag);
+      }
+    }
+  }
+
+  public boolean tracks(String clanTag) {
+    return clans.containsKey(clanTag);
+  }
+
+  public Set<String> trackedClans() {
+    return Set.copyOf(clans.keySet());
+  }
+
+  /**
+   * Members of {@code clanTags} scoring within {@code [minScore, maxScore]}, highest first with
+   * ties ordered by player tag. Untracked clans are skipped.
+   *
+   * @param limit maximum number of entries, or 0 for no limit
+   */
+  public List<Entry> top(Collection<String> clanTags, int minScore, int maxScore, int limit) {
+    List<Entry> result = new ArrayList<>();
+    if (minScore > maxScore) {
+      return result;
+    }
+
+    // Bounds sort before every real entry of their score, so "from" is inclusive of maxScore
+    // and "to" excludes everything below minScore
+    Entry from = new Entry("", null, null, maxScore);
+    Entry to = new Entry("", null, null, minScore - 1);
+    for (String clanTag : new LinkedHashSet<>(clanTags)) {
+      NavigableSet<Entry> index = clans.get(clanTag);
+      if (index == null) {
+        continue;
+      }
+      int taken = 0;
+      for (Entry entry : index.subSet(from, true, to, false)) {
+        if (limit > 0 && taken == limit) {
+          break;
+        }
+        result.add(entry);
+        taken++;
+      }
+    }
+
+    // At most limit entries per clan, so this sort stays small
+    result.sort(BY_SCORE);
+    if (limit > 0 && result.size() > limit) {
+      return new ArrayList<>(result.subList(0, limit));
+    }
+    return result;
+  }
+}
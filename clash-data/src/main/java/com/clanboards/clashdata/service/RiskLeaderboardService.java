@@ -0,0 +1,295 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.events.ClanSnapshotRebuiltEvent;
+import com.clanboards.clashdata.util.TagUtils;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Answers "who is most at risk across these clans" from {@link RiskLeaderboard}.
+ *
+ * <p>Clans are indexed on a small background pool. A clan asked for the first time is indexed
+ * there while the query waits up to the cold timeout, and it is tracked only once indexing
+ * succeeds. Tracked clans are re-indexed when {@link SnapshotService} rebuilds their snapshot with
+ * a newer timestamp than the last one indexed, and the periodic refresh only asks for those
+ * snapshots, so clans whose data has not moved cost a cache read. Indexing reads members through
+ * {@link RiskService#scoreClanMembers}, which never rebuilds the snapshot itself. At most {@code
+ * max-clans} clans are tracked; the least recently queried one is dropped first, as is any clan
+ * nobody has asked for within the idle window.
+ */
+@Service
+public class RiskLeaderboardService {
+
+  private static final Logger log = LoggerFactory.getLogger(RiskLeaderboardService.class);
+
+  private final RiskService riskService;
+  private final SnapshotService snapshotService;
+  private final RiskLeaderboard leaderboard;
+  private final Clock clock;
+  private final Duration idleTtl;
+  private final int maxClans;
+  private final long coldTimeoutMs;
+  // Last query time per tracked clan, least recently queried first; guarded by itself
+  private final LinkedHashMap<String, Instant> lastQueried = new LinkedHashMap<>(16, 0.75f, true);
+  // Newest snapshot timestamp each tracked clan was indexed for; guarded by lastQueried
+  private final Map<String, LocalDateTime> indexedTs = new HashMap<>();
+  private final Map<String, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+  private final ThreadPoolExecutor executor;
+
+  public RiskLeaderboardService(
+      RiskService riskService,
+      SnapshotService snapshotService,
+      RiskLeaderboard leaderboard,
+      Clock clock,
+      @Value("${clan-data.leaderboard.idle-hours:24}") long idleHours,
+      @Value("${clan-data.leaderboard.max-clans:5000}") int maxClans,
+      @Value("${clan-data.leaderboard.cold-timeout-ms:2000}") long coldTimeoutMs,
+      @Value("${clan-data.leaderboard.index-threads:2}") int threads,
+      @Value("${clan-data.leaderboard.index-queue-size:1000}") int queueSize) {
+    this.riskService = riskService;
+    this.snapshotService = snapshotService;
+    this.leaderboard = leaderboard;
+    this.clock = clock;
+    this.idleTtl = Duration.ofHours(idleHours);
+    this.maxClans = maxClans;
+    this.coldTimeoutMs = coldTimeoutMs;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "leaderboard-index-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Members of the given clans scoring within {@code [minScore, maxScore]} with default weights,
+   * highest first. Clans that cannot be indexed within the cold timeout are left out.
+   *
+   * @param limit maximum number of members, or 0 for no limit
+   * @return one map per member with {@code player_tag}, {@code clan_tag}, {@code name} and {@code
+   *     risk_score}
+   */
+  public List<Map<String, Object>> getAtRisk(
+      Collection<String> clanTags, int minScore, int maxScore, int limit) {
+    Set<String> normalized = new LinkedHashSet<>();
+    Map<String, CompletableFuture<Boolean>> cold = new LinkedHashMap<>();
+    Instant now = clock.instant();
+    for (String clanTag : clanTags) {
+      String tag = TagUtils.normalizeTag(clanTag);
+      if (!normalized.add(tag)) {
+        continue;
+      }
+      if (!touch(tag, now)) {
+        cold.put(tag, schedule(tag, now, null));
+      }
+    }
+    awaitCold(cold);
+
+    List<Map<String, Object>> results = new ArrayList<>();
+    for (RiskLeaderboard.Entry entry : leaderboard.top(normalized, minScore, maxScore, limit)) {
+      Map<String, Object> member = new HashMap<>();
+      member.put("player_tag", entry.playerTag());
+      member.put("clan_tag", entry.clanTag());
+      member.put("name", entry.name());
+      member.put("risk_score", entry.score());
+      results.add(member);
+    }
+    return results;
+  }
+
+  /**
+   * Re-index a tracked clan once its snapshot has been rebuilt with newer data. Rebuilds of a
+   * snapshot already indexed, such as a stale clan being refreshed again, and other clans are
+   * ignored.
+   */
+  @EventListener
+  public void onClanSnapshotRebuilt(ClanSnapshotRebuiltEvent event) {
+    String clanTag = event.clanTag();
+    synchronized (lastQueried) {
+      if (!lastQueried.containsKey(clanTag)) {
+        return;
+      }
+      LocalDateTime last = indexedTs.get(clanTag);
+      if (last != null && !event.ts().isAfter(last)) {
+        return;
+      }
+    }
+    schedule(clanTag, null, event.ts());
+  }
+
+  /**
+   * Drop idle clans and ask for the snapshots of the rest. Snapshots still fresh in the cache are
+   * left alone; stale ones are rebuilt, which re-indexes their clans.
+   */
+  @Scheduled(
+      fixedDelayString = "${clan-data.leaderboard.refresh-ms:300000}",
+      initialDelayString = "${clan-data.leaderboard.refresh-ms:300000}")
+  public void refresh() {
+    Instant cutoff = clock.instant().minus(idleTtl);
+    List<String> active = new ArrayList<>();
+    synchronized (lastQueried) {
+      Iterator<Map.Entry<String, Instant>> it = lastQueried.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Instant> tracked = it.next();
+        if (tracked.getValue().isBefore(cutoff)) {
+          it.remove();
+          indexedTs.remove(tracked.getKey());
+          leaderboard.removeClan(tracked.getKey());
+        } else {
+          active.add(tracked.getKey());
+        }
+      }
+    }
+    if (active.isEmpty()) {
+      return;
+    }
+    try {
+      snapshotService.getClansJson(active);
+    } catch (Exception e) {
+      log.warn("Failed to refresh snapshots for {} leaderboard clans", active.size(), e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /** Record a query for a tracked clan; false if the clan is not tracked. */
+  private boolean touch(String clanTag, Instant now) {
+    synchronized (lastQueried) {
+      if (!lastQueried.containsKey(clanTag)) {
+        return false;
+      }
+      lastQueried.put(clanTag, now);
+      return true;
+    }
+  }
+
+  /**
+   * Queue a clan for indexing, or join the run already queued for it. A non-null {@code queriedAt}
+   * starts tracking the clan once it is indexed; otherwise the result is kept only if the clan is
+   * still tracked by then. A non-null {@code snapshotTs} is recorded as indexed on success.
+   */
+  private CompletableFuture<Boolean> schedule(
+      String clanTag, Instant queriedAt, LocalDateTime snapshotTs) {
+    CompletableFuture<Boolean> future = new CompletableFuture<>();
+    CompletableFuture<Boolean> existing = pending.putIfAbsent(clanTag, future);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+      executor.execute(
+          () -> {
+            boolean indexed = false;
+            try {
+              indexed = index(clanTag, queriedAt, snapshotTs);
+            } catch (Exception e) {
+              log.warn("Failed to index clan {} for the at-risk leaderboard", clanTag, e);
+            } finally {
+              // Cleared before completing, so a caller woken by the result schedules a fresh run
+              pending.remove(clanTag, future);
+              future.complete(indexed);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      pending.remove(clanTag, future);
+      log.debug("Leaderboard index queue full, skipping clan {}", clanTag);
+      future.complete(false);
+    }
+    return future;
+  }
+
+  private void awaitCold(Map<String, CompletableFuture<Boolean>> cold) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coldTimeoutMs);
+    for (Map.Entry<String, CompletableFuture<Boolean>> entry : cold.entrySet()) {
+      try {
+        entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        // Still indexing in the background; the clan shows up on a later query
+        log.debug("Clan {} not indexed in time for the at-risk leaderboard", entry.getKey());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        // Index failures complete the future normally, so this is not expected
+        log.warn("Failed to index clan {} for the at-risk leaderboard", entry.getKey(), e);
+      }
+    }
+  }
+
+  private boolean index(String clanTag, Instant queriedAt, LocalDateTime snapshotTs) {
+    List<Map<String, Object>> members = riskService.scoreClanMembers(clanTag);
+    List<RiskLeaderboard.Entry> entries = new ArrayList<>(members.size());
+    for (Map<String, Object> member : members) {
+      entries.add(
+          new RiskLeaderboard.Entry(
+              (String) member.get("player_tag"),
+              clanTag,
+              (String) member.get("name"),
+              (Integer) member.get("risk_score")));
+    }
+
+    synchronized (lastQueried) {
+      if (queriedAt != null) {
+        lastQueried.putIfAbsent(clanTag, queriedAt);
+      } else if (!lastQueried.containsKey(clanTag)) {
+        // Evicted or gone idle while indexing
+        return false;
+      }
+      leaderboard.indexClan(clanTag, entries);
+      if (snapshotTs != null) {
+        indexedTs.merge(clanTag, snapshotTs, (a, b) -> a.isAfter(b) ? a : b);
+      }
+      evictOverflow();
+    }
+    log.debug("Indexed {} members of clan {} for the at-risk leaderboard", entries.size(), clanTag);
+    return true;
+  }
+
+  private void evictOverflow() {
+    Iterator<String> it = lastQueried.keySet().iterator();
+    while (lastQueried.size() > maxClans && it.hasNext()) {
+      String evicted = it.next();
+      it.remove();
+      indexedTs.remove(evicted);
+      leaderboard.removeClan(evicted);
+      log.debug("Dropped least recently queried clan {} from the at-risk leaderboard", evicted);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.clanboards.clashdata.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mutable output of {@link RiskKernel}. One instance is meant to be reused across every player in
+ * a request, so scoring allocates nothing per player; copy out the values before scoring the next
+ * one. The human-readable breakdown is only built when {@link #breakdown()} is called.
+ */
+public final class RiskScore {
+
+  int score;
+  int warPoints;
+  int idlePoints;
+  int deficitPoints;
+  int dropPoints;
+  int warUsed;
+  int warCap;
+  int idleDays;
+  long lastActivity;
+
+  public int score() {
+    return score;
+  }
+
+  /** Last activity time in epoch seconds, as in {@link PlayerHistory}. */
+  public long lastActivity() {
+    return lastActivity;
+  }
+
+  public int idleDays() {
+    return idleDays;
+  }
+
+  /** Points contributed by each component with a reason, skipping components worth 0 points. */
+  public List<Map<String, Object>> breakdown() {
+    List<Map<String, Object>> breakdown = new ArrayList<>(4);
+    if (warPoints > 0) {
+      String reason =
+          warUsed == 0 ? "no war attacks used" : "missed " + plural(warCap - warUsed, "war attack");
+      breakdown.add(item(warPoints, reason));
+    }
+    if (idlePoints > 0) {
+      breakdown.add(item(idlePoints, "inactive for " + plural(idleDays, "day")));
+    }
+    if (deficitPoints > 0) {
+      breakdown.add(item(deficitPoints, "donation deficit"));
+    }
+    if (dropPoints > 0) {
+      breakdown.add(item(dropPoints, "donations dropped"));
+    }
+    return breakdown;
+  }
+
+  private static Map<String, Object> item(int points, String reason) {
+    Map<String, Object> item = new HashMap<>();
+    item.put("points", points);
+    item.put("reason", reason);
+    return item;
+  }
+
+  private static String plural(int count, String noun) {
+    return count + " " + noun + (count != 1 ? "s" : "");
+  }
+}
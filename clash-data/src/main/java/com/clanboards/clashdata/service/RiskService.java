@@ -3,11 +3,11 @@ package com.clanboards.clashdata.service;
 import com.clanboards.clashdata.entity.PlayerSnapshot;
 import java.time.Clock;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -16,307 +16,416 @@ public class RiskService {
   private static final Logger logger = LoggerFactory.getLogger(RiskService.class);
 
   // Risk calculation constants
-  private static final Map<String, Double> DEFAULT_WEIGHTS =
-      Map.of(
-          "war", 0.40,
-          "idle", 0.35,
-          "don_deficit", 0.15,
-          "don_drop", 0.10);
-  private static final int MAX_SCORE = 100;
   private static final int WAR_ATTACKS_TOTAL = 2;
   private static final double DEFICIT_CEIL = 0.50;
   private static final double DROP_CEIL = 0.30;
-  private static final int CLAN_WAR_WINDOW = 42;
+  private static final int HISTORY_DAYS = 30;
 
   private final PlayerSnapshotService playerSnapshotService;
   private final SnapshotService snapshotService;
+  private final PlayerRiskStateStore riskStateStore;
   private final Clock clock;
+  private final HistoryResolution historyResolution;
 
   @Autowired
   public RiskService(
-      PlayerSnapshotService playerSnapshotService, SnapshotService snapshotService, Clock clock) {
+      PlayerSnapshotService playerSnapshotService,
+      SnapshotService snapshotService,
+      PlayerRiskStateStore riskStateStore,
+      Clock clock,
+      @Value("${clan-data.risk.history-resolution:raw}") HistoryResolution historyResolution) {
     this.playerSnapshotService = playerSnapshotService;
     this.snapshotService = snapshotService;
+    this.riskStateStore = riskStateStore;
     this.clock = clock;
+    this.historyResolution = historyResolution;
   }
 
   public List<Map<String, Object>> getClanAtRisk(String clanTag, Map<String, Double> weights) {
+    return getClanAtRisk(clanTag, weights, 0, 0);
+  }
+
+  /**
+   * At-risk members of a clan, highest score first. Every member is scored into a primitive array
+   * and the top {@code limit} at or above {@code minScore} are picked with a bounded heap; result
+   * maps and breakdowns are only built for those.
+   *
+   * @param limit maximum number of members to return, or 0 for no limit
+   * @param minScore lowest score to include
+   */
+  public List<Map<String, Object>> getClanAtRisk(
+      String clanTag, Map<String, Double> weights, int limit, int minScore) {
     logger.debug("Getting at-risk members for clan: {}", clanTag);
 
     // Refresh clan snapshot to ensure membership list is current
-    snapshotService.getClan(clanTag);
+    snapshotService.getClanJson(clanTag);
+    return scoreMembers(clanTag, weights, limit, minScore);
+  }
 
+  /**
+   * Every member of a clan with default weights, highest score first. Unlike {@link
+   * #getClanAtRisk} this leaves the cached clan snapshot alone, so it is safe to call from a
+   * reaction to that snapshot being rebuilt.
+   */
+  public List<Map<String, Object>> scoreClanMembers(String clanTag) {
+    return scoreMembers(clanTag, null, 0, 0);
+  }
+
+  private List<Map<String, Object>> scoreMembers(
+      String clanTag, Map<String, Double> weights, int limit, int minScore) {
     // Get latest snapshots for all clan members
     List<PlayerSnapshot> latestSnapshots = playerSnapshotService.getLatestSnapshotsForClan(clanTag);
 
     List<Map<String, Object>> results = new ArrayList<>();
+    if (latestSnapshots.isEmpty()) {
+      return results;
+    }
 
-    for (PlayerSnapshot snapshot : latestSnapshots) {
-      List<PlayerSnapshot> history =
-          playerSnapshotService.getPlayerHistory(snapshot.getPlayerTag(), 30);
+    LocalDateTime now = LocalDateTime.now(clock);
+    Map<String, PlayerRiskState> states =
+        resolveStates(latestSnapshots, now.minusDays(HISTORY_DAYS));
 
-      if (history.isEmpty()) {
+    // Weights, time and the result holder are shared by every member
+    RiskWeights riskWeights = RiskWeights.of(weights);
+    long nowEpoch = PlayerHistory.toEpoch(now);
+    RiskScore score = new RiskScore();
+
+    PlayerSnapshot[] members = new PlayerSnapshot[latestSnapshots.size()];
+    PlayerRiskState[] memberStates = new PlayerRiskState[latestSnapshots.size()];
+    int[] scores = new int[latestSnapshots.size()];
+    int count = 0;
+    for (PlayerSnapshot snapshot : latestSnapshots) {
+      PlayerRiskState state = states.get(snapshot.getPlayerTag());
+      if (state == null) {
         continue;
       }
+      members[count] = snapshot;
+      memberStates[count] = state;
+      scores[count] = RiskKernel.score(state, nowEpoch, riskWeights, score).score();
+      count++;
+    }
 
-      RiskCalculationResult result = calculateRiskScoreWithBreakdown(history, null, weights);
+    for (int i : selectTop(scores, count, limit, minScore)) {
+      RiskKernel.score(memberStates[i], nowEpoch, riskWeights, score);
 
       Map<String, Object> playerRisk = new HashMap<>();
-      playerRisk.put("player_tag", snapshot.getPlayerTag());
-      playerRisk.put("name", snapshot.getName());
-      playerRisk.put("risk_score", result.score);
-      playerRisk.put("last_seen", result.lastSeen.toString() + "Z");
-      playerRisk.put("risk_breakdown", result.breakdown);
+      playerRisk.put("player_tag", members[i].getPlayerTag());
+      playerRisk.put("name", members[i].getName());
+      playerRisk.put("risk_score", score.score());
+      playerRisk.put("last_seen", PlayerHistory.fromEpoch(score.lastActivity()).toString() + "Z");
+      playerRisk.put("risk_breakdown", score.breakdown());
 
       results.add(playerRisk);
     }
 
-    // Sort by risk score descending
-    results.sort(
-        (a, b) -> Integer.compare((Integer) b.get("risk_score"), (Integer) a.get("risk_score")));
-
     logger.debug("Found {} at-risk members for clan: {}", results.size(), clanTag);
     return results;
   }
 
-  public int calculateRiskScore(
-      List<PlayerSnapshot> history,
-      Map<String, List<PlayerSnapshot>> clanHistoryMap,
-      Map<String, Double> weights) {
-    RiskCalculationResult result =
-        calculateRiskScoreWithBreakdown(history, clanHistoryMap, weights);
-    return result.score;
-  }
-
-  private RiskCalculationResult calculateRiskScoreWithBreakdown(
-      List<PlayerSnapshot> history,
-      Map<String, List<PlayerSnapshot>> clanHistoryMap,
-      Map<String, Double> weights) {
-    if (history.isEmpty()) {
-      return new RiskCalculationResult(0, LocalDateTime.now(clock), new ArrayList<>());
-    }
-
-    PlayerSnapshot latest = history.get(history.size() - 1);
-    PlayerSnapshot prev =
-        history.size() < 2
-            ? history.get(0)
-            : (history.size() >= 8 ? history.get(history.size() - 8) : history.get(0));
-
-    // Calculate war risk
-    WarRiskData warRisk = calculateWarRisk(history, clanHistoryMap);
-
-    // Calculate idle risk
-    IdleRiskData idleRisk = calculateIdleRisk(history, latest);
-
-    // Calculate donation deficit risk
-    double deficitRisk = calculateDeficitRisk(latest);
+  /**
+   * Score a clan under several weight profiles at once. Each member's risk components are computed
+   * once, then every profile is applied in a single matrix product.
+   *
+   * @param profiles weight overrides, each overlaid on the defaults as for {@link #getClanAtRisk}
+   * @return {@code members} (tag and name, in a fixed order) and one entry per profile under
+   *     {@code profiles} with the resolved {@code weights}, {@code scores} aligned with {@code
+   *     members}, and {@code ranking}, the member indices ordered by score descending
+   */
+  public Map<String, Object> simulateClanAtRisk(
+      String clanTag, List<Map<String, Double>> profiles) {
+    logger.debug("Simulating {} weight profiles for clan: {}", profiles.size(), clanTag);
 
-    // Calculate donation drop risk
-    double dropRisk = calculateDropRisk(latest, prev);
-
-    // Merge weights
-    Map<String, Double> actualWeights = mergeWeights(weights);
+    // Refresh clan snapshot to ensure membership list is current
+    snapshotService.getClanJson(clanTag);
 
-    // Calculate total score
-    double rawScore =
-        actualWeights.get("war") * warRisk.percentage
-            + actualWeights.get("idle") * idleRisk.percentage
-            + actualWeights.get("don_deficit") * deficitRisk
-            + actualWeights.get("don_drop") * dropRisk;
+    List<PlayerSnapshot> latestSnapshots = playerSnapshotService.getLatestSnapshotsForClan(clanTag);
+    LocalDateTime now = LocalDateTime.now(clock);
+    Map<String, PlayerRiskState> states =
+        resolveStates(latestSnapshots, now.minusDays(HISTORY_DAYS));
+
+    // Members x components, row-major
+    long nowEpoch = PlayerHistory.toEpoch(now);
+    double[] components = new double[latestSnapshots.size() * RiskKernel.COMPONENTS];
+    List<Map<String, Object>> members = new ArrayList<>();
+    for (PlayerSnapshot snapshot : latestSnapshots) {
+      PlayerRiskState state = states.get(snapshot.getPlayerTag());
+      if (state == null) {
+        continue;
+      }
+      RiskKernel.components(state, nowEpoch, components, members.size() * RiskKernel.COMPONENTS);
+      Map<String, Object> member = new HashMap<>();
+      member.put("player_tag", snapshot.getPlayerTag());
+      member.put("name", snapshot.getName());
+      members.add(member);
+    }
 
-    int totalScore = (int) Math.round(rawScore * MAX_SCORE);
+    // Profiles x components, row-major
+    List<RiskWeights> resolved = new ArrayList<>(profiles.size());
+    double[] weights = new double[profiles.size() * RiskKernel.COMPONENTS];
+    for (int p = 0; p < profiles.size(); p++) {
+      RiskWeights profile = RiskWeights.of(profiles.get(p));
+      profile.copyTo(weights, p * RiskKernel.COMPONENTS);
+      resolved.add(profile);
+    }
 
-    // Build breakdown
-    List<Map<String, Object>> breakdown =
-        buildRiskBreakdown(actualWeights, warRisk, idleRisk, deficitRisk, dropRisk);
+    int memberCount = members.size();
+    int[] scores = RiskKernel.scoreAll(components, memberCount, weights, resolved.size());
+
+    List<Map<String, Object>> results = new ArrayList<>(resolved.size());
+    for (int p = 0; p < resolved.size(); p++) {
+      int[] profileScores = Arrays.copyOfRange(scores, p * memberCount, (p + 1) * memberCount);
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("weights", resolved.get(p).toMap());
+      result.put("scores", profileScores);
+      result.put("ranking", selectTop(profileScores, memberCount, 0, Integer.MIN_VALUE));
+      results.add(result);
+    }
 
-    return new RiskCalculationResult(totalScore, idleRisk.lastActivityTime, breakdown);
+    Map<String, Object> simulation = new LinkedHashMap<>();
+    simulation.put("members", members);
+    simulation.put("profiles", results);
+    return simulation;
   }
 
-  private WarRiskData calculateWarRisk(
-      List<PlayerSnapshot> history, Map<String, List<PlayerSnapshot>> clanHistoryMap) {
-    Optional<PlayerSnapshot> latestWarSnap =
-        history.stream()
-            .filter(s -> s.getWarAttacksUsed() != null)
-            .max(
-                Comparator.comparing((PlayerSnapshot s) -> s.getWarAttacksUsed())
-                    .thenComparing(PlayerSnapshot::getTs));
-
-    if (latestWarSnap.isEmpty()) {
-      return new WarRiskData(0.0, null, null, "not in war roster");
+  /**
+   * Score a single player from their materialized risk state, rebuilding the state only when a
+   * newer snapshot has landed since it was stored.
+   *
+   * @return the risk result, or null if the player has no snapshots in the history window
+   */
+  public RiskCalculationResult getPlayerRisk(String playerTag, Map<String, Double> weights) {
+    PlayerSnapshot latest = playerSnapshotService.getLatestSnapshot(playerTag);
+    if (latest == null) {
+      return null;
     }
 
-    PlayerSnapshot warSnap = latestWarSnap.get();
-    int warUsed = warSnap.getWarAttacksUsed();
-    int cap =
-        Math.max(
-            history.stream()
-                .filter(s -> s.getWarAttacksUsed() != null)
-                .mapToInt(PlayerSnapshot::getWarAttacksUsed)
-                .max()
-                .orElse(0),
-            WAR_ATTACKS_TOTAL);
-
-    double warMissPct = Math.max(0.0, Math.min(1.0, (double) (cap - warUsed) / cap));
-
-    // Don't penalize if war is still in progress (less than 24 hours ago and 0 attacks)
-    if (warUsed == 0 && ChronoUnit.HOURS.between(warSnap.getTs(), LocalDateTime.now(clock)) < 24) {
-      warMissPct = 0.0;
+    LocalDateTime cutoff = LocalDateTime.now(clock).minusDays(HISTORY_DAYS);
+    PlayerRiskState state = riskStateStore.get(latest.getPlayerTag());
+    if (state == null || !state.isCurrent(latest.getTs(), cutoff)) {
+      PlayerHistory history =
+          playerSnapshotService.getPlayerSeries(playerTag, HISTORY_DAYS, historyResolution);
+      if (history.isEmpty()) {
+        return null;
+      }
+      state = materialize(history);
+      riskStateStore.put(latest.getPlayerTag(), state);
     }
+    return score(state, weights);
+  }
+
+  public int calculateRiskScore(List<PlayerSnapshot> history, Map<String, Double> weights) {
+    RiskCalculationResult result = calculateRiskScoreWithBreakdown(history, weights);
+    return result.score();
+  }
 
-    // Check if clan is actively warring (simplified - assume active for now)
-    boolean clanActive = true; // Simplified implementation
+  /**
+   * Look up the stored state for every member, loading history in one batch only for members
+   * whose latest snapshot is newer than their stored state or whose state was built from a
+   * snapshot that has since left the history window.
+   */
+  private Map<String, PlayerRiskState> resolveStates(
+      List<PlayerSnapshot> latestSnapshots, LocalDateTime cutoff) {
+    Map<String, PlayerRiskState> states = new HashMap<>();
+    List<String> staleTags = new ArrayList<>();
 
-    if (!clanActive) {
-      warMissPct = 0.0;
+    for (PlayerSnapshot snapshot : latestSnapshots) {
+      if (snapshot.getTs() == null || !snapshot.getTs().isAfter(cutoff)) {
+        continue;
+      }
+      PlayerRiskState state = riskStateStore.get(snapshot.getPlayerTag());
+      if (state != null && state.isCurrent(snapshot.getTs(), cutoff)) {
+        states.put(snapshot.getPlayerTag(), state);
+      } else {
+        staleTags.add(snapshot.getPlayerTag());
+      }
     }
 
-    String reason;
-    if (warUsed == 0) {
-      reason = "no war attacks used";
-    } else {
-      int missed = cap - warUsed;
-      reason = String.format("missed %d war attack%s", missed, missed != 1 ? "s" : "");
+    if (staleTags.isEmpty()) {
+      return states;
     }
 
-    return new WarRiskData(warMissPct, warUsed, cap, reason);
+    logger.debug("Rebuilding risk state for {} members", staleTags.size());
+    Map<String, PlayerHistory> histories =
+        playerSnapshotService.getPlayerSeries(staleTags, HISTORY_DAYS, historyResolution);
+    for (String playerTag : staleTags) {
+      PlayerHistory history = histories.get(playerTag);
+      if (history == null || history.isEmpty()) {
+        continue;
+      }
+      PlayerRiskState state = materialize(history);
+      riskStateStore.put(playerTag, state);
+      states.put(playerTag, state);
+    }
+    return states;
   }
 
-  private IdleRiskData calculateIdleRisk(List<PlayerSnapshot> history, PlayerSnapshot latest) {
-    // Find last activity (last change in trophies or donations, or last_seen)
-    LocalDateTime lastActivity =
-        latest.getLastSeen() != null ? latest.getLastSeen() : latest.getTs();
+  private RiskCalculationResult calculateRiskScoreWithBreakdown(
+      List<PlayerSnapshot> history, Map<String, Double> weights) {
+    if (history.isEmpty()) {
+      return new RiskCalculationResult(0, LocalDateTime.now(clock), new ArrayList<>());
+    }
+    return score(materialize(PlayerHistory.of(history)), weights);
+  }
 
-    for (int i = history.size() - 1; i >= 0; i--) {
-      PlayerSnapshot current = history.get(i);
-      if (i == 0
-          || !Objects.equals(current.getTrophies(), latest.getTrophies())
-          || !Objects.equals(current.getDonations(), latest.getDonations())) {
-        if (current.getLastSeen() != null && current.getLastSeen().isAfter(lastActivity)) {
-          lastActivity = current.getLastSeen();
-        }
-        break;
+  /** Derive the time-independent risk components from a player's history. */
+  PlayerRiskState materialize(PlayerHistory history) {
+    int last = history.size() - 1;
+    int prev = history.size() < 2 ? 0 : (history.size() >= 8 ? history.size() - 8 : 0);
+
+    // Latest war point is the one with the most attacks used, newest on ties
+    int warIdx = -1;
+    int maxWarUsed = 0;
+    for (int i = 0; i <= last; i++) {
+      int used = history.warAttacksUsed(i);
+      if (used == PlayerHistory.NONE) {
+        continue;
+      }
+      if (warIdx < 0 || used >= history.warAttacksUsed(warIdx)) {
+        warIdx = i;
       }
+      maxWarUsed = Math.max(maxWarUsed, used);
     }
 
-    long idleDays = ChronoUnit.DAYS.between(lastActivity, LocalDateTime.now(clock));
-    double idlePct = getIdlePercentageFromDays((int) idleDays);
+    double warMissPct = 0.0;
+    Integer warUsed = null;
+    int cap = WAR_ATTACKS_TOTAL;
+    LocalDateTime warTs = null;
+    if (warIdx >= 0) {
+      warUsed = history.warAttacksUsed(warIdx);
+      warTs = PlayerHistory.fromEpoch(history.ts(warIdx));
+      cap = Math.max(maxWarUsed, WAR_ATTACKS_TOTAL);
+      warMissPct = Math.max(0.0, Math.min(1.0, (double) (cap - warUsed) / cap));
+    }
 
-    return new IdleRiskData(idlePct, (int) idleDays, lastActivity);
+    return new PlayerRiskState(
+        PlayerHistory.fromEpoch(history.ts(last)),
+        PlayerHistory.fromEpoch(history.ts(0)),
+        warMissPct,
+        warUsed,
+        cap,
+        warTs,
+        findLastActivity(history, last),
+        calculateDeficitRisk(history, last),
+        calculateDropRisk(history, last, prev));
   }
 
-  private double getIdlePercentageFromDays(int days) {
-    if (days >= 4) return 1.0;
-    if (days == 3) return 0.75;
-    if (days == 2) return 0.50;
-    return 0.0;
+  /** Apply the current time and the weights to a materialized state. */
+  RiskCalculationResult score(PlayerRiskState state, Map<String, Double> weights) {
+    long now = PlayerHistory.toEpoch(LocalDateTime.now(clock));
+    RiskScore score = RiskKernel.score(state, now, RiskWeights.of(weights), new RiskScore());
+    return new RiskCalculationResult(
+        score.score(), PlayerHistory.fromEpoch(score.lastActivity()), score.breakdown());
   }
 
-  private double calculateDeficitRisk(PlayerSnapshot latest) {
-    double ratio = (double) latest.getDonations() / Math.max(latest.getDonationsReceived(), 1);
-    return Math.max(0.0, Math.min(1.0, (DEFICIT_CEIL - ratio) / DEFICIT_CEIL));
+  /**
+   * Indices of the {@code limit} highest of {@code scores[0..size)} that are at least {@code
+   * minScore}, highest first; ties keep member order. Uses a min-heap of at most {@code limit}
+   * entries, so only the kept members are ever ordered.
+   *
+   * @param limit maximum number of indices, or 0 for no limit
+   */
+  static int[] selectTop(int[] scores, int size, int limit, int minScore) {
+    int capacity = limit > 0 ? Math.min(limit, size) : size;
+    int[] heap = new int[capacity];
+    int heapSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (scores[i] < minScore) {
+        continue;
+      }
+      if (heapSize < capacity) {
+        heap[heapSize] = i;
+        siftUp(heap, heapSize++, scores);
+      } else if (capacity > 0 && ranksBelow(heap[0], i, scores)) {
+        heap[0] = i;
+        siftDown(heap, heapSize, scores);
+      }
+    }
+
+    // Pop the lowest-ranked entry into the back of the result until the heap is empty
+    int[] top = new int[heapSize];
+    for (int n = heapSize; n > 0; n--) {
+      top[n - 1] = heap[0];
+      heap[0] = heap[n - 1];
+      siftDown(heap, n - 1, scores);
+    }
+    return top;
   }
 
-  private double calculateDropRisk(PlayerSnapshot latest, PlayerSnapshot prev) {
-    double dropRatio =
-        (double) (prev.getDonations() - latest.getDonations()) / Math.max(prev.getDonations(), 1);
-    return Math.max(0.0, Math.min(1.0, dropRatio / DROP_CEIL));
+  /** Whether member {@code a} ranks below member {@code b}: a lower score, or later on a tie. */
+  private static boolean ranksBelow(int a, int b, int[] scores) {
+    return scores[a] < scores[b] || (scores[a] == scores[b] && a > b);
   }
 
-  private Map<String, Double> mergeWeights(Map<String, Double> customWeights) {
-    Map<String, Double> weights = new HashMap<>(DEFAULT_WEIGHTS);
-    if (customWeights != null) {
-      for (Map.Entry<String, Double> entry : customWeights.entrySet()) {
-        if (weights.containsKey(entry.getKey()) && entry.getValue() != null) {
-          weights.put(entry.getKey(), entry.getValue());
-        }
+  private static void siftUp(int[] heap, int index, int[] scores) {
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (!ranksBelow(heap[index], heap[parent], scores)) {
+        return;
       }
+      swap(heap, index, parent);
+      index = parent;
     }
-    return weights;
   }
 
-  private List<Map<String, Object>> buildRiskBreakdown(
-      Map<String, Double> weights,
-      WarRiskData warRisk,
-      IdleRiskData idleRisk,
-      double deficitRisk,
-      double dropRisk) {
-    List<Map<String, Object>> breakdown = new ArrayList<>();
-
-    int warPts = (int) Math.round(weights.get("war") * warRisk.percentage * MAX_SCORE);
-    int idlePts = (int) Math.round(weights.get("idle") * idleRisk.percentage * MAX_SCORE);
-    int deficitPts = (int) Math.round(weights.get("don_deficit") * deficitRisk * MAX_SCORE);
-    int dropPts = (int) Math.round(weights.get("don_drop") * dropRisk * MAX_SCORE);
-
-    if (warPts > 0) {
-      Map<String, Object> warBreakdown = new HashMap<>();
-      warBreakdown.put("points", warPts);
-      warBreakdown.put("reason", warRisk.reason);
-      breakdown.add(warBreakdown);
+  private static void siftDown(int[] heap, int size, int[] scores) {
+    int index = 0;
+    while (true) {
+      int lowest = index;
+      int left = 2 * index + 1;
+      int right = left + 1;
+      if (left < size && ranksBelow(heap[left], heap[lowest], scores)) {
+        lowest = left;
+      }
+      if (right < size && ranksBelow(heap[right], heap[lowest], scores)) {
+        lowest = right;
+      }
+      if (lowest == index) {
+        return;
+      }
+      swap(heap, index, lowest);
+      index = lowest;
     }
+  }
 
-    if (idlePts > 0) {
-      Map<String, Object> idleBreakdown = new HashMap<>();
-      idleBreakdown.put("points", idlePts);
-      idleBreakdown.put(
-          "reason",
-          String.format("inactive for %d day%s", idleRisk.days, idleRisk.days != 1 ? "s" : ""));
-      breakdown.add(idleBreakdown);
-    }
+  private static void swap(int[] heap, int i, int j) {
+    int tmp = heap[i];
+    heap[i] = heap[j];
+    heap[j] = tmp;
+  }
 
-    if (deficitPts > 0) {
-      Map<String, Object> deficitBreakdown = new HashMap<>();
-      deficitBreakdown.put("points", deficitPts);
-      deficitBreakdown.put("reason", "donation deficit");
-      breakdown.add(deficitBreakdown);
-    }
+  private LocalDateTime findLastActivity(PlayerHistory history, int last) {
+    // Find last activity (last change in trophies or donations, or last_seen)
+    long lastActivity =
+        history.lastSeen(last) != PlayerHistory.NO_TIME ? history.lastSeen(last) : history.ts(last);
 
-    if (dropPts > 0) {
-      Map<String, Object> dropBreakdown = new HashMap<>();
-      dropBreakdown.put("points", dropPts);
-      dropBreakdown.put("reason", "donations dropped");
-      breakdown.add(dropBreakdown);
+    for (int i = last; i >= 0; i--) {
+      if (i == 0
+          || history.trophies(i) != history.trophies(last)
+          || history.donations(i) != history.donations(last)) {
+        if (history.lastSeen(i) != PlayerHistory.NO_TIME && history.lastSeen(i) > lastActivity) {
+          lastActivity = history.lastSeen(i);
+        }
+        break;
+      }
     }
 
-    return breakdown;
+    return PlayerHistory.fromEpoch(lastActivity);
   }
 
-  // Helper classes for risk calculation data
-  private static class RiskCalculationResult {
-    final int score;
-    final LocalDateTime lastSeen;
-    final List<Map<String, Object>> breakdown;
-
-    RiskCalculationResult(int score, LocalDateTime lastSeen, List<Map<String, Object>> breakdown) {
-      this.score = score;
-      this.lastSeen = lastSeen;
-      this.breakdown = breakdown;
-    }
+  private double calculateDeficitRisk(PlayerHistory history, int last) {
+    double ratio =
+        (double) history.donations(last) / Math.max(history.donationsReceived(last), 1);
+    return Math.max(0.0, Math.min(1.0, (DEFICIT_CEIL - ratio) / DEFICIT_CEIL));
   }
 
-  private static class WarRiskData {
-    final double percentage;
-    final Integer used;
-    final Integer cap;
-    final String reason;
-
-    WarRiskData(double percentage, Integer used, Integer cap, String reason) {
-      this.percentage = percentage;
-      this.used = used;
-      this.cap = cap;
-      this.reason = reason;
-    }
+  private double calculateDropRisk(PlayerHistory history, int last, int prev) {
+    double dropRatio =
+        (double) (history.donations(prev) - history.donations(last))
+            / Math.max(history.donations(prev), 1);
+    return Math.max(0.0, Math.min(1.0, dropRatio / DROP_CEIL));
   }
 
-  private static class IdleRiskData {
-    final double percentage;
-    final int days;
-    final LocalDateTime lastActivityTime;
-
-    IdleRiskData(double percentage, int days, LocalDateTime lastActivityTime) {
-      this.percentage = percentage;
-      this.days = days;
-      this.lastActivityTime = lastActivityTime;
-    }
-  }
+  /** Final score for one player together with the data shown alongside it. */
+  public record RiskCalculationResult(
+      int score, LocalDateTime lastSeen, List<Map<String, Object>> breakdown) {}
 }
@@ -0,0 +1,51 @@
+package com.clanboards.clashdata.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Weights of the four risk components. Resolved once per request and shared by every player
+ * scored in it.
+ */
+public record RiskWeights(double war, double idle, double donationDeficit, double donationDrop) {
+
+  public static final RiskWeights DEFAULT = new RiskWeights(0.40, 0.35, 0.15, 0.10);
+
+  /**
+   * Overlay caller-supplied weights on {@link #DEFAULT}. Recognised keys are {@code war}, {@code
+   * idle}, {@code don_deficit} and {@code don_drop}; other keys and null values are ignored.
+   */
+  public static RiskWeights of(Map<String, Double> custom) {
+    if (custom == null || custom.isEmpty()) {
+      return DEFAULT;
+    }
+    return new RiskWeights(
+        pick(custom, "war", DEFAULT.war),
+        pick(custom, "idle", DEFAULT.idle),
+        pick(custom, "don_deficit", DEFAULT.donationDeficit),
+        pick(custom, "don_drop", DEFAULT.donationDrop));
+  }
+
+  /** Weights keyed as accepted by {@link #of}. */
+  public Map<String, Double> toMap() {
+    Map<String, Double> map = new LinkedHashMap<>();
+    map.put("war", war);
+    map.put("idle", idle);
+    map.put("don_deficit", donationDeficit);
+    map.put("don_drop", donationDrop);
+    return map;
+  }
+
+  /** Write the weights to {@code out[offset..offset+3]} in {@link RiskKernel#COMPONENTS} order. */
+  void copyTo(double[] out, int offset) {
+    out[offset] = war;
+    out[offset + 1] = idle;
+    out[offset + 2] = donationDeficit;
+    out[offset + 3] = donationDrop;
+  }
+
+  private static double pick(Map<String, Double> custom, String key, double fallback) {
+    Double value = custom.get(key);
+    return value != null ? value : fallback;
+  }
+}
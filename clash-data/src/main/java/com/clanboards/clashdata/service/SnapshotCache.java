@@ -0,0 +1,322 @@
+package com.clanboards.clashdata.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Byte-level access to the {@code snapshot:*} Redis keys, fronted by an in-process near cache.
+ *
+ * <p>Values are read and written as the raw UTF-8 JSON bytes so a cache hit can be copied to the
+ * response without being parsed. The snapshot timestamp and the time the entry was written are
+ * kept in companion {@code <key>:ts} and {@code <key>:at} keys (epoch seconds) and fetched in the
+ * same MGET, so freshness checks never need to look inside the body.
+ *
+ * <p>Every entry read from or written to Redis is also kept in a small Caffeine tier, so repeat
+ * lookups of hot keys never leave the process. When a node rewrites a key it publishes the key on
+ * {@link #INVALIDATION_CHANNEL} and the other nodes drop their near copy. Pub/sub delivery is best
+ * effort, so the near TTL bounds how long a node can miss an update.
+ *
+ * <p>Redis round trips are timed as {@code snapshot.cache.redis} and whole lookups, including any
+ * rebuild, as {@code snapshot.cache.lookup}; both are tagged with the key family ({@code clan},
+ * {@code player}, {@code war}), the part of the key after {@code snapshot:}.
+ */
+@Component
+public class SnapshotCache {
+
+  static final String INVALIDATION_CHANNEL = "snapshot:invalidate";
+
+  private static final Logger log = LoggerFactory.getLogger(SnapshotCache.class);
+  private static final String KEY_PREFIX = "snapshot:";
+  private static final String TS_SUFFIX = ":ts";
+  private static final String CACHED_AT_SUFFIX = ":at";
+  private static final String LOCK_SUFFIX = ":lock";
+  private static final RedisScript<Long> UNLOCK_SCRIPT =
+      new DefaultRedisScript<>(
+          "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) "
+              + "else return 0 end",
+          Long.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final Cache<String, Entry> nearCache;
+  private final Clock clock;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final MeterProvider<Timer> redisTimer;
+  private final MeterProvider<Timer> lookupTimer;
+
+  public SnapshotCache(
+      StringRedisTemplate redisTemplate,
+      RedisMessageListenerContainer listenerContainer,
+      Clock clock,
+      MeterRegistry meterRegistry,
+      @Value("${clan-data.snapshot.near-cache.max-size:10000}") long nearMaxSize,
+      @Value("${clan-data.snapshot.near-cache.ttl:10}") int nearTtl) {
+    this.redisTemplate = redisTemplate;
+    this.clock = clock;
+    this.nearCache =
+        Caffeine.newBuilder()
+            .maximumSize(nearMaxSize)
+            .expireAfterWrite(nearTtl, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "snapshot-near");
+    this.redisTimer =
+        Timer.builder("snapshot.cache.redis")
+            .description("Redis round trips for snapshot keys")
+            .publishPercentileHistogram()
+            .withRegistry(meterRegistry);
+    this.lookupTimer =
+        Timer.builder("snapshot.cache.lookup")
+            .description("Snapshot lookups by outcome, including rebuilds on a miss")
+            .publishPercentileHistogram()
+            .withRegistry(meterRegistry);
+    listenerContainer.addMessageListener(
+        (message, pattern) -> onInvalidation(message), new ChannelTopic(INVALIDATION_CHANNEL));
+  }
+
+  /**
+   * Cached body and timestamps for {@code key}.
+   *
+   * @param body raw JSON bytes
+   * @param ts snapshot timestamp in epoch seconds, or null if the companion key is missing
+   * @param cachedAt when the entry was written in epoch seconds, or null if unknown
+   */
+  public record Entry(byte[] body, Long ts, Long cachedAt) {
+
+    /** Seconds since the entry was written; entries with no write time count as new. */
+    public long age(long nowEpoch) {
+      return cachedAt != null ? nowEpoch - cachedAt : 0;
+    }
+  }
+
+  /** How a lookup was answered, as seen by the service that asked. */
+  public enum Outcome {
+    /** Served from the near cache or Redis within the soft TTL. */
+    HIT,
+    /** Served past the soft TTL while a background refresh runs. */
+    STALE,
+    /** Rebuilt from the database, or found nothing. */
+    MISS;
+
+    final String tag = name().toLowerCase(Locale.ROOT);
+  }
+
+  /** Fetch the body and its timestamps in one round trip; returns null on a miss. */
+  public Entry get(String key) {
+    Entry near = nearCache.getIfPresent(key);
+    if (near != null) {
+      return near;
+    }
+
+    long start = System.nanoTime();
+    List<byte[]> values =
+        redisTemplate.execute(
+            (RedisCallback<List<byte[]>>)
+                connection ->
+                    connection
+                        .stringCommands()
+                        .mGet(bytes(key), bytes(key + TS_SUFFIX), bytes(key + CACHED_AT_SUFFIX)));
+    recordRedis(key, "get", start);
+    if (values == null || values.isEmpty() || values.get(0) == null) {
+      return null;
+    }
+    Entry entry =
+        new Entry(
+            values.get(0),
+            values.size() > 1 ? parseTs(key, values.get(1)) : null,
+            values.size() > 2 ? parseTs(key, values.get(2)) : null);
+    nearCache.put(key, entry);
+    return entry;
+  }
+
+  /**
+   * Fetch many entries at once. Keys held in the near cache are served from it and the rest are
+   * read with a single MGET covering every body and companion key.
+   *
+   * @return the entries found, keyed by cache key; misses are left out
+   */
+  public Map<String, Entry> getAll(Collection<String> keys) {
+    Map<String, Entry> found = new HashMap<>(nearCache.getAllPresent(keys));
+    List<String> remote = keys.stream().filter(key -> !found.containsKey(key)).distinct().toList();
+    if (remote.isEmpty()) {
+      return found;
+    }
+
+    byte[][] rawKeys = new byte[remote.size() * 3][];
+    for (int i = 0; i < remote.size(); i++) {
+      String key = remote.get(i);
+      rawKeys[i * 3] = bytes(key);
+      rawKeys[i * 3 + 1] = bytes(key + TS_SUFFIX);
+      rawKeys[i * 3 + 2] = bytes(key + CACHED_AT_SUFFIX);
+    }
+    long start = System.nanoTime();
+    List<byte[]> values =
+        redisTemplate.execute(
+            (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys));
+    // Batches only ever hold one family, so the first key names it
+    recordRedis(remote.get(0), "mget", start);
+    if (values == null || values.size() < rawKeys.length) {
+      return found;
+    }
+
+    for (int i = 0; i < remote.size(); i++) {
+      byte[] body = values.get(i * 3);
+      if (body == null) {
+        continue;
+      }
+      String key = remote.get(i);
+      Entry entry =
+          new Entry(body, parseTs(key, values.get(i * 3 + 1)), parseTs(key, values.get(i * 3 + 2)));
+      nearCache.put(key, entry);
+      found.put(key, entry);
+    }
+    return found;
+  }
+
+  /** Fetch only the body; returns null on a miss. */
+  public byte[] getBody(String key) {
+    Entry entry = get(key);
+    return entry != null ? entry.body() : null;
+  }
+
+  /**
+   * Store the body and its timestamps with the same TTL, pipelined into one round trip.
+   *
+   * @param ts snapshot timestamp in epoch seconds, or null to store the body alone
+   */
+  public void put(String key, byte[] body, Long ts, int ttlSeconds) {
+    Expiration expiration = Expiration.seconds(ttlSeconds);
+    long cachedAt = clock.instant().getEpochSecond();
+    long start = System.nanoTime();
+    redisTemplate.executePipelined(
+        (RedisCallback<Object>)
+            connection -> {
+              RedisStringCommands commands = connection.stringCommands();
+              commands.set(bytes(key), body, expiration, RedisStringCommands.SetOption.upsert());
+              if (ts != null) {
+                commands.set(
+                    bytes(key + TS_SUFFIX),
+                    bytes(Long.toString(ts)),
+                    expiration,
+                    RedisStringCommands.SetOption.upsert());
+              }
+              commands.set(
+                  bytes(key + CACHED_AT_SUFFIX),
+                  bytes(Long.toString(cachedAt)),
+                  expiration,
+                  RedisStringCommands.SetOption.upsert());
+              return null;
+            });
+    recordRedis(key, "put", start);
+    nearCache.put(key, new Entry(body, ts, cachedAt));
+    publishInvalidation(key);
+  }
+
+  /** Store only the body and its write time. */
+  public void putBody(String key, byte[] body, int ttlSeconds) {
+    put(key, body, null, ttlSeconds);
+  }
+
+  /**
+   * Try to take the short-lived rebuild lock for {@code key}. The lock expires on its own after
+   * {@code ttlSeconds}, so a node that dies mid-load cannot block the key.
+   */
+  public boolean tryLock(String key, int ttlSeconds) {
+    Boolean acquired =
+        redisTemplate
+            .opsForValue()
+            .setIfAbsent(key + LOCK_SUFFIX, nodeId, Duration.ofSeconds(ttlSeconds));
+    return Boolean.TRUE.equals(acquired);
+  }
+
+  /** Release the rebuild lock for {@code key} if this node still holds it. */
+  public void unlock(String key) {
+    redisTemplate.execute(UNLOCK_SCRIPT, List.of(key + LOCK_SUFFIX), nodeId);
+  }
+
+  /**
+   * Record a finished lookup of {@code key}.
+   *
+   * @param startNanos {@link System#nanoTime()} when the caller started resolving the key
+   */
+  public void recordLookup(String key, Outcome outcome, long startNanos) {
+    lookupTimer
+        .withTags("family", family(key), "outcome", outcome.tag)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void recordRedis(String key, String op, long startNanos) {
+    redisTimer
+        .withTags("family", family(key), "op", op)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** {@code clan} for {@code snapshot:clan:ABC}; keys outside the namespace count as "other". */
+  static String family(String key) {
+    if (!key.startsWith(KEY_PREFIX)) {
+      return "other";
+    }
+    int end = key.indexOf(':', KEY_PREFIX.length());
+    return end > 0 ? key.substring(KEY_PREFIX.length(), end) : "other";
+  }
+
+  private void publishInvalidation(String key) {
+    try {
+      redisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + " " + key);
+    } catch (Exception e) {
+      log.warn("Failed to publish cache invalidation for key: {}", key, e);
+    }
+  }
+
+  private void onInvalidation(Message message) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ", 2);
+    if (parts.length < 2 || parts[0].equals(nodeId)) {
+      // Our own write already replaced the near entry
+      return;
+    }
+    log.debug("Dropping near cache entry for key: {}", parts[1]);
+    nearCache.invalidate(parts[1]);
+  }
+
+  private static Long parseTs(String key, byte[] raw) {
+    if (raw == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(new String(raw, StandardCharsets.US_ASCII));
+    } catch (NumberFormatException e) {
+      log.warn("Invalid timestamp stored for cache key: {}", key);
+      return null;
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
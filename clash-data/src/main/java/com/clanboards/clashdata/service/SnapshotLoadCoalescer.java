@@ -0,0 +1,186 @@
+package com.clanboards.clashdata.service;
+
+import com.clanboards.clashdata.util.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure a missing snapshot entry is rebuilt once rather than once per concurrent request.
+ *
+ * <p>Within a node, callers missing the same key share one loader run. When the distributed lock
+ * is enabled, nodes also race for a short Redis lock per key; the losers poll the cache until the
+ * winner has written the entry and only load themselves if it has not appeared by the wait limit.
+ *
+ * <p>{@link #refreshAsync} rebuilds an entry in the background for stale-while-revalidate serving.
+ * At most one refresh per key is queued, and refreshes are dropped when the pool is saturated; the
+ * next stale read simply schedules another.
+ */
+@Component
+public class SnapshotLoadCoalescer {
+
+  private static final Logger log = LoggerFactory.getLogger(SnapshotLoadCoalescer.class);
+  private static final long POLL_INTERVAL_MS = 50;
+
+  private final SnapshotCache snapshotCache;
+  private final SingleFlight singleFlight = new SingleFlight();
+  private final boolean lockEnabled;
+  private final int lockTtl;
+  private final long lockWaitMs;
+  private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor refreshExecutor;
+
+  public SnapshotLoadCoalescer(
+      SnapshotCache snapshotCache,
+      @Value("${clan-data.snapshot.lock.enabled:false}") boolean lockEnabled,
+      @Value("${clan-data.snapshot.lock.ttl:5}") int lockTtl,
+      @Value("${clan-data.snapshot.lock.wait-ms:2000}") long lockWaitMs,
+      @Value("${clan-data.snapshot.refresh.threads:4}") int refreshThreads,
+      @Value("${clan-data.snapshot.refresh.queue-size:1000}") int refreshQueueSize) {
+    this.snapshotCache = snapshotCache;
+    this.lockEnabled = lockEnabled;
+    this.lockTtl = lockTtl;
+    this.lockWaitMs = lockWaitMs;
+    AtomicInteger threadCount = new AtomicInteger();
+    this.refreshExecutor =
+        new ThreadPoolExecutor(
+            refreshThreads,
+            refreshThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(refreshQueueSize),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "snapshot-refresh-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Load the entry for {@code cacheKey}, coalescing with any load already in progress.
+   *
+   * @param cacheKey snapshot cache key being rebuilt
+   * @param cached reads a usable cached value, or null; polled while another node holds the lock
+   * @param loader rebuilds the value and writes it to the cache
+   */
+  public <T> T load(String cacheKey, Supplier<T> cached, Supplier<T> loader) {
+    return singleFlight.execute(cacheKey, () -> loadOnce(cacheKey, cached, loader));
+  }
+
+  /**
+   * Rebuild the entry for {@code cacheKey} in the background unless a refresh for it is already
+   * queued or running. The caller keeps serving the value it already has.
+   */
+  public <T> void refreshAsync(String cacheKey, Supplier<T> loader) {
+    if (!pendingRefreshes.add(cacheKey)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(
+          () -> {
+            try {
+              refreshOnce(cacheKey, loader);
+            } catch (Exception e) {
+              log.warn("Background refresh failed for key: {}", cacheKey, e);
+            } finally {
+              pendingRefreshes.remove(cacheKey);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      pendingRefreshes.remove(cacheKey);
+      log.debug("Refresh queue full, skipping background refresh for key: {}", cacheKey);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+
+  private <T> T loadOnce(String cacheKey, Supplier<T> cached, Supplier<T> loader) {
+    if (!lockEnabled) {
+      return loader.get();
+    }
+
+    boolean locked = false;
+    try {
+      locked = snapshotCache.tryLock(cacheKey, lockTtl);
+    } catch (Exception e) {
+      log.warn("Failed to acquire load lock for key: {}", cacheKey, e);
+    }
+    if (locked) {
+      try {
+        return loader.get();
+      } finally {
+        releaseLock(cacheKey);
+      }
+    }
+
+    T value = awaitOtherNode(cacheKey, cached);
+    if (value != null) {
+      return value;
+    }
+    log.debug("Timed out waiting for another node to load key: {}", cacheKey);
+    return loader.get();
+  }
+
+  private <T> void refreshOnce(String cacheKey, Supplier<T> loader) {
+    if (!lockEnabled) {
+      singleFlight.execute(cacheKey, loader);
+      return;
+    }
+
+    boolean locked = false;
+    try {
+      locked = snapshotCache.tryLock(cacheKey, lockTtl);
+    } catch (Exception e) {
+      log.warn("Failed to acquire load lock for key: {}", cacheKey, e);
+    }
+    if (!locked) {
+      // Whoever holds the lock is already rebuilding this key
+      return;
+    }
+    try {
+      singleFlight.execute(cacheKey, loader);
+    } finally {
+      releaseLock(cacheKey);
+    }
+  }
+
+  private <T> T awaitOtherNode(String cacheKey, Supplier<T> cached) {
+    long deadline = System.currentTimeMillis() + lockWaitMs;
+    while (System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(POLL_INTERVAL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      T value = cached.get();
+      if (value != null) {
+        log.debug("Loaded key from another node: {}", cacheKey);
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private void releaseLock(String cacheKey) {
+    try {
+      snapshotCache.unlock(cacheKey);
+    } catch (Exception e) {
+      log.warn("Failed to release load lock for key: {}", cacheKey, e);
+    }
+  }
+}
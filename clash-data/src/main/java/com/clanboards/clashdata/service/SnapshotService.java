@@ -2,29 +2,43 @@ package com.clanboards.clashdata.service;
 
 import com.clanboards.clashdata.entity.Clan;
 import com.clanboards.clashdata.entity.ClanSnapshot;
+import com.clanboards.clashdata.entity.LoyaltyMembership;
 import com.clanboards.clashdata.entity.Player;
 import com.clanboards.clashdata.entity.PlayerSnapshot;
+import com.clanboards.clashdata.events.ClanSnapshotRebuiltEvent;
 import com.clanboards.clashdata.repository.ClanRepository;
+import com.clanboards.clashdata.repository.ClanMemberRow;
 import com.clanboards.clashdata.repository.ClanSnapshotRepository;
 import com.clanboards.clashdata.repository.LoyaltyMembershipRepository;
 import com.clanboards.clashdata.repository.PlayerRepository;
 import com.clanboards.clashdata.repository.PlayerSnapshotRepository;
 import com.clanboards.clashdata.util.TagUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -36,11 +50,18 @@ public class SnapshotService {
   private final PlayerSnapshotRepository playerSnapshotRepository;
   private final PlayerRepository playerRepository;
   private final LoyaltyMembershipRepository loyaltyMembershipRepository;
-  private final StringRedisTemplate redisTemplate;
+  private final SnapshotCache snapshotCache;
+  private final SnapshotLoadCoalescer loadCoalescer;
+  private final AssetPrewarmer assetPrewarmer;
+  private final ApplicationEventPublisher events;
+  private final Clock clock;
   private final ObjectMapper objectMapper;
   private final int cacheTtl;
   private final int staleAfter;
+  private final int hardMaxAge;
 
+  private static final String CLAN_KEY_PREFIX = "snapshot:clan:";
+  private static final String PLAYER_KEY_PREFIX = "snapshot:player:";
   private static final DateTimeFormatter ISO_FORMATTER =
       DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
@@ -50,46 +71,159 @@ public class SnapshotService {
       PlayerSnapshotRepository playerSnapshotRepository,
       PlayerRepository playerRepository,
       LoyaltyMembershipRepository loyaltyMembershipRepository,
-      StringRedisTemplate redisTemplate,
+      SnapshotCache snapshotCache,
+      SnapshotLoadCoalescer loadCoalescer,
+      AssetPrewarmer assetPrewarmer,
+      ApplicationEventPublisher events,
+      Clock clock,
       @Value("${clan-data.snapshot.cache-ttl:60}") int cacheTtl,
-      @Value("${clan-data.snapshot.stale-after:600}") int staleAfter) {
+      @Value("${clan-data.snapshot.stale-after:600}") int staleAfter,
+      @Value("${clan-data.snapshot.hard-max-age:600}") int hardMaxAge) {
     this.clanSnapshotRepository = clanSnapshotRepository;
     this.clanRepository = clanRepository;
     this.playerSnapshotRepository = playerSnapshotRepository;
     this.playerRepository = playerRepository;
     this.loyaltyMembershipRepository = loyaltyMembershipRepository;
-    this.redisTemplate = redisTemplate;
+    this.snapshotCache = snapshotCache;
+    this.loadCoalescer = loadCoalescer;
+    this.assetPrewarmer = assetPrewarmer;
+    this.events = events;
+    this.clock = clock;
     this.objectMapper = new ObjectMapper();
     this.cacheTtl = cacheTtl;
     this.staleAfter = staleAfter;
+    this.hardMaxAge = Math.max(hardMaxAge, cacheTtl);
   }
 
   public JsonNode getClan(String tag) {
+    CachedPayload payload = resolveClan(tag);
+    return payload != null ? payload.asTree(objectMapper) : null;
+  }
+
+  /**
+   * Clan snapshot as serialized JSON. On a cache hit the stored bytes are returned untouched, so
+   * callers can write them straight to the response.
+   */
+  public byte[] getClanJson(String tag) {
+    CachedPayload payload = resolveClan(tag);
+    return payload != null ? payload.body() : null;
+  }
+
+  public JsonNode getPlayer(String playerTag) {
+    CachedPayload payload = resolvePlayer(playerTag);
+    return payload != null ? payload.asTree(objectMapper) : null;
+  }
+
+  /** Player snapshot as serialized JSON, passed through untouched on a cache hit. */
+  public byte[] getPlayerJson(String playerTag) {
+    CachedPayload payload = resolvePlayer(playerTag);
+    return payload != null ? payload.body() : null;
+  }
+
+  /** Cache lifetimes for HTTP clients: fresh for the soft TTL, then stale up to the hard age. */
+  public CacheControl cacheControl() {
+    return CacheControl.maxAge(cacheTtl, TimeUnit.SECONDS)
+        .cachePublic()
+        .staleWhileRevalidate(hardMaxAge - cacheTtl, TimeUnit.SECONDS);
+  }
+
+  private CachedPayload resolveClan(String tag) {
     String normalizedTag = TagUtils.normalizeTag(tag);
     log.debug("Normalized tag '{}' to '{}'", tag, normalizedTag);
 
-    String cacheKey = "snapshot:clan:" + normalizedTag;
-    log.debug("Checking cache with key: {}", cacheKey);
+    String cacheKey = CLAN_KEY_PREFIX + normalizedTag;
+    long start = System.nanoTime();
+    byte[] cachedBody = servableClan(normalizedTag, cacheKey, readCache(cacheKey), start);
+    if (cachedBody != null) {
+      return new CachedPayload(cachedBody, null);
+    }
+    CachedPayload payload =
+        loadCoalescer.load(
+            cacheKey, () -> rebuiltEntry(cacheKey), () -> loadClan(normalizedTag, cacheKey));
+    snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.MISS, start);
+    return payload;
+  }
 
-    // Check cache first
-    String cachedData = redisTemplate.opsForValue().get(cacheKey);
-    if (cachedData != null) {
-      try {
-        JsonNode cached = objectMapper.readTree(cachedData);
-        String tsString = cached.get("ts").asText();
-        LocalDateTime cachedTs = LocalDateTime.parse(tsString.replace("Z", ""));
-        if (ChronoUnit.SECONDS.between(cachedTs, LocalDateTime.now()) <= staleAfter) {
-          log.debug("Cache hit for clan tag: {}", normalizedTag);
-          return cached;
-        }
-        log.debug("Cache data stale for clan tag: {}", normalizedTag);
-      } catch (Exception e) {
-        log.warn("Invalid cache data for clan tag: {}, error: {}", normalizedTag, e.getMessage());
+  /**
+   * Serialized clan snapshots for many tags at once, keyed by normalized tag in request order.
+   * Every cache entry is fetched in one MGET, and all misses are rebuilt together with one query
+   * per table. Clans with no snapshot are left out.
+   */
+  public Map<String, byte[]> getClansJson(Collection<String> tags) {
+    Map<String, String> cacheKeys = new LinkedHashMap<>();
+    for (String tag : tags) {
+      String normalizedTag = TagUtils.normalizeTag(tag);
+      cacheKeys.putIfAbsent(normalizedTag, CLAN_KEY_PREFIX + normalizedTag);
+    }
+
+    long start = System.nanoTime();
+    Map<String, SnapshotCache.Entry> cached;
+    try {
+      cached = snapshotCache.getAll(new ArrayList<>(cacheKeys.values()));
+    } catch (Exception e) {
+      log.warn("Failed to read cache for {} clans, error: {}", cacheKeys.size(), e.getMessage());
+      cached = Map.of();
+    }
+
+    Map<String, byte[]> bodies = new HashMap<>();
+    List<String> misses = new ArrayList<>();
+    for (Map.Entry<String, String> key : cacheKeys.entrySet()) {
+      byte[] body = servableClan(key.getKey(), key.getValue(), cached.get(key.getValue()), start);
+      if (body != null) {
+        bodies.put(key.getKey(), body);
+      } else {
+        misses.add(key.getKey());
       }
-    } else {
+    }
+    if (!misses.isEmpty()) {
+      log.debug("Rebuilding {} of {} clans in one batch", misses.size(), cacheKeys.size());
+      bodies.putAll(loadClans(misses));
+      // Each rebuilt clan waited for the whole batch
+      for (String normalizedTag : misses) {
+        snapshotCache.recordLookup(cacheKeys.get(normalizedTag), SnapshotCache.Outcome.MISS, start);
+      }
+    }
+
+    Map<String, byte[]> result = new LinkedHashMap<>();
+    for (String normalizedTag : cacheKeys.keySet()) {
+      byte[] body = bodies.get(normalizedTag);
+      if (body != null) {
+        result.put(normalizedTag, body);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Cached clan body if it can be served: fresh entries as-is, and entries past the soft TTL or
+   * stale-after window up to the hard max age while a background refresh runs. Null means the
+   * caller has to rebuild.
+   */
+  private byte[] servableClan(
+      String normalizedTag, String cacheKey, SnapshotCache.Entry cached, long start) {
+    if (cached == null || cached.ts() == null) {
       log.debug("Cache miss for clan tag: {}", normalizedTag);
+      return null;
+    }
+    long age = cached.age(currentEpochSecond());
+    boolean dataFresh = nowEpoch() - cached.ts() <= staleAfter;
+    if (age <= cacheTtl && dataFresh) {
+      log.debug("Cache hit for clan tag: {}", normalizedTag);
+      snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.HIT, start);
+      return cached.body();
     }
+    if (age <= hardMaxAge) {
+      // Serve what we have and rebuild behind the caller
+      log.debug("Serving stale clan data for tag: {} while it refreshes", normalizedTag);
+      loadCoalescer.refreshAsync(cacheKey, () -> loadClan(normalizedTag, cacheKey));
+      snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.STALE, start);
+      return cached.body();
+    }
+    log.debug("Cache data expired for clan tag: {}", normalizedTag);
+    return null;
+  }
 
+  private CachedPayload loadClan(String normalizedTag, String cacheKey) {
     // Get from database
     log.debug("Querying database for clan tag: {}", normalizedTag);
     ClanSnapshot clanSnapshot = clanSnapshotRepository.findTopByClanTagOrderByTsDesc(normalizedTag);
@@ -101,83 +235,248 @@ public class SnapshotService {
     log.info(
         "Found clan snapshot for tag: {} with name: {}", normalizedTag, clanSnapshot.getName());
 
-    // Build base clan data
-    ObjectNode clanData = objectMapper.createObjectNode();
-    clanData.put("tag", clanSnapshot.getClanTag());
-    clanData.put("name", clanSnapshot.getName());
-    clanData.put("clanLevel", clanSnapshot.getLevel());
-    clanData.put("warWins", clanSnapshot.getWarWins());
-    clanData.put("warLosses", clanSnapshot.getWarLosses());
-    clanData.put("ts", clanSnapshot.getTs().format(ISO_FORMATTER));
-
-    // Add snapshot JSON data
-    if (clanSnapshot.getData() != null) {
-      if (clanSnapshot.getData().has("warWinStreak")) {
-        clanData.set("warWinStreak", clanSnapshot.getData().get("warWinStreak"));
-      }
+    Clan clan = clanRepository.findById(normalizedTag).orElse(null);
+    byte[] body = writeAndCacheClan(cacheKey, clanSnapshot, clan, loadMembers(normalizedTag));
+    return body != null ? new CachedPayload(body, null) : null;
+  }
+
+  /** Rebuild many clans with one snapshot, clan, membership and member-row query in total. */
+  private Map<String, byte[]> loadClans(List<String> normalizedTags) {
+    List<ClanSnapshot> snapshots = clanSnapshotRepository.findLatestByClanTags(normalizedTags);
+    if (snapshots.isEmpty()) {
+      log.info("No clan snapshots found in database for {} tags", normalizedTags.size());
+      return Map.of();
     }
+    List<String> foundTags = snapshots.stream().map(ClanSnapshot::getClanTag).toList();
 
-    // Get clan metadata
-    Clan clan = clanRepository.findById(normalizedTag).orElse(null);
-    if (clan != null) {
-      if (clan.getData() != null) {
-        if (clan.getData().has("description")) {
-          clanData.set("description", clan.getData().get("description"));
-        }
-        if (clan.getData().has("badgeUrls")) {
-          clanData.set("badgeUrls", clan.getData().get("badgeUrls"));
-        }
-        // Use clan data warWinStreak if snapshot doesn't have it
-        if (!clanData.has("warWinStreak") && clan.getData().has("warWinStreak")) {
-          clanData.set("warWinStreak", clan.getData().get("warWinStreak"));
-        }
+    Map<String, Clan> clans = new HashMap<>();
+    for (Clan clan : clanRepository.findAllById(foundTags)) {
+      clans.put(clan.getTag(), clan);
+    }
+
+    Map<String, List<String>> memberTags = new HashMap<>();
+    for (LoyaltyMembership membership :
+        loyaltyMembershipRepository.findByClanTagInAndLeftAtIsNull(foundTags)) {
+      memberTags
+          .computeIfAbsent(membership.getClanTag(), k -> new ArrayList<>())
+          .add(membership.getPlayerTag());
+    }
+
+    Map<String, ClanMemberRow> rows = new HashMap<>();
+    Set<String> allPlayerTags = new HashSet<>();
+    memberTags.values().forEach(allPlayerTags::addAll);
+    if (!allPlayerTags.isEmpty()) {
+      for (ClanMemberRow row : playerSnapshotRepository.findLatestMemberRows(allPlayerTags)) {
+        rows.put(row.getPlayerTag(), row);
       }
-      if (clan.getDeepLink() != null) {
-        clanData.put("deep_link", clan.getDeepLink());
+    }
+
+    Map<String, byte[]> bodies = new HashMap<>();
+    for (ClanSnapshot clanSnapshot : snapshots) {
+      String normalizedTag = clanSnapshot.getClanTag();
+      // Same member order as the single-clan query, which sorts by player tag
+      List<ClanMemberRow> members =
+          memberTags.getOrDefault(normalizedTag, List.of()).stream()
+              .sorted()
+              .map(rows::get)
+              .filter(Objects::nonNull)
+              .toList();
+      byte[] body =
+          writeAndCacheClan(
+              CLAN_KEY_PREFIX + normalizedTag,
+              clanSnapshot,
+              clans.get(normalizedTag),
+              members);
+      if (body != null) {
+        bodies.put(normalizedTag, body);
       }
     }
+    return bodies;
+  }
 
-    // Get member list
-    ArrayNode memberList = attachMembers(normalizedTag);
-    clanData.set("memberList", memberList);
-    clanData.put("members", memberList.size());
+  /** Serialize a clan once and store the same bytes in the cache; null if it cannot be written. */
+  private byte[] writeAndCacheClan(
+      String cacheKey, ClanSnapshot clanSnapshot, Clan clan, List<ClanMemberRow> members) {
+    String normalizedTag = clanSnapshot.getClanTag();
+    byte[] body;
+    try {
+      body = writeClan(clanSnapshot, clan, members);
+    } catch (IOException e) {
+      log.warn(
+          "Failed to serialize clan data for tag: {}, error: {}", normalizedTag, e.getMessage());
+      return null;
+    }
 
     // Cache the result
     try {
-      redisTemplate
-          .opsForValue()
-          .set(cacheKey, objectMapper.writeValueAsString(clanData), cacheTtl, TimeUnit.SECONDS);
-      log.debug("Cached clan data for tag: {} with {} members", normalizedTag, memberList.size());
+      snapshotCache.put(
+          cacheKey, body, clanSnapshot.getTs().toEpochSecond(ZoneOffset.UTC), hardMaxAge);
+      log.debug("Cached clan data for tag: {}", normalizedTag);
     } catch (Exception e) {
       log.warn("Failed to cache clan data for tag: {}, error: {}", normalizedTag, e.getMessage());
     }
 
+    // Get the badge and league icons into the asset cache before the page asks for them
+    assetPrewarmer.prewarm(clanIconUrls(clan, members));
+    // Lets the at-risk leaderboard re-score a clan it tracks against the new membership
+    events.publishEvent(new ClanSnapshotRebuiltEvent(normalizedTag, clanSnapshot.getTs()));
+
     log.info(
         "Successfully processed clan data for tag: {} with {} members",
         normalizedTag,
-        memberList.size());
-    return clanData;
+        members.size());
+    return body;
   }
 
-  public JsonNode getPlayer(String playerTag) {
+  /** Badge and member league icon URLs a clan page loads through the asset proxy. */
+  private static List<String> clanIconUrls(Clan clan, List<ClanMemberRow> members) {
+    List<String> urls = new ArrayList<>();
+    if (clan != null && clan.getData() != null) {
+      addTextValues(clan.getData().get("badgeUrls"), urls);
+    }
+    for (ClanMemberRow row : members) {
+      urls.add(row.getLeagueIcon());
+    }
+    return urls;
+  }
+
+  private static void addTextValues(JsonNode node, List<String> urls) {
+    if (node == null) {
+      return;
+    }
+    node.elements()
+        .forEachRemaining(
+            value -> {
+              if (value.isTextual()) {
+                urls.add(value.asText());
+              }
+            });
+  }
+
+  /**
+   * Stream the clan payload straight from the snapshot, clan record and member rows into a buffer,
+   * without assembling an intermediate tree. Field order matches what clients have always seen.
+   */
+  private byte[] writeClan(ClanSnapshot clanSnapshot, Clan clan, List<ClanMemberRow> members)
+      throws IOException {
+    JsonNode clanMeta = clan != null ? clan.getData() : null;
+    JsonNode snapshotData = clanSnapshot.getData();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(512 + members.size() * 320);
+    try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+      gen.writeStartObject();
+      gen.writeStringField("tag", clanSnapshot.getClanTag());
+      gen.writeStringField("name", clanSnapshot.getName());
+      writeNumberField(gen, "clanLevel", clanSnapshot.getLevel());
+      writeNumberField(gen, "warWins", clanSnapshot.getWarWins());
+      writeNumberField(gen, "warLosses", clanSnapshot.getWarLosses());
+      gen.writeStringField("ts", clanSnapshot.getTs().format(ISO_FORMATTER));
+
+      boolean snapshotStreak = snapshotData != null && snapshotData.has("warWinStreak");
+      if (snapshotStreak) {
+        gen.writeObjectField("warWinStreak", snapshotData.get("warWinStreak"));
+      }
+      if (clanMeta != null) {
+        if (clanMeta.has("description")) {
+          gen.writeObjectField("description", clanMeta.get("description"));
+        }
+        if (clanMeta.has("badgeUrls")) {
+          gen.writeObjectField("badgeUrls", clanMeta.get("badgeUrls"));
+        }
+        // Use clan data warWinStreak if snapshot doesn't have it
+        if (!snapshotStreak && clanMeta.has("warWinStreak")) {
+          gen.writeObjectField("warWinStreak", clanMeta.get("warWinStreak"));
+        }
+      }
+      if (clan != null && clan.getDeepLink() != null) {
+        gen.writeStringField("deep_link", clan.getDeepLink());
+      }
+
+      gen.writeArrayFieldStart("memberList");
+      for (ClanMemberRow row : members) {
+        writeMember(gen, row);
+      }
+      gen.writeEndArray();
+      gen.writeNumberField("members", members.size());
+      gen.writeEndObject();
+    }
+    return out.toByteArray();
+  }
+
+  private CachedPayload resolvePlayer(String playerTag) {
     String normalizedTag = TagUtils.normalizeTag(playerTag);
     log.debug("Normalized player tag '{}' to '{}'", playerTag, normalizedTag);
 
-    String cacheKey = "snapshot:player:" + normalizedTag;
-    log.debug("Checking cache with key: {}", cacheKey);
-
-    // Check cache first
-    String cachedData = redisTemplate.opsForValue().get(cacheKey);
-    if (cachedData != null) {
-      try {
-        JsonNode cached = objectMapper.readTree(cachedData);
+    String cacheKey = PLAYER_KEY_PREFIX + normalizedTag;
+    long start = System.nanoTime();
+    SnapshotCache.Entry cached = readCache(cacheKey);
+    if (cached != null) {
+      long age = cached.age(currentEpochSecond());
+      if (age <= cacheTtl) {
         log.debug("Found cached player data for tag: {}", normalizedTag);
-        return cached;
-      } catch (Exception e) {
-        log.warn("Failed to parse cached player data for tag: {}", normalizedTag, e);
+        snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.HIT, start);
+        return new CachedPayload(cached.body(), null);
+      }
+      if (age <= hardMaxAge) {
+        log.debug("Serving stale player data for tag: {} while it refreshes", normalizedTag);
+        loadCoalescer.refreshAsync(cacheKey, () -> loadPlayer(normalizedTag, cacheKey));
+        snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.STALE, start);
+        return new CachedPayload(cached.body(), null);
       }
     }
+    CachedPayload payload =
+        loadCoalescer.load(
+            cacheKey, () -> rebuiltEntry(cacheKey), () -> loadPlayer(normalizedTag, cacheKey));
+    snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.MISS, start);
+    return payload;
+  }
+
+  private SnapshotCache.Entry readCache(String cacheKey) {
+    log.debug("Checking cache with key: {}", cacheKey);
+    try {
+      return snapshotCache.get(cacheKey);
+    } catch (Exception e) {
+      log.warn("Failed to read cache for key: {}, error: {}", cacheKey, e.getMessage());
+      return null;
+    }
+  }
+
+  /** Entry another node has rebuilt within the soft TTL, polled while it holds the load lock. */
+  private CachedPayload rebuiltEntry(String cacheKey) {
+    SnapshotCache.Entry cached = readCache(cacheKey);
+    if (cached == null || cached.age(currentEpochSecond()) > cacheTtl) {
+      return null;
+    }
+    return new CachedPayload(cached.body(), null);
+  }
+
+  private CachedPayload loadPlayer(String normalizedTag, String cacheKey) {
+    ObjectNode playerData = buildPlayer(normalizedTag);
+    if (playerData == null) {
+      return null;
+    }
+
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(playerData);
+    } catch (Exception e) {
+      log.warn("Failed to serialize player data for tag: {}", normalizedTag, e);
+      return new CachedPayload(null, playerData);
+    }
+
+    // Cache the result
+    try {
+      snapshotCache.putBody(cacheKey, body, hardMaxAge);
+      log.debug("Cached player data for tag: {}", normalizedTag);
+    } catch (Exception e) {
+      log.warn("Failed to cache player data for tag: {}", normalizedTag, e);
+    }
+
+    log.info("Successfully retrieved player data for tag: {}", normalizedTag);
+    return new CachedPayload(body, playerData);
+  }
 
+  private ObjectNode buildPlayer(String normalizedTag) {
     // Get latest player snapshot from database
     PlayerSnapshot latestSnapshot =
         playerSnapshotRepository.findTopByPlayerTagOrderByTsDesc(normalizedTag);
@@ -186,6 +485,13 @@ public class SnapshotService {
       return null;
     }
 
+    // Get the league icons into the asset cache ahead of the profile view
+    if (latestSnapshot.getData() != null) {
+      List<String> iconUrls = new ArrayList<>();
+      addTextValues(latestSnapshot.getData().path("league").path("iconUrls"), iconUrls);
+      assetPrewarmer.prewarm(iconUrls);
+    }
+
     // Get player metadata
     Player playerMetadata = playerRepository.findByTag(normalizedTag);
 
@@ -204,7 +510,7 @@ public class SnapshotService {
     playerData.put("lastUpdated", latestSnapshot.getTs().format(ISO_FORMATTER));
     long minutesSinceUpdate =
         java.time.temporal.ChronoUnit.MINUTES.between(
-            latestSnapshot.getTs(), java.time.LocalDateTime.now());
+            latestSnapshot.getTs(), LocalDateTime.now(clock));
     boolean isStale = minutesSinceUpdate > (staleAfter / 60);
     playerData.put("isStale", isStale);
 
@@ -217,95 +523,88 @@ public class SnapshotService {
       }
     }
 
-    // Cache the result
-    try {
-      redisTemplate
-          .opsForValue()
-          .set(
-              cacheKey,
-              objectMapper.writeValueAsString(playerData),
-              cacheTtl,
-              java.util.concurrent.TimeUnit.SECONDS);
-      log.debug("Cached player data for tag: {}", normalizedTag);
-    } catch (Exception e) {
-      log.warn("Failed to cache player data for tag: {}", normalizedTag, e);
-    }
-
-    log.info("Successfully retrieved player data for tag: {}", normalizedTag);
     return playerData;
   }
 
-  private ArrayNode attachMembers(String clanTag) {
-    ArrayNode memberList = objectMapper.createArrayNode();
+  private long currentEpochSecond() {
+    return clock.instant().getEpochSecond();
+  }
+
+  private long nowEpoch() {
+    return LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC);
+  }
+
+  /**
+   * A snapshot payload as serialized bytes and, for a player snapshot that was just built, the tree
+   * it came from. Otherwise the tree is parsed on demand for callers that need one.
+   */
+  private record CachedPayload(byte[] body, JsonNode tree) {
+
+    JsonNode asTree(ObjectMapper objectMapper) {
+      if (tree != null) {
+        return tree;
+      }
+      try {
+        return objectMapper.readTree(body);
+      } catch (Exception e) {
+        log.warn("Failed to parse cached snapshot: {}", e.getMessage());
+        return null;
+      }
+    }
+  }
 
+  private List<ClanMemberRow> loadMembers(String clanTag) {
     // Get active player tags
     List<String> activePlayerTags =
         loyaltyMembershipRepository.findActivePlayerTagsByClanTag(clanTag);
     if (activePlayerTags.isEmpty()) {
-      return memberList;
+      return List.of();
     }
 
-    // Get latest snapshots for active players
-    List<PlayerSnapshot> playerSnapshots =
-        playerSnapshotRepository.findLatestSnapshotsByPlayerTags(activePlayerTags);
-
-    // Get player metadata
-    Map<String, Player> playerMetadata = new HashMap<>();
-    for (String playerTag : activePlayerTags) {
-      playerRepository
-          .findById(playerTag)
-          .ifPresent(player -> playerMetadata.put(playerTag, player));
-    }
-
-    // Build member data
-    for (PlayerSnapshot ps : playerSnapshots) {
-      ObjectNode member = objectMapper.createObjectNode();
-      member.put("tag", ps.getPlayerTag());
-      member.put("name", ps.getName());
-      member.put("role", ps.getRole());
-      member.put("townHallLevel", ps.getTownHall());
-      member.put("trophies", ps.getTrophies());
-      member.put("donations", ps.getDonations());
-      member.put("donationsReceived", ps.getDonationsReceived());
-      if (ps.getWarAttacksUsed() != null) {
-        member.put("warAttacksUsed", ps.getWarAttacksUsed());
-      }
+    // Latest snapshot plus player metadata for every member in one query
+    return playerSnapshotRepository.findLatestMemberRows(activePlayerTags);
+  }
 
-      LocalDateTime lastSeen = ps.getLastSeen() != null ? ps.getLastSeen() : ps.getTs();
-      member.put("last_seen", lastSeen.format(ISO_FORMATTER));
+  private void writeMember(JsonGenerator gen, ClanMemberRow row) throws IOException {
+    gen.writeStartObject();
+    gen.writeStringField("tag", row.getPlayerTag());
+    gen.writeStringField("name", row.getName());
+    gen.writeStringField("role", row.getRole());
+    writeNumberField(gen, "townHallLevel", row.getTownHall());
+    writeNumberField(gen, "trophies", row.getTrophies());
+    writeNumberField(gen, "donations", row.getDonations());
+    writeNumberField(gen, "donationsReceived", row.getDonationsReceived());
+    if (row.getWarAttacksUsed() != null) {
+      gen.writeNumberField("warAttacksUsed", row.getWarAttacksUsed());
+    }
 
-      // Add league icon from snapshot data - always include field for consistency with Flask
-      String leagueIcon = null;
-      if (ps.getData() != null && ps.getData().has("league")) {
-        JsonNode league = ps.getData().get("league");
-        if (league.has("iconUrls") && league.get("iconUrls").has("tiny")) {
-          leagueIcon = league.get("iconUrls").get("tiny").asText();
-        }
-      }
-      if (leagueIcon != null) {
-        member.put("leagueIcon", leagueIcon);
-      } else {
-        member.putNull("leagueIcon");
-      }
+    LocalDateTime lastSeen = row.getLastSeen() != null ? row.getLastSeen() : row.getTs();
+    gen.writeStringField("last_seen", lastSeen.format(ISO_FORMATTER));
 
-      // Add labels from snapshot data
-      if (ps.getData() != null && ps.getData().has("labels")) {
-        member.set("labels", ps.getData().get("labels"));
-      }
+    // Always include league icon for consistency with Flask
+    gen.writeStringField("leagueIcon", row.getLeagueIcon());
 
-      // Add deep link - prefer Player entity, fallback to snapshot data
-      Player playerEntity = playerMetadata.get(ps.getPlayerTag());
-      if (playerEntity != null
-          && playerEntity.getData() != null
-          && playerEntity.getData().has("deep_link")) {
-        member.put("deep_link", playerEntity.getData().get("deep_link").asText());
-      } else if (ps.getData() != null && ps.getData().has("deep_link")) {
-        member.put("deep_link", ps.getData().get("deep_link").asText());
+    if (row.getLabels() != null) {
+      try {
+        JsonNode labels = objectMapper.readTree(row.getLabels());
+        gen.writeObjectField("labels", labels);
+      } catch (JsonProcessingException e) {
+        log.warn("Failed to parse labels for player: {}", row.getPlayerTag(), e);
       }
+    }
 
-      memberList.add(member);
+    if (row.getDeepLink() != null) {
+      gen.writeStringField("deep_link", row.getDeepLink());
     }
+    gen.writeEndObject();
+  }
 
-    return memberList;
+  private static void writeNumberField(JsonGenerator gen, String name, Integer value)
+      throws IOException {
+    if (value != null) {
+      gen.writeNumberField(name, value);
+    } else {
+      gen.writeNullField(name);
+    }
   }
 }
@@ -6,6 +6,7 @@ import com.clanboards.clashdata.util.TagUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
@@ -13,7 +14,7 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.CacheControl;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,44 +22,101 @@ public class WarService {
 
   private static final Logger log = LoggerFactory.getLogger(WarService.class);
   private final WarSnapshotRepository warSnapshotRepository;
-  private final StringRedisTemplate redisTemplate;
+  private final SnapshotCache snapshotCache;
+  private final SnapshotLoadCoalescer loadCoalescer;
   private final ObjectMapper objectMapper;
+  private final Clock clock;
   private final int cacheTtl;
   private final int staleAfter;
+  private final int hardMaxAge;
 
   private static final DateTimeFormatter ISO_FORMATTER =
       DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
   public WarService(
       WarSnapshotRepository warSnapshotRepository,
-      StringRedisTemplate redisTemplate,
+      SnapshotCache snapshotCache,
+      SnapshotLoadCoalescer loadCoalescer,
       ObjectMapper objectMapper,
+      Clock clock,
       @Value("${cache.ttl:60}") int cacheTtl,
-      @Value("${snapshot.max-age:600}") int staleAfter) {
+      @Value("${snapshot.max-age:600}") int staleAfter,
+      @Value("${clan-data.snapshot.hard-max-age:600}") int hardMaxAge) {
     this.warSnapshotRepository = warSnapshotRepository;
-    this.redisTemplate = redisTemplate;
+    this.snapshotCache = snapshotCache;
+    this.loadCoalescer = loadCoalescer;
     this.objectMapper = objectMapper;
+    this.clock = clock;
     this.cacheTtl = cacheTtl;
     this.staleAfter = staleAfter;
+    this.hardMaxAge = Math.max(hardMaxAge, cacheTtl);
   }
 
   public JsonNode getCurrentWarSnapshot(String clanTag) {
+    byte[] body = getCurrentWarJson(clanTag);
+    return body != null ? parse(TagUtils.normalizeTag(clanTag), body) : null;
+  }
+
+  /** Current war snapshot as serialized JSON; cached bytes are returned without parsing. */
+  public byte[] getCurrentWarJson(String clanTag) {
     String normalizedTag = TagUtils.normalizeTag(clanTag);
     String cacheKey = "snapshot:war:" + normalizedTag;
 
     log.info("Fetching war snapshot for clan tag: {}", normalizedTag);
 
-    // Check cache first
-    String cachedValue = redisTemplate.opsForValue().get(cacheKey);
-    if (cachedValue != null) {
-      try {
+    long start = System.nanoTime();
+    SnapshotCache.Entry cached = readCache(normalizedTag, cacheKey);
+    if (cached != null) {
+      long age = cached.age(clock.instant().getEpochSecond());
+      if (age <= cacheTtl) {
         log.debug("Found cached war data for clan tag: {}", normalizedTag);
-        return objectMapper.readTree(cachedValue);
-      } catch (Exception e) {
-        log.warn("Failed to parse cached war data for clan tag: {}", normalizedTag, e);
+        snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.HIT, start);
+        return cached.body();
       }
+      if (age <= hardMaxAge) {
+        log.debug("Serving stale war data for clan tag: {} while it refreshes", normalizedTag);
+        loadCoalescer.refreshAsync(cacheKey, () -> loadWar(normalizedTag, cacheKey));
+        snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.STALE, start);
+        return cached.body();
+      }
+    }
+    byte[] body =
+        loadCoalescer.load(
+            cacheKey,
+            () -> rebuiltWar(normalizedTag, cacheKey),
+            () -> loadWar(normalizedTag, cacheKey));
+    snapshotCache.recordLookup(cacheKey, SnapshotCache.Outcome.MISS, start);
+    return body;
+  }
+
+  private SnapshotCache.Entry readCache(String normalizedTag, String cacheKey) {
+    try {
+      return snapshotCache.get(cacheKey);
+    } catch (Exception e) {
+      log.warn("Failed to read cached war data for clan tag: {}", normalizedTag, e);
+      return null;
     }
+  }
+
+  /** War entry another node has rebuilt within the soft TTL, polled while it holds the lock. */
+  private byte[] rebuiltWar(String normalizedTag, String cacheKey) {
+    SnapshotCache.Entry cached = readCache(normalizedTag, cacheKey);
+    if (cached == null || cached.age(clock.instant().getEpochSecond()) > cacheTtl) {
+      return null;
+    }
+    return cached.body();
+  }
 
+  private JsonNode parse(String normalizedTag, byte[] body) {
+    try {
+      return objectMapper.readTree(body);
+    } catch (Exception e) {
+      log.warn("Failed to parse cached war data for clan tag: {}", normalizedTag, e);
+      return null;
+    }
+  }
+
+  private byte[] loadWar(String normalizedTag, String cacheKey) {
     // Fetch from database
     WarSnapshot warSnapshot = warSnapshotRepository.findTopByClanTagOrderByTsDesc(normalizedTag);
 
@@ -75,24 +133,37 @@ public class WarService {
       mutableData.put("last_updated", warSnapshot.getTs().format(ISO_FORMATTER));
 
       long minutesSinceUpdate =
-          ChronoUnit.MINUTES.between(warSnapshot.getTs(), LocalDateTime.now());
+          ChronoUnit.MINUTES.between(warSnapshot.getTs(), LocalDateTime.now(clock));
       boolean isStale = minutesSinceUpdate > (staleAfter / 60);
       mutableData.put("is_stale", isStale);
 
       data = mutableData;
     }
 
+    byte[] body;
+    try {
+      body = objectMapper.writeValueAsBytes(data);
+    } catch (Exception e) {
+      log.warn("Failed to serialize war data for clan tag: {}", normalizedTag, e);
+      return null;
+    }
+
     // Cache the result
     try {
-      redisTemplate
-          .opsForValue()
-          .set(cacheKey, objectMapper.writeValueAsString(data), cacheTtl, TimeUnit.SECONDS);
+      snapshotCache.putBody(cacheKey, body, hardMaxAge);
       log.debug("Cached war data for clan tag: {}", normalizedTag);
     } catch (Exception e) {
       log.warn("Failed to cache war data for clan tag: {}", normalizedTag, e);
     }
 
     log.info("Successfully retrieved war data for clan tag: {}", normalizedTag);
-    return data;
+    return body;
+  }
+
+  /** Cache lifetimes for HTTP clients: fresh for the soft TTL, then stale up to the hard age. */
+  public CacheControl cacheControl() {
+    return CacheControl.maxAge(cacheTtl, TimeUnit.SECONDS)
+        .cachePublic()
+        .staleWhileRevalidate(hardMaxAge - cacheTtl, TimeUnit.SECONDS);
   }
 }
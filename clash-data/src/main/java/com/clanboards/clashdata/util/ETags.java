@@ -0,0 +1,14 @@
+package com.clanboards.clashdata.util;
+
+import org.springframework.util.DigestUtils;
+
+public class ETags {
+
+  /**
+   * Strong entity tag for a serialized response body. The tag is a hash of the bytes, so two
+   * responses share a tag exactly when they are byte-for-byte identical.
+   */
+  public static String strong(byte[] body) {
+    return "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+  }
+}
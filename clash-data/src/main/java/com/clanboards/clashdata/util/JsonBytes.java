@@ -0,0 +1,82 @@
+package com.clanboards.clashdata.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+
+public class JsonBytes {
+
+  /**
+   * Merge two serialized JSON objects by appending the fields of {@code extra} to {@code base},
+   * without parsing either one. Both arguments must be single JSON objects; keys already present in
+   * {@code base} are not deduplicated.
+   */
+  public static byte[] appendFields(byte[] base, byte[] extra) {
+    int baseEnd = lastNonWhitespace(base, base.length - 1);
+    int extraStart = firstNonWhitespace(extra, 0);
+    int extraEnd = lastNonWhitespace(extra, extra.length - 1);
+    if (baseEnd < 0 || base[baseEnd] != '}' || extraStart < 0 || extra[extraStart] != '{') {
+      throw new IllegalArgumentException("Both arguments must be JSON objects");
+    }
+
+    int beforeBaseEnd = lastNonWhitespace(base, baseEnd - 1);
+    int afterExtraStart = firstNonWhitespace(extra, extraStart + 1);
+    if (beforeBaseEnd < 0 || afterExtraStart < 0) {
+      throw new IllegalArgumentException("Both arguments must be JSON objects");
+    }
+
+    boolean baseEmpty = base[beforeBaseEnd] == '{';
+    boolean extraEmpty = extra[afterExtraStart] == '}';
+    if (extraEmpty) {
+      return base;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(base.length + extra.length);
+    out.write(base, 0, baseEnd);
+    if (!baseEmpty) {
+      out.write(',');
+    }
+    out.write(extra, extraStart + 1, extraEnd - extraStart);
+    return out.toByteArray();
+  }
+
+  /** Join serialized JSON values into one JSON array, without parsing any of them. */
+  public static byte[] array(Collection<byte[]> values) {
+    int size = 2 + values.size();
+    for (byte[] value : values) {
+      size += value.length;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+    out.write('[');
+    boolean first = true;
+    for (byte[] value : values) {
+      if (!first) {
+        out.write(',');
+      }
+      out.write(value, 0, value.length);
+      first = false;
+    }
+    out.write(']');
+    return out.toByteArray();
+  }
+
+  private static int lastNonWhitespace(byte[] bytes, int from) {
+    int i = from;
+    while (i >= 0 && isWhitespace(bytes[i])) {
+      i--;
+    }
+    return i;
+  }
+
+  private static int firstNonWhitespace(byte[] bytes, int from) {
+    int i = from;
+    while (i < bytes.length && isWhitespace(bytes[i])) {
+      i++;
+    }
+    return i < bytes.length ? i : -1;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+}
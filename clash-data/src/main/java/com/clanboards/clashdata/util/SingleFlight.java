@@ -0,0 +1,56 @@
+package com.clanboards.clashdata.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader and every caller
+ * that arrives while it is running waits for and shares its result (or exception). Nothing is
+ * remembered once the load finishes.
+ */
+public class SingleFlight {
+
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight =
+      new ConcurrentHashMap<>();
+
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> loader) {
+    CompletableFuture<Object> call = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+    if (existing != null) {
+      return (T) await(existing);
+    }
+
+    try {
+      T value = loader.get();
+      call.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      call.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, call);
+    }
+  }
+
+  /** Number of loads currently running. */
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  private static Object await(CompletableFuture<Object> call) {
+    try {
+      return call.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -4,13 +4,18 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.clanboards.clashdata.service.AssetService;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.CacheControl;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(
@@ -27,13 +32,18 @@ public class AssetControllerTest {
   private static final String VALID_ASSET_URL =
       "https://api-assets.clashofclans.com/badges/512/abc123.png";
 
+  @BeforeEach
+  void setUp() {
+    when(assetService.cacheControl())
+        .thenReturn(CacheControl.maxAge(86400, TimeUnit.SECONDS).cachePublic());
+  }
+
   @Test
   public void getAsset_withValidUrl_shouldReturnAsset() throws Exception {
     byte[] imageData = "fake-image-data".getBytes();
     String contentType = "image/png";
 
-    when(assetService.getAsset(VALID_ASSET_URL))
-        .thenReturn(new AssetService.AssetResponse(imageData, contentType));
+    when(assetService.getAsset(VALID_ASSET_URL)).thenReturn(asset(imageData, contentType, null));
 
     mockMvc
         .perform(get("/api/v1/clan-data/assets").param("url", VALID_ASSET_URL))
@@ -94,8 +104,7 @@ public class AssetControllerTest {
     byte[] imageData = "fake-image-data".getBytes();
     String contentType = "image/png";
 
-    when(assetService.getAsset(httpUrl))
-        .thenReturn(new AssetService.AssetResponse(imageData, contentType));
+    when(assetService.getAsset(httpUrl)).thenReturn(asset(imageData, contentType, null));
 
     mockMvc
         .perform(get("/api/v1/clan-data/assets").param("url", httpUrl))
@@ -109,8 +118,7 @@ public class AssetControllerTest {
     byte[] svgData = "<svg></svg>".getBytes();
     String contentType = "image/svg+xml";
 
-    when(assetService.getAsset(VALID_ASSET_URL))
-        .thenReturn(new AssetService.AssetResponse(svgData, contentType));
+    when(assetService.getAsset(VALID_ASSET_URL)).thenReturn(asset(svgData, contentType, null));
 
     mockMvc
         .perform(get("/api/v1/clan-data/assets").param("url", VALID_ASSET_URL))
@@ -118,4 +126,39 @@ public class AssetControllerTest {
         .andExpect(content().contentType(contentType))
         .andExpect(content().bytes(svgData));
   }
+
+  @Test
+  public void getAsset_withUpstreamETag_shouldSetCachingHeaders() throws Exception {
+    byte[] imageData = "fake-image-data".getBytes();
+    when(assetService.getAsset(VALID_ASSET_URL))
+        .thenReturn(asset(imageData, "image/png", "\"v1\""));
+
+    mockMvc
+        .perform(get("/api/v1/clan-data/assets").param("url", VALID_ASSET_URL))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"v1\""))
+        .andExpect(header().string("Cache-Control", "max-age=86400, public"))
+        .andExpect(header().longValue("Content-Length", imageData.length))
+        .andExpect(content().bytes(imageData));
+  }
+
+  @Test
+  public void getAsset_withMatchingIfNoneMatch_shouldReturnNotModified() throws Exception {
+    byte[] imageData = "fake-image-data".getBytes();
+    when(assetService.getAsset(VALID_ASSET_URL))
+        .thenReturn(asset(imageData, "image/png", "\"v1\""));
+
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/assets")
+                .param("url", VALID_ASSET_URL)
+                .header("If-None-Match", "\"v1\""))
+        .andExpect(status().isNotModified())
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  private static AssetService.AssetResponse asset(byte[] data, String contentType, String etag) {
+    return new AssetService.AssetResponse(
+        new ByteArrayInputStream(data), data.length, contentType, etag);
+  }
 }
@@ -2,24 +2,34 @@ package com.clanboards.clashdata.controller;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.clanboards.clashdata.service.LoyaltyService;
+import com.clanboards.clashdata.service.RiskLeaderboardService;
 import com.clanboards.clashdata.service.RiskService;
 import com.clanboards.clashdata.service.SnapshotService;
 import com.clanboards.clashdata.service.UserContextService;
+import com.clanboards.clashdata.util.ETags;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -35,8 +45,15 @@ class ClanControllerTest {
   @MockBean private SnapshotService snapshotService;
   @MockBean private LoyaltyService loyaltyService;
   @MockBean private RiskService riskService;
+  @MockBean private RiskLeaderboardService riskLeaderboardService;
   @MockBean private UserContextService userContextService;
 
+  @BeforeEach
+  void setUp() {
+    when(snapshotService.cacheControl())
+        .thenReturn(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic());
+  }
+
   @Test
   void testGetClan_Success() throws Exception {
     // Given
@@ -77,7 +94,7 @@ class ClanControllerTest {
         }
         """);
 
-    when(snapshotService.getClan("#ABC123")).thenReturn(mockClanData);
+    when(snapshotService.getClanJson("#ABC123")).thenReturn(mapper.writeValueAsBytes(mockClanData));
 
     // When & Then
     mockMvc
@@ -113,12 +130,76 @@ class ClanControllerTest {
   void testGetClan_NotFound() throws Exception {
     // Given
     String clanTag = "#NOTFOUND";
-    when(snapshotService.getClan("#NOTFOUND")).thenReturn(null);
+    when(snapshotService.getClanJson("#NOTFOUND")).thenReturn(null);
 
     // When & Then
     mockMvc.perform(get("/api/v1/clan-data/clans/{tag}", clanTag)).andExpect(status().isNotFound());
   }
 
+  @Test
+  void testGetClan_SetsETagAndCacheControl() throws Exception {
+    byte[] body = "{\"tag\":\"ABC123\"}".getBytes(StandardCharsets.UTF_8);
+    when(snapshotService.getClanJson("ABC123")).thenReturn(body);
+
+    mockMvc
+        .perform(get("/api/v1/clan-data/clans/{tag}", "ABC123"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", ETags.strong(body)))
+        .andExpect(header().string("Cache-Control", "max-age=60, public"));
+  }
+
+  @Test
+  void testGetClan_MatchingIfNoneMatchReturnsNotModified() throws Exception {
+    byte[] body = "{\"tag\":\"ABC123\"}".getBytes(StandardCharsets.UTF_8);
+    when(snapshotService.getClanJson("ABC123")).thenReturn(body);
+
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/clans/{tag}", "ABC123")
+                .header("If-None-Match", ETags.strong(body)))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", ETags.strong(body)))
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  @Test
+  void testGetClan_StaleIfNoneMatchReturnsBody() throws Exception {
+    byte[] body = "{\"tag\":\"ABC123\"}".getBytes(StandardCharsets.UTF_8);
+    when(snapshotService.getClanJson("ABC123")).thenReturn(body);
+
+    mockMvc
+        .perform(get("/api/v1/clan-data/clans/{tag}", "ABC123").header("If-None-Match", "\"old\""))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.tag").value("ABC123"));
+  }
+
+  @Test
+  void testGetClans_ReturnsArrayOfClanPayloads() throws Exception {
+    Map<String, byte[]> clans = new LinkedHashMap<>();
+    clans.put("AAA", "{\"tag\":\"AAA\",\"members\":2}".getBytes(StandardCharsets.UTF_8));
+    clans.put("BBB", "{\"tag\":\"BBB\",\"members\":5}".getBytes(StandardCharsets.UTF_8));
+    when(snapshotService.getClansJson(List.of("#AAA", "BBB", "CCC"))).thenReturn(clans);
+
+    mockMvc
+        .perform(get("/api/v1/clan-data/clans").param("tags", "#AAA", "BBB", "CCC"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].tag").value("AAA"))
+        .andExpect(jsonPath("$[1].members").value(5))
+        .andExpect(header().exists("ETag"));
+  }
+
+  @Test
+  void testGetClans_TooManyTagsIsBadRequest() throws Exception {
+    String[] tags = new String[51];
+    Arrays.fill(tags, "AAA");
+
+    mockMvc
+        .perform(get("/api/v1/clan-data/clans").param("tags", tags))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   void testGetClan_TagNormalization() throws Exception {
     // Given - use unnormalized tag in URL
@@ -136,7 +217,7 @@ class ClanControllerTest {
         """);
 
     // Service should receive normalized tag
-    when(snapshotService.getClan("abc123")).thenReturn(mockClanData);
+    when(snapshotService.getClanJson("abc123")).thenReturn(mapper.writeValueAsBytes(mockClanData));
 
     // When & Then
     mockMvc
@@ -244,7 +325,7 @@ class ClanControllerTest {
     riskData.add(lowRiskPlayer);
 
     when(userContextService.getUserWeights()).thenReturn(null);
-    when(riskService.getClanAtRisk("#ABC123", null)).thenReturn(riskData);
+    when(riskService.getClanAtRisk("#ABC123", null, 0, 0)).thenReturn(riskData);
 
     // When & Then
     mockMvc
@@ -272,7 +353,7 @@ class ClanControllerTest {
     List<Map<String, Object>> emptyRiskData = new ArrayList<>();
 
     when(userContextService.getUserWeights()).thenReturn(null);
-    when(riskService.getClanAtRisk("#EMPTY123", null)).thenReturn(emptyRiskData);
+    when(riskService.getClanAtRisk("#EMPTY123", null, 0, 0)).thenReturn(emptyRiskData);
 
     // When & Then
     mockMvc
@@ -306,7 +387,7 @@ class ClanControllerTest {
     customWeights.put("don_drop", 0.05);
 
     when(userContextService.getUserWeights()).thenReturn(customWeights);
-    when(riskService.getClanAtRisk("#ABC123", customWeights)).thenReturn(riskData);
+    when(riskService.getClanAtRisk("#ABC123", customWeights, 0, 0)).thenReturn(riskData);
 
     // When & Then
     mockMvc
@@ -336,7 +417,7 @@ class ClanControllerTest {
 
     // Mock no user weights (unauthenticated or no profile)
     when(userContextService.getUserWeights()).thenReturn(null);
-    when(riskService.getClanAtRisk("#ABC123", null)).thenReturn(riskData);
+    when(riskService.getClanAtRisk("#ABC123", null, 0, 0)).thenReturn(riskData);
 
     // When & Then
     mockMvc
@@ -348,4 +429,103 @@ class ClanControllerTest {
         .andExpect(jsonPath("$[0].player_tag").value("#PLAYER1"))
         .andExpect(jsonPath("$[0].risk_score").value(45));
   }
+
+  @Test
+  void testGetClanAtRisk_PassesLimitAndMinScore() throws Exception {
+    // Given
+    Map<String, Object> player = new HashMap<>();
+    player.put("player_tag", "#PLAYER1");
+    player.put("risk_score", 80);
+    when(userContextService.getUserWeights()).thenReturn(null);
+    when(riskService.getClanAtRisk("#ABC123", null, 5, 40)).thenReturn(List.of(player));
+
+    // When & Then
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/clans/{tag}/members/at-risk", "#ABC123")
+                .param("limit", "5")
+                .param("minScore", "40"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].risk_score").value(80));
+  }
+
+  @Test
+  void testGetClanAtRisk_NegativeLimit_ReturnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/clans/{tag}/members/at-risk", "#ABC123").param("limit", "-1"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testGetClansAtRisk_QueriesLeaderboardAcrossClans() throws Exception {
+    // Given
+    Map<String, Object> player = new HashMap<>();
+    player.put("player_tag", "#PLAYER1");
+    player.put("clan_tag", "CLAN2");
+    player.put("name", "Test Player");
+    player.put("risk_score", 70);
+    when(riskLeaderboardService.getAtRisk(List.of("#CLAN1", "#CLAN2"), 50, 90, 10))
+        .thenReturn(List.of(player));
+
+    // When & Then
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/clans/members/at-risk")
+                .param("tags", "#CLAN1", "#CLAN2")
+                .param("limit", "10")
+                .param("minScore", "50")
+                .param("maxScore", "90"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].clan_tag").value("CLAN2"))
+        .andExpect(jsonPath("$[0].risk_score").value(70));
+  }
+
+  @Test
+  void testGetClansAtRisk_InvertedScoreRange_ReturnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/clans/members/at-risk")
+                .param("tags", "#CLAN1")
+                .param("minScore", "60")
+                .param("maxScore", "40"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testSimulateClanAtRisk_ReturnsScoresPerProfile() throws Exception {
+    // Given
+    List<Map<String, Double>> profiles = List.of(Map.of("war", 1.0), Map.of("idle", 1.0));
+    Map<String, Object> simulation = new LinkedHashMap<>();
+    simulation.put("members", List.of(Map.of("player_tag", "#PLAYER1", "name", "Test Player")));
+    simulation.put(
+        "profiles",
+        List.of(
+            Map.of("scores", new int[] {50}, "ranking", new int[] {0}),
+            Map.of("scores", new int[] {75}, "ranking", new int[] {0})));
+    when(riskService.simulateClanAtRisk("#ABC123", profiles)).thenReturn(simulation);
+
+    // When & Then
+    mockMvc
+        .perform(
+            post("/api/v1/clan-data/clans/{tag}/members/at-risk/what-if", "#ABC123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"war\": 1.0}, {\"idle\": 1.0}]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.members[0].player_tag").value("#PLAYER1"))
+        .andExpect(jsonPath("$.profiles.length()").value(2))
+        .andExpect(jsonPath("$.profiles[1].scores[0]").value(75));
+  }
+
+  @Test
+  void testSimulateClanAtRisk_NoProfiles_ReturnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            post("/api/v1/clan-data/clans/{tag}/members/at-risk/what-if", "#ABC123")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+        .andExpect(status().isBadRequest());
+  }
 }
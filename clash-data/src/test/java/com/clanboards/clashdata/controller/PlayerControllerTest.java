@@ -4,13 +4,18 @@ import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.clanboards.clashdata.service.HistoryEncoding;
+import com.clanboards.clashdata.service.HistoryResolution;
 import com.clanboards.clashdata.service.PlayerService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.CacheControl;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(
@@ -26,6 +31,12 @@ class PlayerControllerTest {
 
   @Autowired private ObjectMapper objectMapper;
 
+  @BeforeEach
+  void setUp() {
+    when(playerService.cacheControl())
+        .thenReturn(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic());
+  }
+
   @Test
   void getPlayer_WithValidPlayerTag_ReturnsPlayerData() throws Exception {
     // Given
@@ -47,7 +58,8 @@ class PlayerControllerTest {
         }
         """);
 
-    when(playerService.getPlayerProfile(playerTag)).thenReturn(playerData);
+    when(playerService.getPlayerProfileJson(playerTag))
+        .thenReturn(objectMapper.writeValueAsBytes(playerData));
 
     // When & Then
     mockMvc
@@ -57,14 +69,16 @@ class PlayerControllerTest {
         .andExpect(jsonPath("$.tag").value("#2Y0Y9CL"))
         .andExpect(jsonPath("$.name").value("TestPlayer"))
         .andExpect(jsonPath("$.loyalty").value(30))
-        .andExpect(jsonPath("$.risk_score").value(25));
+        .andExpect(jsonPath("$.risk_score").value(25))
+        .andExpect(header().exists("ETag"))
+        .andExpect(header().string("Cache-Control", "max-age=60, public"));
   }
 
   @Test
   void getPlayer_WithInvalidPlayerTag_ReturnsNotFound() throws Exception {
     // Given
     String playerTag = "INVALID";
-    when(playerService.getPlayerProfile(playerTag)).thenReturn(null);
+    when(playerService.getPlayerProfileJson(playerTag)).thenReturn(null);
 
     // When & Then
     mockMvc
@@ -72,6 +86,114 @@ class PlayerControllerTest {
         .andExpect(status().isNotFound());
   }
 
+  @Test
+  void getPlayerHistory_ReturnsColumns() throws Exception {
+    // Given
+    String playerTag = "2Y0Y9CL";
+    JsonNode history =
+        objectMapper.readTree(
+            """
+        {
+          "tag": "2Y0Y9CL",
+          "points": 2,
+          "ts": [1735732800, 1735736400],
+          "trophies": [5000, 5010]
+        }
+        """);
+    when(playerService.getPlayerHistory(
+            playerTag, 7, HistoryResolution.RAW, 0, HistoryEncoding.PLAIN))
+        .thenReturn(history);
+
+    // When & Then
+    mockMvc
+        .perform(get("/api/v1/clan-data/players/{playerTag}/history", playerTag).param("days", "7"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.points").value(2))
+        .andExpect(jsonPath("$.trophies[1]").value(5010));
+  }
+
+  @Test
+  void getPlayerHistory_NoHistory_ReturnsNotFound() throws Exception {
+    // Given
+    when(playerService.getPlayerHistory(
+            "NOBODY", 30, HistoryResolution.RAW, 0, HistoryEncoding.PLAIN))
+        .thenReturn(null);
+
+    // When & Then
+    mockMvc
+        .perform(get("/api/v1/clan-data/players/{playerTag}/history", "NOBODY"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void getPlayerHistory_DailyResolution_ReadsRollups() throws Exception {
+    // Given
+    JsonNode history =
+        objectMapper.readTree(
+            """
+        {"tag": "2Y0Y9CL", "resolution": "daily", "points": 1, "trophies": [5010]}
+        """);
+    when(playerService.getPlayerHistory(
+            "2Y0Y9CL", 30, HistoryResolution.DAILY, 0, HistoryEncoding.PLAIN))
+        .thenReturn(history);
+
+    // When & Then
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/players/{playerTag}/history", "2Y0Y9CL")
+                .param("resolution", "daily"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.resolution").value("daily"));
+  }
+
+  @Test
+  void getPlayerHistory_DownsampledDelta_PassesOptionsThrough() throws Exception {
+    // Given
+    JsonNode history =
+        objectMapper.readTree(
+            """
+        {"tag": "2Y0Y9CL", "encoding": "delta", "points": 3, "trophies": [5000, 100, -50]}
+        """);
+    when(playerService.getPlayerHistory(
+            "2Y0Y9CL", 30, HistoryResolution.RAW, 3, HistoryEncoding.DELTA))
+        .thenReturn(history);
+
+    // When & Then
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/players/{playerTag}/history", "2Y0Y9CL")
+                .param("maxPoints", "3")
+                .param("encoding", "delta"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.points").value(3))
+        .andExpect(jsonPath("$.encoding").value("delta"));
+  }
+
+  @Test
+  void getPlayerHistory_TooFewMaxPoints_ReturnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/players/{playerTag}/history", "2Y0Y9CL").param("maxPoints", "2"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void getPlayerHistory_UnknownResolution_ReturnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/players/{playerTag}/history", "2Y0Y9CL")
+                .param("resolution", "hourly"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void getPlayerHistory_DaysOutOfRange_ReturnsBadRequest() throws Exception {
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/players/{playerTag}/history", "2Y0Y9CL").param("days", "90"))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   void getPlayerByUser_WithValidUserSub_ReturnsPlayerData() throws Exception {
     // Given
@@ -5,12 +5,16 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.clanboards.clashdata.service.WarService;
+import com.clanboards.clashdata.util.ETags;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.CacheControl;
 import org.springframework.test.web.servlet.MockMvc;
 
 @WebMvcTest(
@@ -26,6 +30,15 @@ class WarControllerTest {
 
   @Autowired private ObjectMapper objectMapper;
 
+  @BeforeEach
+  void setUp() {
+    when(warService.cacheControl())
+        .thenReturn(
+            CacheControl.maxAge(60, TimeUnit.SECONDS)
+                .cachePublic()
+                .staleWhileRevalidate(540, TimeUnit.SECONDS));
+  }
+
   @Test
   void getCurrentWar_WithValidClanTag_ReturnsWarData() throws Exception {
     // Given
@@ -42,7 +55,7 @@ class WarControllerTest {
         }
         """);
 
-    when(warService.getCurrentWarSnapshot(clanTag)).thenReturn(warData);
+    when(warService.getCurrentWarJson(clanTag)).thenReturn(objectMapper.writeValueAsBytes(warData));
 
     // When & Then
     mockMvc
@@ -57,7 +70,7 @@ class WarControllerTest {
   void getCurrentWar_WithClanNotInWar_ReturnsNotInWarState() throws Exception {
     // Given
     String clanTag = "2Y0Y9CL";
-    when(warService.getCurrentWarSnapshot(clanTag)).thenReturn(null);
+    when(warService.getCurrentWarJson(clanTag)).thenReturn(null);
 
     // When & Then
     mockMvc
@@ -71,7 +84,7 @@ class WarControllerTest {
   void getCurrentWar_WithInvalidClanTag_ReturnsNotInWarState() throws Exception {
     // Given
     String invalidClanTag = "INVALID";
-    when(warService.getCurrentWarSnapshot(invalidClanTag)).thenReturn(null);
+    when(warService.getCurrentWarJson(invalidClanTag)).thenReturn(null);
 
     // When & Then
     mockMvc
@@ -80,4 +93,30 @@ class WarControllerTest {
         .andExpect(content().contentType("application/json"))
         .andExpect(jsonPath("$.state").value("notInWar"));
   }
+
+  @Test
+  void getCurrentWar_SetsETagAndCacheControl() throws Exception {
+    byte[] body = "{\"state\":\"inWar\"}".getBytes();
+    when(warService.getCurrentWarJson("2Y0Y9CL")).thenReturn(body);
+
+    mockMvc
+        .perform(get("/api/v1/clan-data/wars/{clanTag}/current", "2Y0Y9CL"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", ETags.strong(body)))
+        .andExpect(
+            header().string("Cache-Control", "max-age=60, public, stale-while-revalidate=540"));
+  }
+
+  @Test
+  void getCurrentWar_WithMatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+    byte[] body = "{\"state\":\"inWar\"}".getBytes();
+    when(warService.getCurrentWarJson("2Y0Y9CL")).thenReturn(body);
+
+    mockMvc
+        .perform(
+            get("/api/v1/clan-data/wars/{clanTag}/current", "2Y0Y9CL")
+                .header("If-None-Match", ETags.strong(body)))
+        .andExpect(status().isNotModified())
+        .andExpect(content().bytes(new byte[0]));
+  }
 }
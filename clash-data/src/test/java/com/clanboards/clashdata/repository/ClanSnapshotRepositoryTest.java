@@ -1,11 +1,13 @@
 package com.clanboards.clashdata.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import com.clanboards.clashdata.entity.ClanSnapshot;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDateTime;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -68,4 +70,31 @@ class ClanSnapshotRepositoryTest {
     // Then
     assertThat(result).isNull();
   }
+
+  @Test
+  void testFindLatestByClanTags_ReturnsNewestSnapshotPerClan() {
+    // Given
+    entityManager.persistAndFlush(snapshot("#ABC123", 140, LocalDateTime.of(2025, 1, 1, 10, 0)));
+    entityManager.persistAndFlush(snapshot("#ABC123", 150, LocalDateTime.of(2025, 1, 1, 12, 0)));
+    entityManager.persistAndFlush(snapshot("#DEF456", 80, LocalDateTime.of(2025, 1, 1, 9, 0)));
+    entityManager.persistAndFlush(snapshot("#OTHER", 10, LocalDateTime.of(2025, 1, 1, 9, 0)));
+
+    // When
+    List<ClanSnapshot> result =
+        clanSnapshotRepository.findLatestByClanTags(List.of("#ABC123", "#DEF456", "#NOTFOUND"));
+
+    // Then
+    assertThat(result)
+        .extracting(ClanSnapshot::getClanTag, ClanSnapshot::getWarWins)
+        .containsExactlyInAnyOrder(tuple("#ABC123", 150), tuple("#DEF456", 80));
+  }
+
+  private static ClanSnapshot snapshot(String clanTag, int warWins, LocalDateTime ts) {
+    ClanSnapshot snapshot = new ClanSnapshot();
+    snapshot.setClanTag(clanTag);
+    snapshot.setName("Test Clan");
+    snapshot.setWarWins(warWins);
+    snapshot.setTs(ts);
+    return snapshot;
+  }
 }
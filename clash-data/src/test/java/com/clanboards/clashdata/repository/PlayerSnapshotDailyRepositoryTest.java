@@ -0,0 +1,65 @@
+package com.clanboards.clashdata.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.clanboards.clashdata.entity.PlayerSnapshotDaily;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+@DataJpaTest
+class PlayerSnapshotDailyRepositoryTest {
+
+  @Autowired private TestEntityManager entityManager;
+
+  @Autowired private PlayerSnapshotDailyRepository dailyRepository;
+
+  @Test
+  void testFindByPlayerTagsSince_GroupedByPlayerOldestFirst() {
+    // Given
+    entityManager.persistAndFlush(daily("#P2", LocalDate.of(2025, 1, 3), 900));
+    entityManager.persistAndFlush(daily("#P1", LocalDate.of(2025, 1, 3), 1010));
+    entityManager.persistAndFlush(daily("#P1", LocalDate.of(2025, 1, 2), 1000));
+    entityManager.persistAndFlush(daily("#P1", LocalDate.of(2024, 12, 30), 950));
+    entityManager.persistAndFlush(daily("#OTHER", LocalDate.of(2025, 1, 3), 10));
+
+    // When
+    List<PlayerSnapshotDaily> result =
+        dailyRepository.findByPlayerTagInAndDayGreaterThanEqualOrderByPlayerTagAscDayAsc(
+            List.of("#P1", "#P2"), LocalDate.of(2025, 1, 1));
+
+    // Then
+    assertThat(result)
+        .extracting(PlayerSnapshotDaily::getPlayerTag, PlayerSnapshotDaily::getTrophiesLast)
+        .containsExactly(tuple("#P1", 1000), tuple("#P1", 1010), tuple("#P2", 900));
+  }
+
+  @Test
+  void testDonationsDelta_HandlesSeasonReset() {
+    PlayerSnapshotDaily day = daily("#P1", LocalDate.of(2025, 1, 1), 1000);
+    day.setDonationsFirst(400);
+    day.setDonationsLast(460);
+    assertThat(day.getDonationsDelta()).isEqualTo(60);
+
+    // Counter reset to 0 during the day, then 25 more donations
+    day.setDonationsLast(25);
+    assertThat(day.getDonationsDelta()).isEqualTo(25);
+  }
+
+  private static PlayerSnapshotDaily daily(String playerTag, LocalDate day, int trophies) {
+    PlayerSnapshotDaily daily = new PlayerSnapshotDaily();
+    daily.setPlayerTag(playerTag);
+    daily.setDay(day);
+    daily.setSamples(1);
+    daily.setFirstTs(LocalDateTime.of(day, LocalTime.of(1, 0)));
+    daily.setLastTs(LocalDateTime.of(day, LocalTime.of(23, 0)));
+    daily.setTrophiesLast(trophies);
+    return daily;
+  }
+}
@@ -2,6 +2,7 @@ package com.clanboards.clashdata.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.clanboards.clashdata.entity.PlayerLatest;
 import com.clanboards.clashdata.entity.PlayerSnapshot;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -74,6 +75,8 @@ class PlayerSnapshotRepositoryTest {
     entityManager.persistAndFlush(player1Old);
     entityManager.persistAndFlush(player1New);
     entityManager.persistAndFlush(player2);
+    markLatest(player1New);
+    markLatest(player2);
 
     // When
     List<String> playerTags = List.of("#PLAYER1", "#PLAYER2");
@@ -118,4 +121,69 @@ class PlayerSnapshotRepositoryTest {
     // Then
     assertThat(results).isEmpty();
   }
+
+  @Test
+  void testFindByPlayerTagInAndTsAfter_OrdersByPlayerThenTs() {
+    // Given
+    entityManager.persistAndFlush(snapshot("#PLAYER2", LocalDateTime.of(2025, 1, 2, 10, 0, 0)));
+    entityManager.persistAndFlush(snapshot("#PLAYER1", LocalDateTime.of(2025, 1, 3, 10, 0, 0)));
+    entityManager.persistAndFlush(snapshot("#PLAYER1", LocalDateTime.of(2025, 1, 2, 10, 0, 0)));
+    entityManager.persistAndFlush(snapshot("#PLAYER1", LocalDateTime.of(2024, 12, 1, 10, 0, 0)));
+    entityManager.persistAndFlush(snapshot("#OTHER", LocalDateTime.of(2025, 1, 2, 10, 0, 0)));
+
+    // When
+    List<PlayerSnapshot> results =
+        playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            List.of("#PLAYER1", "#PLAYER2"), LocalDateTime.of(2025, 1, 1, 0, 0, 0));
+
+    // Then
+    assertThat(results)
+        .extracting(PlayerSnapshot::getPlayerTag)
+        .containsExactly("#PLAYER1", "#PLAYER1", "#PLAYER2");
+    assertThat(results.get(0).getTs()).isEqualTo(LocalDateTime.of(2025, 1, 2, 10, 0, 0));
+    assertThat(results.get(1).getTs()).isEqualTo(LocalDateTime.of(2025, 1, 3, 10, 0, 0));
+  }
+
+  @Test
+  void testFindLatestSnapshotsForClan_UsesLatestPointer() {
+    // Given
+    PlayerSnapshot stayed = snapshot("#PLAYER1", LocalDateTime.of(2025, 1, 2, 10, 0, 0));
+    PlayerSnapshot leftOld = snapshot("#PLAYER2", LocalDateTime.of(2025, 1, 1, 10, 0, 0));
+    PlayerSnapshot leftNew = snapshot("#PLAYER2", LocalDateTime.of(2025, 1, 2, 10, 0, 0));
+    leftNew.setClanTag("#OTHER");
+    entityManager.persistAndFlush(stayed);
+    entityManager.persistAndFlush(leftOld);
+    entityManager.persistAndFlush(leftNew);
+    markLatest(stayed);
+    markLatest(leftNew);
+
+    // When
+    List<PlayerSnapshot> results = playerSnapshotRepository.findLatestSnapshotsForClan("#CLAN123");
+
+    // Then - the player whose newest snapshot is in another clan is excluded
+    assertThat(results).extracting(PlayerSnapshot::getPlayerTag).containsExactly("#PLAYER1");
+    assertThat(results.get(0).getId()).isEqualTo(stayed.getId());
+  }
+
+  /** Stand-in for the insert trigger that maintains player_latest in PostgreSQL. */
+  private void markLatest(PlayerSnapshot snapshot) {
+    PlayerLatest latest = new PlayerLatest();
+    latest.setPlayerTag(snapshot.getPlayerTag());
+    latest.setSnapshotId(snapshot.getId());
+    latest.setClanTag(snapshot.getClanTag());
+    latest.setTs(snapshot.getTs());
+    entityManager.persistAndFlush(latest);
+  }
+
+  private PlayerSnapshot snapshot(String playerTag, LocalDateTime ts) {
+    PlayerSnapshot snapshot = new PlayerSnapshot();
+    snapshot.setPlayerTag(playerTag);
+    snapshot.setClanTag("#CLAN123");
+    snapshot.setName(playerTag);
+    snapshot.setTrophies(1000);
+    snapshot.setDonations(100);
+    snapshot.setDonationsReceived(100);
+    snapshot.setTs(ts);
+    return snapshot;
+  }
 }
@@ -0,0 +1,85 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class AssetCacheTest {
+
+  private static final Clock CLOCK =
+      Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneOffset.UTC);
+
+  @Test
+  void testGet_StreamsStoredBodyToEachReader() throws Exception {
+    AssetCache cache = new AssetCache(CLOCK, 1024 * 1024, 3600);
+    byte[] data = "icon".getBytes(StandardCharsets.UTF_8);
+    cache.put("https://example.com/a.png", data, "image/png", "\"v1\"", null);
+
+    AssetCache.CachedAsset asset = cache.get("https://example.com/a.png");
+
+    assertThat(asset.openStream().readAllBytes()).isEqualTo(data);
+    assertThat(asset.openStream().readAllBytes()).isEqualTo(data);
+    assertThat(asset.length()).isEqualTo(data.length);
+    assertThat(asset.contentType()).isEqualTo("image/png");
+    assertThat(asset.etag()).isEqualTo("\"v1\"");
+  }
+
+  @Test
+  void testGet_MissReturnsNull() {
+    AssetCache cache = new AssetCache(CLOCK, 1024 * 1024, 3600);
+
+    assertThat(cache.get("https://example.com/missing.png")).isNull();
+  }
+
+  @Test
+  void testBindTo_PublishesHitsAndMisses() {
+    AssetCache cache = new AssetCache(CLOCK, 1024 * 1024, 3600);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+    cache.put("https://example.com/a.png", new byte[] {1}, "image/png", null, null);
+
+    cache.get("https://example.com/a.png");
+    cache.get("https://example.com/missing.png");
+
+    assertThat(gets(registry, "hit")).isEqualTo(1.0);
+    assertThat(gets(registry, "miss")).isEqualTo(1.0);
+  }
+
+  @Test
+  void testIsFresh_FollowsTtlAndTouch() {
+    AssetCache cache = new AssetCache(CLOCK, 1024 * 1024, 3600);
+    AssetCache.CachedAsset asset =
+        cache.put("https://example.com/a.png", new byte[4], "", null, null);
+    AssetCache.CachedAsset old =
+        new AssetCache.CachedAsset(
+            asset.body(), "", null, null, null, CLOCK.instant().getEpochSecond() - 3601);
+
+    assertThat(cache.isFresh(asset)).isTrue();
+    assertThat(cache.isFresh(old)).isFalse();
+    assertThat(cache.isFresh(cache.touch("https://example.com/a.png", old))).isTrue();
+  }
+
+  @Test
+  void testPut_EvictsByTotalBytes() {
+    AssetCache cache = new AssetCache(CLOCK, 4096, 3600);
+    for (int i = 0; i < 10; i++) {
+      cache.put("https://example.com/" + i + ".png", new byte[1024], "image/png", null, null);
+    }
+    cache.cleanUp();
+
+    assertThat(cache.weightedSize()).isLessThanOrEqualTo(4096);
+  }
+
+  private static double gets(SimpleMeterRegistry registry, String result) {
+    return registry
+        .get("cache.gets")
+        .tags("cache", "assets", "result", result)
+        .functionCounter()
+        .count();
+  }
+}
@@ -0,0 +1,71 @@
+package com.clanboards.clashdata.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class AssetPrewarmerTest {
+
+  private static final String ICON_URL = "https://api-assets.clashofclans.com/leagues/36/a.png";
+
+  @Mock private AssetService assetService;
+  @Mock private AssetCache assetCache;
+
+  private AssetPrewarmer prewarmer;
+
+  @BeforeEach
+  void setUp() {
+    prewarmer =
+        new AssetPrewarmer(assetService, assetCache, "api-assets.clashofclans.com", true, 1, 10);
+  }
+
+  @AfterEach
+  void tearDown() {
+    prewarmer.shutdown();
+  }
+
+  @Test
+  void testPrewarm_FetchesAndDrainsUncachedIcon() throws Exception {
+    InputStream body = new ByteArrayInputStream(new byte[] {1, 2, 3});
+    when(assetService.getAsset(ICON_URL))
+        .thenReturn(new AssetService.AssetResponse(body, 3, "image/png", null));
+
+    prewarmer.prewarm(Arrays.asList(ICON_URL, null));
+
+    verify(assetService, timeout(1000)).getAsset(ICON_URL);
+  }
+
+  @Test
+  void testPrewarm_SkipsFreshCachedIcon() throws Exception {
+    AssetCache.CachedAsset cached =
+        new AssetCache.CachedAsset(ByteBuffer.allocate(0), "image/png", null, null, null, 0L);
+    when(assetCache.get(ICON_URL)).thenReturn(cached);
+    when(assetCache.isFresh(cached)).thenReturn(true);
+
+    prewarmer.prewarm(List.of(ICON_URL));
+
+    verify(assetService, never()).getAsset(ICON_URL);
+  }
+
+  @Test
+  void testPrewarm_SkipsOtherHosts() throws Exception {
+    prewarmer.prewarm(List.of("https://evil.com/a.png", "not a url"));
+
+    verify(assetService, never()).getAsset(any());
+  }
+}
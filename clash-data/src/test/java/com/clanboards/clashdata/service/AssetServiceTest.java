@@ -2,84 +2,218 @@ package com.clanboards.clashdata.service;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.clanboards.clashdata.util.ETags;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class AssetServiceTest {
 
-  @Mock private RestTemplate restTemplate;
+  @Mock private HttpClient httpClient;
 
+  private MutableClock clock;
   private AssetService assetService;
 
   private static final String TEST_URL = "https://api-assets.clashofclans.com/badges/512/test.png";
 
   @BeforeEach
   void setUp() {
-    assetService = new AssetService(restTemplate);
+    clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"));
+    assetService =
+        new AssetService(httpClient, new AssetCache(clock, 1024 * 1024, 3600), 1024, 86400);
   }
 
   @Test
-  public void getAsset_shouldReturnCachedResult() throws IOException {
+  public void getAsset_shouldStreamUpstreamBody() throws Exception {
     byte[] imageData = "test-image-data".getBytes();
-    ResponseEntity<byte[]> response =
-        ResponseEntity.ok().header("Content-Type", "image/png").body(imageData);
-
-    when(restTemplate.getForEntity(eq(TEST_URL), eq(byte[].class))).thenReturn(response);
+    stubResponse(200, imageData, Map.of("Content-Type", "image/png", "ETag", "\"v1\""));
 
     AssetService.AssetResponse result = assetService.getAsset(TEST_URL);
 
     assertEquals("image/png", result.contentType());
-    assertArrayEquals(imageData, result.data());
-    verify(restTemplate).getForEntity(eq(TEST_URL), eq(byte[].class));
+    assertEquals("\"v1\"", result.etag());
+    assertArrayEquals(imageData, result.body().readAllBytes());
   }
 
   @Test
-  public void getAsset_withDefaultContentType_shouldReturnImagePng() throws IOException {
-    byte[] imageData = "test-image-data".getBytes();
-    ResponseEntity<byte[]> response = new ResponseEntity<>(imageData, HttpStatus.OK);
-    // No Content-Type header set
-
-    when(restTemplate.getForEntity(eq(TEST_URL), eq(byte[].class))).thenReturn(response);
+  public void getAsset_withDefaultContentType_shouldReturnImagePng() throws Exception {
+    stubResponse(200, "test-image-data".getBytes(), Map.of());
 
     AssetService.AssetResponse result = assetService.getAsset(TEST_URL);
 
     assertEquals("image/png", result.contentType());
-    assertArrayEquals(imageData, result.data());
   }
 
   @Test
-  public void getAsset_whenRestTemplateThrowsException_shouldThrowRuntimeException() {
-    when(restTemplate.getForEntity(eq(TEST_URL), eq(byte[].class)))
-        .thenThrow(new RestClientException("Connection timeout"));
+  public void getAsset_whenHttpClientThrowsException_shouldThrowRuntimeException()
+      throws Exception {
+    when(httpClient.<InputStream>send(any(), any()))
+        .thenThrow(new IOException("Connection timeout"));
 
     assertThrows(RuntimeException.class, () -> assetService.getAsset(TEST_URL));
   }
 
   @Test
-  public void getAsset_withDifferentContentType_shouldReturnCorrectType() throws IOException {
-    byte[] svgData = "<svg></svg>".getBytes();
-    ResponseEntity<byte[]> response =
-        ResponseEntity.ok().header("Content-Type", "image/svg+xml").body(svgData);
+  public void getAsset_whenUpstreamFails_shouldThrowRuntimeException() throws Exception {
+    stubResponse(404, new byte[0], Map.of());
 
-    when(restTemplate.getForEntity(eq(TEST_URL), eq(byte[].class))).thenReturn(response);
+    assertThrows(RuntimeException.class, () -> assetService.getAsset(TEST_URL));
+  }
 
+  @Test
+  public void getAsset_repeatRequest_shouldBeServedFromCache() throws Exception {
+    byte[] imageData = "test-image-data".getBytes();
+    stubResponse(200, imageData, Map.of("Content-Type", "image/svg+xml"));
+
+    assetService.getAsset(TEST_URL).body().readAllBytes();
     AssetService.AssetResponse result = assetService.getAsset(TEST_URL);
 
     assertEquals("image/svg+xml", result.contentType());
-    assertArrayEquals(svgData, result.data());
+    assertEquals(imageData.length, result.contentLength());
+    assertArrayEquals(imageData, result.body().readAllBytes());
+    verify(httpClient, times(1)).send(any(), any());
+  }
+
+  @Test
+  public void getAsset_cachedWithoutUpstreamETag_shouldDeriveStrongETagFromBody() throws Exception {
+    byte[] imageData = "test-image-data".getBytes();
+    stubResponse(200, imageData, Map.of("Content-Type", "image/png"));
+
+    AssetService.AssetResponse first = assetService.getAsset(TEST_URL);
+    assertNull(first.etag());
+    first.body().readAllBytes();
+    AssetService.AssetResponse cached = assetService.getAsset(TEST_URL);
+
+    assertEquals(ETags.strong(imageData), cached.etag());
+  }
+
+  @Test
+  public void getAsset_partiallyReadBody_shouldNotBeCached() throws Exception {
+    stubResponse(200, "test-image-data".getBytes(), Map.of());
+
+    assetService.getAsset(TEST_URL).body().read();
+    assetService.getAsset(TEST_URL);
+
+    verify(httpClient, times(2)).send(any(), any());
+  }
+
+  @Test
+  public void getAsset_afterTtl_shouldRevalidateWithConditionalRequest() throws Exception {
+    byte[] imageData = "test-image-data".getBytes();
+    HttpResponse<InputStream> ok =
+        response(
+            200,
+            imageData,
+            Map.of("ETag", "\"v1\"", "Last-Modified", "Wed, 01 Jan 2025 10:00:00 GMT"));
+    HttpResponse<InputStream> notModified = response(304, new byte[0], Map.of());
+    when(httpClient.<InputStream>send(any(), any())).thenReturn(ok, notModified);
+
+    assetService.getAsset(TEST_URL).body().readAllBytes();
+    clock.advanceSeconds(3601);
+    AssetService.AssetResponse result = assetService.getAsset(TEST_URL);
+
+    assertArrayEquals(imageData, result.body().readAllBytes());
+    ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpClient, times(2)).send(requests.capture(), any());
+    HttpRequest revalidation = requests.getAllValues().get(1);
+    assertEquals("\"v1\"", revalidation.headers().firstValue("If-None-Match").orElseThrow());
+    assertEquals(
+        "Wed, 01 Jan 2025 10:00:00 GMT",
+        revalidation.headers().firstValue("If-Modified-Since").orElseThrow());
+
+    // Revalidation made the entry fresh again
+    assetService.getAsset(TEST_URL);
+    verify(httpClient, times(2)).send(any(), any());
+  }
+
+  @Test
+  public void getAsset_whenRevalidationFails_shouldServeCachedCopy() throws Exception {
+    byte[] imageData = "test-image-data".getBytes();
+    HttpResponse<InputStream> ok = response(200, imageData, Map.of());
+    when(httpClient.<InputStream>send(any(), any()))
+        .thenReturn(ok)
+        .thenThrow(new IOException("Connection reset"));
+
+    assetService.getAsset(TEST_URL).body().readAllBytes();
+    clock.advanceSeconds(3601);
+    AssetService.AssetResponse result = assetService.getAsset(TEST_URL);
+
+    assertArrayEquals(imageData, result.body().readAllBytes());
+  }
+
+  private void stubResponse(int status, byte[] body, Map<String, String> headers)
+      throws Exception {
+    HttpResponse<InputStream> response = response(status, body, headers);
+    when(httpClient.<InputStream>send(any(), any())).thenReturn(response);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static HttpResponse<InputStream> response(
+      int status, byte[] body, Map<String, String> headers) {
+    HttpResponse<InputStream> response = mock(HttpResponse.class);
+    lenient().when(response.statusCode()).thenReturn(status);
+    lenient().when(response.body()).thenAnswer(inv -> new ByteArrayInputStream(body));
+    Map<String, List<String>> headerValues =
+        headers.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, e -> List.of(e.getValue())));
+    lenient()
+        .when(response.headers())
+        .thenReturn(HttpHeaders.of(headerValues, (name, value) -> true));
+    return response;
+  }
+
+  private static final class MutableClock extends Clock {
+
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advanceSeconds(long seconds) {
+      now = now.plusSeconds(seconds);
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneOffset getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
   }
 }
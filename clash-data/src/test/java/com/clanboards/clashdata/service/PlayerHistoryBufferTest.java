@@ -0,0 +1,99 @@
+package com.clanboards.clashdata.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.clanboards.clashdata.entity.PlayerSnapshot;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PlayerHistoryBufferTest {
+
+  private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 12, 0, 0);
+  private static final long SYNCED = PlayerHistory.toEpoch(BASE.plusDays(30));
+
+  @Test
+  void testAppend_SkipsKnownRowsAndTrimsWindow() {
+    // Given
+    PlayerHistoryBuffer buffer = new PlayerHistoryBuffer();
+    buffer.append(
+        List.of(
+            snapshot(BASE, 1000, 1),
+            snapshot(BASE.plusDays(1), 1010, 1),
+            snapshot(BASE.plusDays(2), 1020, null)),
+        PlayerHistory.NO_TIME,
+        SYNCED);
+
+    // When - overlapping reload plus one new row, with the window moved past the first point
+    buffer.append(
+        List.of(snapshot(BASE.plusDays(2), 1020, null), snapshot(BASE.plusDays(3), 1030, 0)),
+        PlayerHistory.toEpoch(BASE),
+        SYNCED);
+    PlayerHistory history = buffer.since(PlayerHistory.NO_TIME);
+
+    // Then
+    assertEquals(3, history.size());
+    assertEquals(1010, history.trophies(0));
+    assertEquals(PlayerHistory.NONE, history.warAttacksUsed(1));
+    assertEquals(1030, history.trophies(2));
+    assertEquals(PlayerHistory.toEpoch(BASE.plusDays(3)), buffer.lastTs());
+  }
+
+  @Test
+  void testAppend_GrowsAcrossWrappedHead() {
+    // Given - a full buffer whose head has moved off slot zero
+    PlayerHistoryBuffer buffer = new PlayerHistoryBuffer();
+    buffer.append(hourly(0, 16), PlayerHistory.NO_TIME, SYNCED);
+    buffer.append(hourly(16, 4), PlayerHistory.toEpoch(BASE.plusHours(3)), SYNCED);
+
+    // When - appending past capacity forces a copy of the wrapped range
+    buffer.append(hourly(20, 10), PlayerHistory.toEpoch(BASE.plusHours(3)), SYNCED);
+    PlayerHistory history = buffer.since(PlayerHistory.NO_TIME);
+
+    // Then
+    assertEquals(26, history.size());
+    for (int i = 0; i < history.size(); i++) {
+      assertEquals(1004 + i, history.trophies(i));
+    }
+    assertEquals(5, buffer.since(PlayerHistory.toEpoch(BASE.plusHours(24))).size());
+    assertTrue(buffer.since(PlayerHistory.toEpoch(BASE.plusHours(29))).isEmpty());
+  }
+
+  @Test
+  void testIsCurrent_StaleAfterRecheckOrNewerKnownSnapshot() {
+    // Given
+    PlayerHistoryBuffer buffer = new PlayerHistoryBuffer();
+    assertFalse(buffer.isLoaded());
+    buffer.append(List.of(snapshot(BASE, 1000, 1)), PlayerHistory.NO_TIME, SYNCED);
+    long windowCutoff = PlayerHistory.toEpoch(BASE.minusDays(1));
+
+    // When / Then
+    assertTrue(buffer.isLoaded());
+    assertTrue(buffer.isCurrent(SYNCED - 60, windowCutoff));
+    assertFalse(buffer.isCurrent(SYNCED + 1, windowCutoff));
+
+    buffer.noteLatest(PlayerHistory.toEpoch(BASE));
+    assertTrue(buffer.isCurrent(SYNCED - 60, windowCutoff));
+    buffer.noteLatest(PlayerHistory.toEpoch(BASE.plusHours(1)));
+    assertFalse(buffer.isCurrent(SYNCED - 60, windowCutoff));
+  }
+
+  private List<PlayerSnapshot> hourly(int fromHour, int count) {
+    List<PlayerSnapshot> snapshots = new ArrayList<>();
+    for (int i = fromHour; i < fromHour + count; i++) {
+      snapshots.add(snapshot(BASE.plusHours(i), 1000 + i, 1));
+    }
+    return snapshots;
+  }
+
+  private PlayerSnapshot snapshot(LocalDateTime ts, int trophies, Integer warAttacksUsed) {
+    PlayerSnapshot snapshot = new PlayerSnapshot();
+    snapshot.setPlayerTag("#PLAYER1");
+    snapshot.setTs(ts);
+    snapshot.setTrophies(trophies);
+    snapshot.setDonations(100);
+    snapshot.setWarAttacksUsed(warAttacksUsed);
+    return snapshot;
+  }
+}
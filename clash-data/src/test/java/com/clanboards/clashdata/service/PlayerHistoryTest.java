@@ -0,0 +1,124 @@
+package com.clanboards.clashdata.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.clanboards.clashdata.entity.PlayerSnapshot;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PlayerHistoryTest {
+
+  private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 12, 0, 0);
+
+  @Test
+  void testOf_StoresColumnsOldestFirst() {
+    // Given
+    PlayerSnapshot first = snapshot(BASE, 1000, 100, null);
+    first.setLastSeen(BASE.minusHours(1));
+    PlayerSnapshot second = snapshot(BASE.plusHours(1), 1010, 110, 2);
+    second.setDonations(null);
+
+    // When
+    PlayerHistory history = PlayerHistory.of(List.of(first, second));
+
+    // Then
+    assertEquals(2, history.size());
+    assertEquals(PlayerHistory.toEpoch(BASE), history.ts(0));
+    assertEquals(1010, history.trophies(1));
+    assertEquals(0, history.donations(1)); // null donations stored as 0
+    assertEquals(PlayerHistory.NONE, history.warAttacksUsed(0));
+    assertEquals(2, history.warAttacksUsed(1));
+    assertEquals(PlayerHistory.toEpoch(BASE.minusHours(1)), history.lastSeen(0));
+    assertEquals(PlayerHistory.NO_TIME, history.lastSeen(1));
+    assertEquals(BASE.plusHours(1), PlayerHistory.fromEpoch(history.lastTs()));
+  }
+
+  @Test
+  void testAppend_SkipsKnownRowsAndTrimsWindow() {
+    // Given
+    PlayerHistory history =
+        PlayerHistory.of(
+            List.of(
+                snapshot(BASE, 1000, 100, 1),
+                snapshot(BASE.plusDays(1), 1010, 110, 1),
+                snapshot(BASE.plusDays(2), 1020, 120, 2)));
+
+    // When - overlapping reload plus one new row, with the window moved past the first point
+    PlayerHistory appended =
+        history.append(
+            List.of(
+                snapshot(BASE.plusDays(2), 1020, 120, 2),
+                snapshot(BASE.plusDays(3), 1030, 130, 0)),
+            PlayerHistory.toEpoch(BASE));
+
+    // Then
+    assertEquals(3, appended.size());
+    assertEquals(1010, appended.trophies(0));
+    assertEquals(1030, appended.trophies(2));
+    assertEquals(0, appended.warAttacksUsed(2));
+    assertEquals(3, history.size()); // original is unchanged
+  }
+
+  @Test
+  void testAppend_NothingNewReturnsSameInstance() {
+    // Given
+    PlayerHistory history = PlayerHistory.of(List.of(snapshot(BASE, 1000, 100, 1)));
+
+    // When / Then
+    assertSame(
+        history, history.append(List.of(snapshot(BASE, 1000, 100, 1)), PlayerHistory.NO_TIME));
+  }
+
+  @Test
+  void testSince_ReturnsPointsAfterCutoff() {
+    // Given
+    PlayerHistory history =
+        PlayerHistory.of(
+            List.of(
+                snapshot(BASE, 1000, 100, 1),
+                snapshot(BASE.plusDays(1), 1010, 110, 1),
+                snapshot(BASE.plusDays(2), 1020, 120, 2)));
+
+    // When / Then
+    assertEquals(2, history.since(PlayerHistory.toEpoch(BASE)).size());
+    assertEquals(1, history.since(PlayerHistory.toEpoch(BASE.plusHours(36))).size());
+    assertTrue(history.since(PlayerHistory.toEpoch(BASE.plusDays(5))).isEmpty());
+    assertSame(history, history.since(PlayerHistory.NO_TIME));
+  }
+
+  @Test
+  void testDownsample_KeepsEndpointsAndSpike() {
+    // Given - flat trophies with one spike
+    List<PlayerSnapshot> snapshots = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      snapshots.add(snapshot(BASE.plusHours(i), i == 5 ? 2000 : 1000, 100 + i, null));
+    }
+    PlayerHistory history = PlayerHistory.of(snapshots);
+
+    // When
+    PlayerHistory downsampled = history.downsample(4);
+
+    // Then
+    assertEquals(4, downsampled.size());
+    assertEquals(history.ts(0), downsampled.ts(0));
+    assertEquals(history.ts(9), downsampled.ts(3));
+    assertEquals(2000, downsampled.trophies(2));
+    assertEquals(105, downsampled.donations(2)); // columns stay aligned to the kept snapshot
+    assertSame(history, history.downsample(10));
+    assertSame(history, history.downsample(2));
+  }
+
+  private PlayerSnapshot snapshot(
+      LocalDateTime ts, int trophies, int donations, Integer warAttacksUsed) {
+    PlayerSnapshot snapshot = new PlayerSnapshot();
+    snapshot.setPlayerTag("#PLAYER1");
+    snapshot.setTs(ts);
+    snapshot.setTrophies(trophies);
+    snapshot.setDonations(donations);
+    snapshot.setDonationsReceived(donations);
+    snapshot.setWarAttacksUsed(warAttacksUsed);
+    return snapshot;
+  }
+}
@@ -0,0 +1,197 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.clanboards.clashdata.entity.PlayerSnapshot;
+import com.clanboards.clashdata.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class PlayerServiceTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Mock private SnapshotService snapshotService;
+  @Mock private LoyaltyService loyaltyService;
+  @Mock private RiskService riskService;
+  @Mock private PlayerSnapshotService playerSnapshotService;
+  @Mock private UserRepository userRepository;
+
+  private PlayerService playerService;
+
+  @BeforeEach
+  void setUp() {
+    playerService =
+        new PlayerService(
+            snapshotService,
+            loyaltyService,
+            riskService,
+            playerSnapshotService,
+            userRepository,
+            objectMapper,
+            200);
+  }
+
+  @AfterEach
+  void tearDown() {
+    playerService.shutdown();
+  }
+
+  @Test
+  void testGetPlayerProfile_AddsLoyaltyRiskAndBreakdown() throws Exception {
+    // Given
+    when(snapshotService.getPlayerJson("ABC")).thenReturn(json("{\"tag\":\"ABC\"}"));
+    when(loyaltyService.getClanLoyalty("ABC")).thenReturn(Map.of("ABC", 12));
+    when(riskService.getPlayerRisk(eq("ABC"), isNull()))
+        .thenReturn(
+            new RiskService.RiskCalculationResult(
+                40,
+                LocalDateTime.of(2025, 1, 1, 0, 0),
+                List.of(Map.of("points", 20, "reason", "Inactive for 3 days"))));
+
+    // When
+    JsonNode profile = playerService.getPlayerProfile("#abc");
+
+    // Then
+    assertThat(profile.get("tag").asText()).isEqualTo("ABC");
+    assertThat(profile.get("loyalty").asInt()).isEqualTo(12);
+    assertThat(profile.get("riskScore").asInt()).isEqualTo(40);
+    assertThat(profile.get("riskBreakdown")).hasSize(1);
+    assertThat(profile.get("riskBreakdown").get(0).get("points").asInt()).isEqualTo(20);
+  }
+
+  @Test
+  void testGetPlayerProfileJson_FailedPartsFallBackToDefaults() throws Exception {
+    // Given
+    when(snapshotService.getPlayerJson("ABC")).thenReturn(json("{\"tag\":\"ABC\"}"));
+    when(loyaltyService.getClanLoyalty("ABC")).thenThrow(new RuntimeException("db down"));
+    when(riskService.getPlayerRisk(eq("ABC"), isNull())).thenReturn(null);
+
+    // When
+    JsonNode profile = objectMapper.readTree(playerService.getPlayerProfileJson("ABC"));
+
+    // Then
+    assertThat(profile.get("tag").asText()).isEqualTo("ABC");
+    assertThat(profile.get("loyalty").asInt()).isZero();
+    assertThat(profile.get("riskScore").asInt()).isZero();
+    assertThat(profile.get("riskBreakdown")).isEmpty();
+  }
+
+  @Test
+  void testGetPlayerProfile_SlowPartTimesOutToDefault() throws Exception {
+    // Given
+    when(snapshotService.getPlayerJson("ABC")).thenReturn(json("{\"tag\":\"ABC\"}"));
+    when(loyaltyService.getClanLoyalty("ABC")).thenReturn(Map.of("ABC", 5));
+    CountDownLatch interrupted = new CountDownLatch(1);
+    when(riskService.getPlayerRisk(eq("ABC"), isNull()))
+        .thenAnswer(
+            inv -> {
+              try {
+                Thread.sleep(5_000);
+              } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+              }
+              return new RiskService.RiskCalculationResult(90, null, List.of());
+            });
+
+    // When
+    long start = System.nanoTime();
+    JsonNode profile = playerService.getPlayerProfile("ABC");
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+    // Then - the slow part is cancelled rather than left running
+    assertThat(elapsedMs).isLessThan(2_000);
+    assertThat(profile.get("loyalty").asInt()).isEqualTo(5);
+    assertThat(profile.get("riskScore").asInt()).isZero();
+    assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void testGetPlayerHistory_DeltaEncodesColumns() {
+    // Given
+    LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+    PlayerSnapshot first = snapshot(base, 5000, 100);
+    PlayerSnapshot second = snapshot(base.plusHours(1), 5030, 104);
+    second.setWarAttacksUsed(1);
+    PlayerSnapshot third = snapshot(base.plusHours(2), 4990, 104);
+    when(playerSnapshotService.getPlayerSeries("ABC", 7, HistoryResolution.RAW))
+        .thenReturn(PlayerHistory.of(List.of(first, second, third)));
+
+    // When
+    JsonNode history =
+        playerService.getPlayerHistory("ABC", 7, HistoryResolution.RAW, 0, HistoryEncoding.DELTA);
+
+    // Then
+    assertThat(history.get("encoding").asText()).isEqualTo("delta");
+    assertThat(history.get("points").asInt()).isEqualTo(3);
+    assertThat(history.get("ts").get(0).asLong()).isEqualTo(PlayerHistory.toEpoch(base));
+    assertThat(history.get("ts").get(1).asLong()).isEqualTo(3600);
+    assertThat(history.get("trophies")).extracting(JsonNode::asInt).containsExactly(5000, 30, -40);
+    assertThat(history.get("donations")).extracting(JsonNode::asInt).containsExactly(100, 4, 0);
+    assertThat(history.get("warAttacksUsed").get(0).isNull()).isTrue();
+    assertThat(history.get("warAttacksUsed").get(1).asInt()).isEqualTo(1);
+  }
+
+  @Test
+  void testGetPlayerHistory_PlainWritesValues() {
+    // Given
+    LocalDateTime base = LocalDateTime.of(2025, 1, 1, 12, 0);
+    when(playerSnapshotService.getPlayerSeries("ABC", 7, HistoryResolution.RAW))
+        .thenReturn(
+            PlayerHistory.of(
+                List.of(snapshot(base, 5000, 100), snapshot(base.plusHours(1), 5030, 104))));
+
+    // When
+    JsonNode history = playerService.getPlayerHistory("ABC", 7, HistoryResolution.RAW);
+
+    // Then
+    assertThat(history.get("encoding").asText()).isEqualTo("plain");
+    assertThat(history.get("ts").get(1).asLong())
+        .isEqualTo(PlayerHistory.toEpoch(base.plusHours(1)));
+    assertThat(history.get("trophies")).extracting(JsonNode::asInt).containsExactly(5000, 5030);
+    assertThat(history.get("donations")).extracting(JsonNode::asInt).containsExactly(100, 104);
+    assertThat(history.get("warAttacksUsed").get(1).isNull()).isTrue();
+  }
+
+  @Test
+  void testGetPlayerProfile_NoSnapshotReturnsNull() {
+    // Given
+    when(snapshotService.getPlayerJson("ABC")).thenReturn(null);
+
+    // When / Then - a missing player never pays for loyalty or risk
+    assertThat(playerService.getPlayerProfile("ABC")).isNull();
+    verifyNoInteractions(loyaltyService, riskService);
+  }
+
+  private static byte[] json(String body) {
+    return body.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static PlayerSnapshot snapshot(LocalDateTime ts, int trophies, int donations) {
+    PlayerSnapshot snapshot = new PlayerSnapshot();
+    snapshot.setPlayerTag("ABC");
+    snapshot.setTs(ts);
+    snapshot.setTrophies(trophies);
+    snapshot.setDonations(donations);
+    snapshot.setDonationsReceived(0);
+    return snapshot;
+  }
+}
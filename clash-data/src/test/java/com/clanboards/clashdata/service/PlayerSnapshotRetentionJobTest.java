@@ -0,0 +1,135 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.clanboards.clashdata.repository.PlayerSnapshotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class PlayerSnapshotRetentionJobTest {
+
+  private static final Clock CLOCK =
+      Clock.fixed(Instant.parse("2025-03-01T03:30:00Z"), ZoneOffset.UTC);
+
+  @Mock private PlayerSnapshotRepository playerSnapshotRepository;
+  @Mock private SnapshotCache snapshotCache;
+
+  private SimpleMeterRegistry meterRegistry;
+  private PlayerSnapshotRetentionJob job;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    // Raw for 2 days, hourly for days 3-4, daily beyond that
+    job =
+        new PlayerSnapshotRetentionJob(
+            playerSnapshotRepository, snapshotCache, CLOCK, meterRegistry, true, 2, 4, 60);
+  }
+
+  @Test
+  void testCompact_ThinsOlderDaysByBucketOneHourSliceAtATime() {
+    // Given - oldest row is on Feb 24; Feb 27 and later are in the raw window
+    when(playerSnapshotRepository.findOldestTs()).thenReturn(LocalDateTime.of(2025, 2, 24, 8, 0));
+    when(playerSnapshotRepository.deleteSupersededInBucket(
+            any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+        .thenReturn(0);
+    when(playerSnapshotRepository.deleteSupersededInBucket(
+            day(24).plusHours(3), day(24).plusHours(4), day(25)))
+        .thenReturn(100);
+    when(playerSnapshotRepository.deleteSupersededInBucket(
+            day(24).plusHours(23), day(25), day(25)))
+        .thenReturn(40);
+    when(playerSnapshotRepository.deleteSupersededInBucket(
+            day(26).plusHours(5), day(26).plusHours(6), day(26).plusHours(6)))
+        .thenReturn(7);
+
+    // When
+    long deleted = job.compact();
+
+    // Then - three days of 24 slices; daily slices keep the newest row of the whole day
+    assertThat(deleted).isEqualTo(147);
+    verify(playerSnapshotRepository, times(72))
+        .deleteSupersededInBucket(
+            any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class));
+    verify(playerSnapshotRepository, times(24))
+        .deleteSupersededInBucket(any(LocalDateTime.class), any(LocalDateTime.class), eq(day(25)));
+    verify(playerSnapshotRepository, never())
+        .deleteSupersededInBucket(eq(day(27)), any(LocalDateTime.class), any(LocalDateTime.class));
+    assertThat(compacted("day")).isEqualTo(140.0);
+    assertThat(compacted("hour")).isEqualTo(7.0);
+  }
+
+  @Test
+  void testCompact_NextPassSkipsDaysAlreadyThinnedToDaily() {
+    // Given
+    when(playerSnapshotRepository.findOldestTs()).thenReturn(LocalDateTime.of(2025, 2, 1, 0, 0));
+    when(playerSnapshotRepository.deleteSupersededInBucket(
+            any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+        .thenReturn(0);
+    job.compact();
+
+    // When
+    job.compact();
+
+    // Then - Feb 1 is only visited by the first pass
+    verify(playerSnapshotRepository, times(1))
+        .deleteSupersededInBucket(day(1), day(1).plusHours(1), day(2));
+    verify(playerSnapshotRepository, times(2))
+        .deleteSupersededInBucket(day(25), day(25).plusHours(1), day(25).plusHours(1));
+  }
+
+  @Test
+  void testRun_SkipsWhenAnotherNodeHoldsTheLock() {
+    // Given
+    when(snapshotCache.tryLock(PlayerSnapshotRetentionJob.LOCK_KEY, 60)).thenReturn(false);
+
+    // When
+    job.run();
+
+    // Then
+    verify(playerSnapshotRepository, never()).findOldestTs();
+    verify(snapshotCache, never()).unlock(anyString());
+  }
+
+  @Test
+  void testRun_RecordsPassTimeAndReleasesLock() {
+    // Given
+    when(snapshotCache.tryLock(PlayerSnapshotRetentionJob.LOCK_KEY, 60)).thenReturn(true);
+    when(playerSnapshotRepository.findOldestTs()).thenReturn(null);
+
+    // When
+    job.run();
+
+    // Then
+    assertThat(meterRegistry.get("player_snapshots.compaction").timer().count()).isEqualTo(1);
+    verify(snapshotCache).unlock(PlayerSnapshotRetentionJob.LOCK_KEY);
+  }
+
+  private double compacted(String resolution) {
+    return meterRegistry
+        .get("player_snapshots.compacted")
+        .tag("resolution", resolution)
+        .counter()
+        .count();
+  }
+
+  private static LocalDateTime day(int dayOfFebruary) {
+    return LocalDateTime.of(2025, 2, dayOfFebruary, 0, 0);
+  }
+}
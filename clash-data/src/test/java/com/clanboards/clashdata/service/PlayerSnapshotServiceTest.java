@@ -5,23 +5,33 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import com.clanboards.clashdata.entity.PlayerSnapshot;
+import com.clanboards.clashdata.entity.PlayerSnapshotDaily;
+import com.clanboards.clashdata.repository.PlayerSnapshotDailyRepository;
 import com.clanboards.clashdata.repository.PlayerSnapshotRepository;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
 
 @ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
 class PlayerSnapshotServiceTest {
 
   @Mock private PlayerSnapshotRepository playerSnapshotRepository;
+  @Mock private PlayerSnapshotDailyRepository dailyRepository;
+  @Mock private Clock clock;
 
-  @InjectMocks private PlayerSnapshotService playerSnapshotService;
+  private PlayerSnapshotService playerSnapshotService;
 
   private String playerTag;
   private LocalDateTime now;
@@ -30,6 +40,15 @@ class PlayerSnapshotServiceTest {
   void setUp() {
     playerTag = "#PLAYER123";
     now = LocalDateTime.of(2025, 1, 15, 12, 0, 0);
+    setClock(now);
+    playerSnapshotService =
+        new PlayerSnapshotService(
+            playerSnapshotRepository, dailyRepository, new PlayerHistoryCache(1000, 30, 60), clock);
+  }
+
+  private void setClock(LocalDateTime time) {
+    when(clock.instant()).thenReturn(time.atZone(ZoneId.systemDefault()).toInstant());
+    when(clock.getZone()).thenReturn(ZoneId.systemDefault());
   }
 
   @Test
@@ -125,6 +144,167 @@ class PlayerSnapshotServiceTest {
         .findByPlayerTagAndTsAfterOrderByTsAsc(eq(normalizedTag), any(LocalDateTime.class));
   }
 
+  @Test
+  void testGetPlayerSeries_LoadsWindowThenOnlyNewRows() {
+    // Given
+    LocalDateTime recent = now.minusDays(2);
+    PlayerSnapshot snap1 = createPlayerSnapshot(playerTag, recent, 1000, 500, 2);
+    PlayerSnapshot snap2 = createPlayerSnapshot(playerTag, recent.plusHours(1), 1010, 510, null);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            any(), any(LocalDateTime.class)))
+        .thenReturn(List.of(snap1, snap2));
+
+    // When - first read loads the whole window
+    PlayerHistory first = playerSnapshotService.getPlayerSeries(playerTag, 30);
+
+    // Then
+    assertEquals(2, first.size());
+    assertEquals(1010, first.trophies(1));
+    assertEquals(PlayerHistory.NONE, first.warAttacksUsed(1));
+
+    // When - a read after the recheck interval only asks for rows after the cached last point
+    setClock(now.plusMinutes(2));
+    PlayerSnapshot snap3 = createPlayerSnapshot(playerTag, recent.plusHours(2), 1020, 520, 1);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            any(), eq(recent.plusHours(1))))
+        .thenReturn(List.of(snap3));
+    PlayerHistory second = playerSnapshotService.getPlayerSeries(playerTag, 30);
+
+    // Then
+    assertEquals(3, second.size());
+    assertEquals(1020, second.trophies(2));
+    verify(playerSnapshotRepository)
+        .findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(any(), eq(recent.plusHours(1)));
+    verify(playerSnapshotRepository, never())
+        .findByPlayerTagAndTsAfterOrderByTsAsc(any(), any(LocalDateTime.class));
+  }
+
+  @Test
+  void testGetPlayerSeries_CurrentCacheSkipsQuery() {
+    // Given
+    LocalDateTime recent = now.minusDays(1);
+    PlayerSnapshot snap = createPlayerSnapshot(playerTag, recent, 1000, 500, 2);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            any(), any(LocalDateTime.class)))
+        .thenReturn(List.of(snap));
+    playerSnapshotService.getPlayerSeries(playerTag, 30);
+
+    // When - read again within the recheck interval
+    setClock(now.plusSeconds(30));
+    PlayerHistory second = playerSnapshotService.getPlayerSeries(playerTag, 30);
+
+    // Then
+    assertEquals(1, second.size());
+    verify(playerSnapshotRepository, times(1))
+        .findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(any(), any(LocalDateTime.class));
+  }
+
+  @Test
+  void testGetPlayerSeries_NewerLatestSnapshotForcesQuery() {
+    // Given
+    LocalDateTime recent = now.minusDays(1);
+    PlayerSnapshot snap = createPlayerSnapshot(playerTag, recent, 1000, 500, 2);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            any(), any(LocalDateTime.class)))
+        .thenReturn(List.of(snap));
+    playerSnapshotService.getPlayerSeries(playerTag, 30);
+
+    PlayerSnapshot newer = createPlayerSnapshot(playerTag, now, 1010, 510, 2);
+    when(playerSnapshotRepository.findTopByPlayerTagOrderByTsDesc(playerTag)).thenReturn(newer);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            any(), eq(recent)))
+        .thenReturn(List.of(newer));
+
+    // When - the latest snapshot is newer than the cache, even within the recheck interval
+    playerSnapshotService.getLatestSnapshot(playerTag);
+    PlayerHistory second = playerSnapshotService.getPlayerSeries(playerTag, 30);
+
+    // Then
+    assertEquals(2, second.size());
+    verify(playerSnapshotRepository)
+        .findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(any(), eq(recent));
+  }
+
+  @Test
+  void testGetPlayerSeries_UncachedPlayersLoadSeparatelyFromTail() {
+    // Given - PLAYER1 is cached, PLAYER2 is not
+    LocalDateTime recent = now.minusDays(1);
+    PlayerSnapshot p1 = createPlayerSnapshot("#PLAYER1", recent, 1000, 500, 2);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            eq(Set.of("#PLAYER1")), any(LocalDateTime.class)))
+        .thenReturn(List.of(p1));
+    playerSnapshotService.getPlayerSeries("#PLAYER1", 30);
+
+    LocalDateTime later = now.plusMinutes(2);
+    setClock(later);
+    PlayerSnapshot p2 = createPlayerSnapshot("#PLAYER2", now.minusDays(20), 900, 400, 1);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            eq(Set.of("#PLAYER2")), eq(later.minusDays(30))))
+        .thenReturn(List.of(p2));
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            eq(Set.of("#PLAYER1")), eq(recent)))
+        .thenReturn(List.of());
+
+    // When
+    Map<String, PlayerHistory> result =
+        playerSnapshotService.getPlayerSeries(List.of("#PLAYER1", "#PLAYER2"), 30);
+
+    // Then - the cached player only reads its tail, not the whole window
+    assertEquals(1, result.get("#PLAYER1").size());
+    assertEquals(1, result.get("#PLAYER2").size());
+    verify(playerSnapshotRepository)
+        .findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            eq(Set.of("#PLAYER2")), eq(later.minusDays(30)));
+    verify(playerSnapshotRepository)
+        .findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(eq(Set.of("#PLAYER1")), eq(recent));
+  }
+
+  @Test
+  void testGetPlayerSeries_BatchOmitsPlayersWithoutPoints() {
+    // Given
+    LocalDateTime recent = now.minusDays(1);
+    PlayerSnapshot snap = createPlayerSnapshot("#PLAYER1", recent, 1000, 500, 2);
+    when(playerSnapshotRepository.findByPlayerTagInAndTsAfterOrderByPlayerTagAscTsAsc(
+            eq(Set.of("#PLAYER1", "#PLAYER2")), any(LocalDateTime.class)))
+        .thenReturn(List.of(snap));
+
+    // When
+    Map<String, PlayerHistory> result =
+        playerSnapshotService.getPlayerSeries(List.of("#PLAYER1", "player2"), 30);
+
+    // Then
+    assertEquals(1, result.size());
+    assertEquals(1, result.get("#PLAYER1").size());
+    assertFalse(result.containsKey("#PLAYER2"));
+  }
+
+  @Test
+  void testGetDailySeries_OnePointPerDayFromRollups() {
+    // Given
+    LocalDateTime today = now;
+    PlayerSnapshotDaily yesterday = createDaily("#PLAYER1", today.minusDays(1), 1000, 500, 2);
+    PlayerSnapshotDaily latest = createDaily("#PLAYER1", today, 1010, 520, null);
+    PlayerSnapshotDaily outsideWindow = createDaily("#PLAYER2", today.minusDays(7), 900, 100, 1);
+    when(dailyRepository.findByPlayerTagInAndDayGreaterThanEqualOrderByPlayerTagAscDayAsc(
+            eq(Set.of("#PLAYER1", "#PLAYER2")), eq(today.minusDays(7).toLocalDate())))
+        .thenReturn(List.of(yesterday, latest, outsideWindow));
+
+    // When
+    Map<String, PlayerHistory> result =
+        playerSnapshotService.getPlayerSeries(
+            List.of("player1", "#PLAYER2"), 7, HistoryResolution.DAILY);
+
+    // Then - the cutoff day's row is dropped once its last point is older than the window
+    assertEquals(1, result.size());
+    PlayerHistory history = result.get("#PLAYER1");
+    assertEquals(2, history.size());
+    assertEquals(1010, history.trophies(1));
+    assertEquals(520, history.donations(1));
+    assertEquals(PlayerHistory.NONE, history.warAttacksUsed(1));
+    assertEquals(PlayerHistory.toEpoch(today), history.ts(1));
+    verifyNoInteractions(playerSnapshotRepository);
+  }
+
   @Test
   void testGetLatestSnapshotsForClan_WithMembers() {
     // Given
@@ -179,4 +359,18 @@ class PlayerSnapshotServiceTest {
     snapshot.setLastSeen(ts.minusHours(1)); // Last seen slightly before snapshot
     return snapshot;
   }
+
+  private PlayerSnapshotDaily createDaily(
+      String playerTag, LocalDateTime lastTs, int trophies, int donations, Integer warAttacksUsed) {
+    PlayerSnapshotDaily daily = new PlayerSnapshotDaily();
+    daily.setPlayerTag(playerTag);
+    daily.setDay(lastTs.toLocalDate());
+    daily.setSamples(4);
+    daily.setFirstTs(lastTs.minusHours(3));
+    daily.setLastTs(lastTs);
+    daily.setTrophiesLast(trophies);
+    daily.setDonationsLast(donations);
+    daily.setWarAttacksUsedMax(warAttacksUsed);
+    return daily;
+  }
 }
@@ -0,0 +1,121 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RiskKernelTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 15, 12, 0);
+  private static final long NOW_EPOCH = PlayerHistory.toEpoch(NOW);
+
+  @Test
+  void testScore_WeightsComponentsAndBuildsBreakdown() {
+    // Given - one of two attacks missed, idle 3 days, full deficit
+    PlayerRiskState state =
+        new PlayerRiskState(
+            NOW.minusHours(1),
+            NOW.minusDays(20),
+            0.5,
+            1,
+            2,
+            NOW.minusDays(2),
+            NOW.minusDays(3),
+            1.0,
+            0.0);
+
+    // When
+    RiskScore score = RiskKernel.score(state, NOW_EPOCH, RiskWeights.DEFAULT, new RiskScore());
+
+    // Then - 0.40 * 0.5 + 0.35 * 0.75 + 0.15 * 1.0 = 0.6125
+    assertThat(score.score()).isEqualTo(61);
+    assertThat(score.idleDays()).isEqualTo(3);
+    assertThat(score.lastActivity()).isEqualTo(PlayerHistory.toEpoch(NOW.minusDays(3)));
+    assertThat(score.breakdown())
+        .containsExactly(
+            Map.of("points", 20, "reason", "missed 1 war attack"),
+            Map.of("points", 26, "reason", "inactive for 3 days"),
+            Map.of("points", 15, "reason", "donation deficit"));
+  }
+
+  @Test
+  void testScore_WarInProgressIsNotPenalized() {
+    // Given - no attacks used yet in a war seen 10 hours ago
+    PlayerRiskState state =
+        new PlayerRiskState(NOW, NOW, 1.0, 0, 2, NOW.minusHours(10), NOW, 0.0, 0.0);
+
+    // When
+    RiskScore score = RiskKernel.score(state, NOW_EPOCH, RiskWeights.DEFAULT, new RiskScore());
+
+    // Then
+    assertThat(score.score()).isZero();
+    assertThat(score.breakdown()).isEmpty();
+  }
+
+  @Test
+  void testScore_ReusedResultIsOverwritten() {
+    // Given
+    RiskScore score = new RiskScore();
+    PlayerRiskState idle =
+        new PlayerRiskState(NOW, NOW, 0.0, null, 2, null, NOW.minusDays(5), 0, 0);
+    PlayerRiskState active = new PlayerRiskState(NOW, NOW, 0.0, null, 2, null, NOW, 0, 0);
+
+    // When
+    RiskKernel.score(idle, NOW_EPOCH, RiskWeights.DEFAULT, score);
+    RiskKernel.score(active, NOW_EPOCH, RiskWeights.DEFAULT, score);
+
+    // Then
+    assertThat(score.score()).isZero();
+    assertThat(score.idleDays()).isZero();
+    assertThat(score.breakdown()).isEmpty();
+  }
+
+  @Test
+  void testScoreAll_MatchesScoreForEveryProfileAndMember() {
+    // Given
+    PlayerRiskState[] states = {
+      new PlayerRiskState(NOW, NOW, 0.5, 1, 2, NOW.minusDays(2), NOW.minusDays(3), 1.0, 0.0),
+      new PlayerRiskState(NOW, NOW, 0.0, null, 2, null, NOW.minusDays(1), 0.2, 0.7)
+    };
+    RiskWeights[] profiles = {RiskWeights.DEFAULT, new RiskWeights(0.1, 0.6, 0.2, 0.1)};
+    double[] components = new double[states.length * RiskKernel.COMPONENTS];
+    for (int m = 0; m < states.length; m++) {
+      RiskKernel.components(states[m], NOW_EPOCH, components, m * RiskKernel.COMPONENTS);
+    }
+    double[] weights = new double[profiles.length * RiskKernel.COMPONENTS];
+    for (int p = 0; p < profiles.length; p++) {
+      profiles[p].copyTo(weights, p * RiskKernel.COMPONENTS);
+    }
+
+    // When
+    int[] scores = RiskKernel.scoreAll(components, states.length, weights, profiles.length);
+
+    // Then
+    RiskScore score = new RiskScore();
+    for (int p = 0; p < profiles.length; p++) {
+      for (int m = 0; m < states.length; m++) {
+        RiskKernel.score(states[m], NOW_EPOCH, profiles[p], score);
+        assertThat(scores[p * states.length + m]).isEqualTo(score.score());
+      }
+    }
+  }
+
+  @Test
+  void testWeightsOf_OverlaysKnownKeysOnDefaults() {
+    // Given
+    Map<String, Double> custom = new HashMap<>();
+    custom.put("war", 0.9);
+    custom.put("idle", null);
+    custom.put("unknown", 5.0);
+
+    // When
+    RiskWeights weights = RiskWeights.of(custom);
+
+    // Then
+    assertThat(weights).isEqualTo(new RiskWeights(0.9, 0.35, 0.15, 0.10));
+    assertThat(RiskWeights.of(null)).isSameAs(RiskWeights.DEFAULT);
+  }
+}
@@ -0,0 +1,192 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.clanboards.clashdata.events.ClanSnapshotRebuiltEvent;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class RiskLeaderboardServiceTest {
+
+  private static final Instant NOW = Instant.parse("2025-01-15T12:00:00Z");
+
+  @Mock private RiskService riskService;
+  @Mock private SnapshotService snapshotService;
+  @Mock private Clock clock;
+
+  private RiskLeaderboard leaderboard;
+  private RiskLeaderboardService service;
+
+  @BeforeEach
+  void setUp() {
+    leaderboard = spy(new RiskLeaderboard());
+    service =
+        new RiskLeaderboardService(
+            riskService, snapshotService, leaderboard, clock, 24, 2, 1000, 1, 10);
+  }
+
+  @AfterEach
+  void tearDown() {
+    service.shutdown();
+  }
+
+  @Test
+  void testGetAtRisk_IndexesColdClansOnce() {
+    // Given
+    when(clock.instant()).thenReturn(NOW);
+    when(riskService.scoreClanMembers("CLAN1")).thenReturn(List.of(member("#A", 80)));
+    when(riskService.scoreClanMembers("CLAN2"))
+        .thenReturn(List.of(member("#B", 30), member("#C", 90)));
+
+    // When
+    service.getAtRisk(List.of("#clan1", "#CLAN2"), 0, 100, 0);
+    List<Map<String, Object>> result = service.getAtRisk(List.of("CLAN1", "CLAN2"), 50, 100, 0);
+
+    // Then
+    assertThat(result)
+        .extracting(m -> m.get("player_tag"), m -> m.get("clan_tag"), m -> m.get("risk_score"))
+        .containsExactly(tuple("#C", "CLAN2", 90), tuple("#A", "CLAN1", 80));
+    verify(riskService, times(1)).scoreClanMembers("CLAN1");
+    verify(riskService, times(1)).scoreClanMembers("CLAN2");
+  }
+
+  @Test
+  void testGetAtRisk_FailedIndexIsNotTracked() {
+    // Given
+    when(clock.instant()).thenReturn(NOW);
+    when(riskService.scoreClanMembers("CLAN1"))
+        .thenThrow(new IllegalStateException("database down"))
+        .thenReturn(List.of(member("#A", 80)));
+
+    // When
+    List<Map<String, Object>> failed = service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+
+    // Then - nothing is tracked, and the next query tries again
+    assertThat(failed).isEmpty();
+    assertThat(leaderboard.trackedClans()).isEmpty();
+    LocalDateTime ts = LocalDateTime.of(2025, 1, 15, 12, 5);
+    service.onClanSnapshotRebuilt(new ClanSnapshotRebuiltEvent("CLAN1", ts));
+    verify(riskService, times(1)).scoreClanMembers("CLAN1");
+
+    List<Map<String, Object>> retried = service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+    assertThat(retried).extracting(m -> m.get("player_tag")).containsExactly("#A");
+    verify(riskService, times(2)).scoreClanMembers("CLAN1");
+  }
+
+  @Test
+  void testGetAtRisk_EvictsLeastRecentlyQueriedClanOverCap() {
+    // Given
+    when(clock.instant()).thenReturn(NOW);
+    when(riskService.scoreClanMembers("CLAN1")).thenReturn(List.of(member("#A", 10)));
+    when(riskService.scoreClanMembers("CLAN2")).thenReturn(List.of(member("#B", 20)));
+    when(riskService.scoreClanMembers("CLAN3")).thenReturn(List.of(member("#C", 30)));
+    service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+    service.getAtRisk(List.of("CLAN2"), 0, 100, 0);
+    service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+
+    // When
+    service.getAtRisk(List.of("CLAN3"), 0, 100, 0);
+
+    // Then
+    assertThat(leaderboard.trackedClans()).containsExactlyInAnyOrder("CLAN1", "CLAN3");
+  }
+
+  @Test
+  void testOnClanSnapshotRebuilt_ReindexesTrackedClansOnly() {
+    // Given
+    when(clock.instant()).thenReturn(NOW);
+    when(riskService.scoreClanMembers("CLAN1"))
+        .thenReturn(List.of(member("#A", 10)))
+        .thenReturn(List.of(member("#A", 75)));
+    service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+
+    // When
+    LocalDateTime ts = LocalDateTime.of(2025, 1, 15, 12, 5);
+    service.onClanSnapshotRebuilt(new ClanSnapshotRebuiltEvent("CLAN1", ts));
+    service.onClanSnapshotRebuilt(new ClanSnapshotRebuiltEvent("OTHER", ts));
+
+    // Then
+    verify(leaderboard, timeout(1000).times(2)).indexClan(eq("CLAN1"), anyList());
+    assertThat(leaderboard.top(List.of("CLAN1"), 0, 100, 0))
+        .extracting(RiskLeaderboard.Entry::score)
+        .containsExactly(75);
+    verify(riskService, never()).scoreClanMembers("OTHER");
+  }
+
+  @Test
+  void testRefresh_DropsIdleClansAndRefreshesSnapshotsOfTheRest() {
+    // Given
+    when(clock.instant()).thenReturn(NOW);
+    when(riskService.scoreClanMembers("CLAN1")).thenReturn(List.of(member("#A", 10)));
+    when(riskService.scoreClanMembers("CLAN2")).thenReturn(List.of(member("#B", 20)));
+    service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+    when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(20)));
+    service.getAtRisk(List.of("CLAN2"), 0, 100, 0);
+
+    // When - CLAN1 was last asked for 25 hours ago
+    when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(25)));
+    service.refresh();
+
+    // Then
+    assertThat(leaderboard.trackedClans()).containsExactly("CLAN2");
+    verify(snapshotService).getClansJson(List.of("CLAN2"));
+    verify(riskService, times(1)).scoreClanMembers("CLAN2");
+  }
+
+  @Test
+  void testRefresh_StaleClanIsRebuiltAndIndexedOnce() {
+    // Given - a tracked clan whose upstream data has stopped moving
+    when(clock.instant()).thenReturn(NOW);
+    when(riskService.scoreClanMembers("CLAN1")).thenReturn(List.of(member("#A", 10)));
+    service.getAtRisk(List.of("CLAN1"), 0, 100, 0);
+    LocalDateTime ts = LocalDateTime.of(2025, 1, 14, 12, 0);
+    // Each refresh finds the snapshot stale and rebuilds it with the same timestamp
+    when(snapshotService.getClansJson(List.of("CLAN1")))
+        .thenAnswer(
+            invocation -> {
+              service.onClanSnapshotRebuilt(new ClanSnapshotRebuiltEvent("CLAN1", ts));
+              return Map.of();
+            });
+
+    // When
+    service.refresh();
+    verify(leaderboard, timeout(1000).times(2)).indexClan(eq("CLAN1"), anyList());
+    service.refresh();
+
+    // Then - the cold index plus one for the rebuild; the repeat rebuild is skipped
+    verify(snapshotService, times(2)).getClansJson(List.of("CLAN1"));
+    verify(riskService, times(2)).scoreClanMembers("CLAN1");
+    verify(leaderboard, times(2)).indexClan(eq("CLAN1"), anyList());
+    verify(snapshotService, never()).getClanJson(anyString());
+  }
+
+  private static Map<String, Object> member(String playerTag, int score) {
+    Map<String, Object> member = new HashMap<>();
+    member.put("player_tag", playerTag);
+    member.put("name", "Player " + playerTag);
+    member.put("risk_score", score);
+    return member;
+  }
+}
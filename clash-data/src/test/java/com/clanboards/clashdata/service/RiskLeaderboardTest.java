@@ -0,0 +1,79 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RiskLeaderboardTest {
+
+  private final RiskLeaderboard leaderboard = new RiskLeaderboard();
+
+  @Test
+  void testTop_MergesClansByScoreWithinRange() {
+    // Given
+    leaderboard.indexClan("CLAN1", List.of(entry("#A", "CLAN1", 90), entry("#B", "CLAN1", 40)));
+    leaderboard.indexClan("CLAN2", List.of(entry("#C", "CLAN2", 60), entry("#D", "CLAN2", 90)));
+    leaderboard.indexClan("CLAN3", List.of(entry("#E", "CLAN3", 100)));
+
+    // When
+    List<RiskLeaderboard.Entry> top = leaderboard.top(List.of("CLAN1", "CLAN2"), 40, 90, 0);
+
+    // Then - CLAN3 was not asked for; equal scores are ordered by player tag
+    assertThat(top)
+        .extracting(RiskLeaderboard.Entry::playerTag)
+        .containsExactly("#A", "#D", "#C", "#B");
+  }
+
+  @Test
+  void testTop_LimitAndMinScore() {
+    // Given
+    leaderboard.indexClan(
+        "CLAN1",
+        List.of(entry("#A", "CLAN1", 80), entry("#B", "CLAN1", 70), entry("#C", "CLAN1", 10)));
+    leaderboard.indexClan("CLAN2", List.of(entry("#D", "CLAN2", 75), entry("#E", "CLAN2", 20)));
+
+    // When
+    List<RiskLeaderboard.Entry> top = leaderboard.top(List.of("CLAN1", "CLAN2"), 50, 100, 2);
+
+    // Then
+    assertThat(top).extracting(RiskLeaderboard.Entry::playerTag).containsExactly("#A", "#D");
+    assertThat(leaderboard.top(List.of("CLAN1"), 90, 100, 0)).isEmpty();
+    assertThat(leaderboard.top(List.of("UNKNOWN"), 0, 100, 0)).isEmpty();
+  }
+
+  @Test
+  void testIndexClan_ReplacesMembersAndFollowsMoves() {
+    // Given
+    leaderboard.indexClan("CLAN1", List.of(entry("#A", "CLAN1", 50), entry("#B", "CLAN1", 60)));
+    leaderboard.indexClan("CLAN2", List.of(entry("#C", "CLAN2", 30)));
+
+    // When - #A moved to CLAN2 and #B left CLAN1 before CLAN1 is re-indexed
+    leaderboard.indexClan("CLAN2", List.of(entry("#C", "CLAN2", 30), entry("#A", "CLAN2", 55)));
+    List<RiskLeaderboard.Entry> beforeRefresh = leaderboard.top(List.of("CLAN1"), 0, 100, 0);
+    leaderboard.indexClan("CLAN1", List.of());
+
+    // Then
+    assertThat(beforeRefresh).extracting(RiskLeaderboard.Entry::playerTag).containsExactly("#B");
+    assertThat(leaderboard.top(List.of("CLAN1", "CLAN2"), 0, 100, 0))
+        .containsExactly(entry("#A", "CLAN2", 55), entry("#C", "CLAN2", 30));
+  }
+
+  @Test
+  void testRemoveClan_StopsTracking() {
+    // Given
+    leaderboard.indexClan("CLAN1", List.of(entry("#A", "CLAN1", 50)));
+
+    // When
+    leaderboard.removeClan("CLAN1");
+
+    // Then
+    assertThat(leaderboard.tracks("CLAN1")).isFalse();
+    assertThat(leaderboard.trackedClans()).isEmpty();
+    assertThat(leaderboard.top(List.of("CLAN1"), 0, 100, 0)).isEmpty();
+  }
+
+  private static RiskLeaderboard.Entry entry(String playerTag, String clanTag, int score) {
+    return new RiskLeaderboard.Entry(playerTag, clanTag, "Player " + playerTag, score);
+  }
+}
@@ -1,6 +1,7 @@
 package com.clanboards.clashdata.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import com.clanboards.clashdata.entity.PlayerSnapshot;
@@ -15,7 +16,6 @@ import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
@@ -29,7 +29,8 @@ class RiskServiceTest {
   @Mock private SnapshotService snapshotService;
   @Mock private Clock clock;
 
-  @InjectMocks private RiskService riskService;
+  private PlayerRiskStateStore riskStateStore;
+  private RiskService riskService;
 
   private LocalDateTime now;
   private String clanTag;
@@ -43,6 +44,11 @@ class RiskServiceTest {
     ZonedDateTime fixedInstant = now.atZone(ZoneId.systemDefault());
     when(clock.instant()).thenReturn(fixedInstant.toInstant());
     when(clock.getZone()).thenReturn(ZoneId.systemDefault());
+
+    riskStateStore = new PlayerRiskStateStore(1000);
+    riskService =
+        new RiskService(
+            playerSnapshotService, snapshotService, riskStateStore, clock, HistoryResolution.RAW);
   }
 
   @Test
@@ -62,7 +68,6 @@ class RiskServiceTest {
             createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(10), 900, 450, 200, 1),
             createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(5), 950, 475, 250, 2),
             player1Latest);
-    when(playerSnapshotService.getPlayerHistory("#PLAYER1", 30)).thenReturn(player1History);
 
     // Mock history for player 2 (high risk - idle for 4 days, no war attacks)
     List<PlayerSnapshot> player2History =
@@ -72,7 +77,14 @@ class RiskServiceTest {
             player2Latest);
     // Set last seen to 4 days ago (high idle risk)
     player2Latest.setLastSeen(now.minusDays(4));
-    when(playerSnapshotService.getPlayerHistory("#PLAYER2", 30)).thenReturn(player2History);
+    when(playerSnapshotService.getPlayerSeries(
+            List.of("#PLAYER1", "#PLAYER2"), 30, HistoryResolution.RAW))
+        .thenReturn(
+            Map.of(
+                "#PLAYER1",
+                PlayerHistory.of(player1History),
+                "#PLAYER2",
+                PlayerHistory.of(player2History)));
 
     // When
     List<Map<String, Object>> result = riskService.getClanAtRisk(clanTag, null);
@@ -94,10 +106,11 @@ class RiskServiceTest {
     assertTrue(firstPlayer.containsKey("last_seen"));
     assertTrue(firstPlayer.containsKey("risk_breakdown"));
 
-    verify(snapshotService).getClan(clanTag);
+    verify(snapshotService).getClanJson(clanTag);
     verify(playerSnapshotService).getLatestSnapshotsForClan(clanTag);
-    verify(playerSnapshotService).getPlayerHistory("#PLAYER1", 30);
-    verify(playerSnapshotService).getPlayerHistory("#PLAYER2", 30);
+    verify(playerSnapshotService)
+        .getPlayerSeries(List.of("#PLAYER1", "#PLAYER2"), 30, HistoryResolution.RAW);
+    verify(playerSnapshotService, never()).getPlayerSeries(anyString(), anyInt(), any());
   }
 
   @Test
@@ -112,11 +125,25 @@ class RiskServiceTest {
     assertNotNull(result);
     assertTrue(result.isEmpty());
 
-    verify(snapshotService).getClan(clanTag);
+    verify(snapshotService).getClanJson(clanTag);
     verify(playerSnapshotService).getLatestSnapshotsForClan(clanTag);
     verifyNoMoreInteractions(playerSnapshotService); // Empty clan means no player history calls
   }
 
+  @Test
+  void testScoreClanMembers_LeavesClanSnapshotAlone() {
+    // Given
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag)).thenReturn(Arrays.asList());
+
+    // When
+    List<Map<String, Object>> result = riskService.scoreClanMembers(clanTag);
+
+    // Then
+    assertTrue(result.isEmpty());
+    verify(playerSnapshotService).getLatestSnapshotsForClan(clanTag);
+    verifyNoInteractions(snapshotService);
+  }
+
   @Test
   void testGetClanAtRisk_WithCustomWeights() {
     // Given
@@ -135,7 +162,8 @@ class RiskServiceTest {
         Arrays.asList(
             createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(5), 950, 450, 250, 2),
             playerLatest);
-    when(playerSnapshotService.getPlayerHistory("#PLAYER1", 30)).thenReturn(playerHistory);
+    when(playerSnapshotService.getPlayerSeries(List.of("#PLAYER1"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(playerHistory)));
 
     // When
     List<Map<String, Object>> result = riskService.getClanAtRisk(clanTag, customWeights);
@@ -148,7 +176,254 @@ class RiskServiceTest {
     assertTrue(player.containsKey("risk_score"));
     assertTrue(player.containsKey("risk_breakdown"));
 
-    verify(snapshotService).getClan(clanTag);
+    verify(snapshotService).getClanJson(clanTag);
+  }
+
+  @Test
+  void testGetClanAtRisk_SkipsMembersWithoutHistory() {
+    // Given
+    PlayerSnapshot player1Latest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 2);
+    PlayerSnapshot player2Latest =
+        createPlayerSnapshot("#PLAYER2", "Player Two", now.minusDays(2), 900, 400, 250, 0);
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag))
+        .thenReturn(Arrays.asList(player1Latest, player2Latest));
+    when(playerSnapshotService.getPlayerSeries(
+            List.of("#PLAYER1", "#PLAYER2"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(List.of(player1Latest))));
+
+    // When
+    List<Map<String, Object>> result = riskService.getClanAtRisk(clanTag, null);
+
+    // Then
+    assertEquals(1, result.size());
+    assertEquals("#PLAYER1", result.get(0).get("player_tag"));
+    verify(playerSnapshotService, times(1))
+        .getPlayerSeries(anyList(), eq(30), eq(HistoryResolution.RAW));
+  }
+
+  @Test
+  void testGetClanAtRisk_SkipsMembersOutsideHistoryWindow() {
+    // Given
+    PlayerSnapshot gone =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(40), 1000, 500, 300, 2);
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag)).thenReturn(List.of(gone));
+
+    // When
+    List<Map<String, Object>> result = riskService.getClanAtRisk(clanTag, null);
+
+    // Then
+    assertTrue(result.isEmpty());
+    verify(playerSnapshotService, never()).getPlayerSeries(anyList(), anyInt(), any());
+  }
+
+  @Test
+  void testGetClanAtRisk_LimitAndMinScoreKeepTopMembers() {
+    // Given - player 2 is idle for 4 days, player 3 for 3 days, player 1 is active
+    PlayerSnapshot player1 =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 2);
+    PlayerSnapshot player2 =
+        createPlayerSnapshot("#PLAYER2", "Player Two", now.minusDays(1), 900, 400, 250, 2);
+    player2.setLastSeen(now.minusDays(4));
+    PlayerSnapshot player3 =
+        createPlayerSnapshot("#PLAYER3", "Player Three", now.minusDays(1), 800, 400, 250, 2);
+    player3.setLastSeen(now.minusDays(3));
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag))
+        .thenReturn(List.of(player1, player2, player3));
+    when(playerSnapshotService.getPlayerSeries(
+            List.of("#PLAYER1", "#PLAYER2", "#PLAYER3"), 30, HistoryResolution.RAW))
+        .thenReturn(
+            Map.of(
+                "#PLAYER1",
+                PlayerHistory.of(List.of(player1)),
+                "#PLAYER2",
+                PlayerHistory.of(List.of(player2)),
+                "#PLAYER3",
+                PlayerHistory.of(List.of(player3))));
+    List<Map<String, Object>> all = riskService.getClanAtRisk(clanTag, null);
+
+    // When
+    List<Map<String, Object>> top = riskService.getClanAtRisk(clanTag, null, 1, 0);
+    List<Map<String, Object>> aboveIdle =
+        riskService.getClanAtRisk(clanTag, null, 0, (Integer) all.get(1).get("risk_score"));
+
+    // Then
+    assertEquals(
+        List.of("#PLAYER2", "#PLAYER3", "#PLAYER1"),
+        all.stream().map(r -> r.get("player_tag")).toList());
+    assertEquals(List.of(all.get(0)), top);
+    assertEquals(all.subList(0, 2), aboveIdle);
+  }
+
+  @Test
+  void testSelectTop_BoundedHeapKeepsOrderAndTies() {
+    int[] scores = {10, 50, 30, 50, 0, 70};
+
+    assertArrayEquals(new int[] {5, 1, 3}, RiskService.selectTop(scores, 6, 3, 0));
+    assertArrayEquals(new int[] {5, 1, 3, 2}, RiskService.selectTop(scores, 6, 0, 30));
+    assertArrayEquals(new int[] {5, 1, 3, 2, 0, 4}, RiskService.selectTop(scores, 6, 10, 0));
+    assertArrayEquals(new int[] {1, 0}, RiskService.selectTop(scores, 2, 0, 0));
+    assertArrayEquals(new int[0], RiskService.selectTop(scores, 6, 3, 80));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testSimulateClanAtRisk_MatchesAtRiskScoresForEachProfile() {
+    // Given
+    PlayerSnapshot player1Latest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 1);
+    PlayerSnapshot player2Latest =
+        createPlayerSnapshot("#PLAYER2", "Player Two", now.minusDays(1), 900, 100, 250, 2);
+    player2Latest.setLastSeen(now.minusDays(3));
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag))
+        .thenReturn(List.of(player1Latest, player2Latest));
+    when(playerSnapshotService.getPlayerSeries(
+            List.of("#PLAYER1", "#PLAYER2"), 30, HistoryResolution.RAW))
+        .thenReturn(
+            Map.of(
+                "#PLAYER1",
+                PlayerHistory.of(List.of(player1Latest)),
+                "#PLAYER2",
+                PlayerHistory.of(List.of(player2Latest))));
+    Map<String, Double> warOnly = Map.of("war", 1.0, "idle", 0.0, "don_deficit", 0.0);
+    Map<String, Double> idleHeavy = Map.of("idle", 0.9);
+
+    // When
+    Map<String, Object> simulation =
+        riskService.simulateClanAtRisk(clanTag, List.of(warOnly, idleHeavy));
+
+    // Then
+    List<Map<String, Object>> members = (List<Map<String, Object>>) simulation.get("members");
+    List<Map<String, Object>> profiles = (List<Map<String, Object>>) simulation.get("profiles");
+    assertEquals(
+        List.of("#PLAYER1", "#PLAYER2"), members.stream().map(m -> m.get("player_tag")).toList());
+    assertEquals(2, profiles.size());
+    for (int p = 0; p < 2; p++) {
+      Map<String, Double> weights = p == 0 ? warOnly : idleHeavy;
+      int[] scores = (int[]) profiles.get(p).get("scores");
+      int[] ranking = (int[]) profiles.get(p).get("ranking");
+      List<Map<String, Object>> expected = riskService.getClanAtRisk(clanTag, weights);
+      for (int r = 0; r < ranking.length; r++) {
+        Map<String, Object> member = members.get(ranking[r]);
+        assertEquals(expected.get(r).get("player_tag"), member.get("player_tag"));
+        assertEquals(expected.get(r).get("risk_score"), scores[ranking[r]]);
+      }
+    }
+    assertEquals(0.9, ((Map<String, Double>) profiles.get(1).get("weights")).get("idle"));
+    verify(playerSnapshotService, times(1))
+        .getPlayerSeries(anyList(), eq(30), eq(HistoryResolution.RAW));
+  }
+
+  @Test
+  void testGetClanAtRisk_ReusesStoredStateUntilNewSnapshotLands() {
+    // Given
+    PlayerSnapshot older =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(5), 950, 450, 250, 2);
+    PlayerSnapshot latest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 2);
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag)).thenReturn(List.of(latest));
+    when(playerSnapshotService.getPlayerSeries(List.of("#PLAYER1"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(List.of(older, latest))));
+
+    // When - first call materializes, second call reads the stored state
+    List<Map<String, Object>> first = riskService.getClanAtRisk(clanTag, null);
+    List<Map<String, Object>> second = riskService.getClanAtRisk(clanTag, null);
+
+    // Then
+    assertEquals(first.get(0).get("risk_score"), second.get(0).get("risk_score"));
+    verify(playerSnapshotService, times(1))
+        .getPlayerSeries(anyList(), eq(30), eq(HistoryResolution.RAW));
+    assertNotNull(riskStateStore.get("#PLAYER1"));
+
+    // When - a newer snapshot lands, only then is the history reloaded
+    PlayerSnapshot newer =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusHours(1), 1010, 520, 300, 2);
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag)).thenReturn(List.of(newer));
+    when(playerSnapshotService.getPlayerSeries(List.of("#PLAYER1"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(List.of(older, latest, newer))));
+    riskService.getClanAtRisk(clanTag, null);
+
+    verify(playerSnapshotService, times(2))
+        .getPlayerSeries(anyList(), eq(30), eq(HistoryResolution.RAW));
+    assertEquals(newer.getTs(), riskStateStore.get("#PLAYER1").snapshotTs());
+  }
+
+  @Test
+  void testGetClanAtRisk_RebuildsStateOnceWindowSlidesPastOldestSnapshot() {
+    // Given - no new snapshot lands, but the oldest one is about to leave the 30-day window
+    PlayerSnapshot oldest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(29), 900, 400, 250, 0);
+    PlayerSnapshot latest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 2);
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag)).thenReturn(List.of(latest));
+    when(playerSnapshotService.getPlayerSeries(List.of("#PLAYER1"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(List.of(oldest, latest))));
+    riskService.getClanAtRisk(clanTag, null);
+
+    // When - two days later the oldest snapshot is outside the window
+    when(clock.instant()).thenReturn(now.plusDays(2).atZone(ZoneId.systemDefault()).toInstant());
+    when(playerSnapshotService.getPlayerSeries(List.of("#PLAYER1"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(List.of(latest))));
+    riskService.getClanAtRisk(clanTag, null);
+
+    // Then
+    verify(playerSnapshotService, times(2))
+        .getPlayerSeries(anyList(), eq(30), eq(HistoryResolution.RAW));
+    assertEquals(latest.getTs(), riskStateStore.get("#PLAYER1").windowStart());
+  }
+
+  @Test
+  void testGetClanAtRisk_CustomWeightsRescoreStoredState() {
+    // Given - idle player with no war or donation risk
+    PlayerSnapshot latest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 2);
+    latest.setLastSeen(now.minusDays(5));
+    when(playerSnapshotService.getLatestSnapshotsForClan(clanTag)).thenReturn(List.of(latest));
+    when(playerSnapshotService.getPlayerSeries(List.of("#PLAYER1"), 30, HistoryResolution.RAW))
+        .thenReturn(Map.of("#PLAYER1", PlayerHistory.of(List.of(latest))));
+
+    // When
+    int defaultScore =
+        (Integer) riskService.getClanAtRisk(clanTag, null).get(0).get("risk_score");
+    int idleHeavyScore =
+        (Integer)
+            riskService.getClanAtRisk(clanTag, Map.of("idle", 0.9)).get(0).get("risk_score");
+
+    // Then
+    assertEquals(35, defaultScore);
+    assertEquals(90, idleHeavyScore);
+    verify(playerSnapshotService, times(1))
+        .getPlayerSeries(anyList(), eq(30), eq(HistoryResolution.RAW));
+  }
+
+  @Test
+  void testGetPlayerRisk_UsesStoredStateForCurrentSnapshot() {
+    // Given
+    PlayerSnapshot latest =
+        createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 0);
+    when(playerSnapshotService.getLatestSnapshot("#PLAYER1")).thenReturn(latest);
+    when(playerSnapshotService.getPlayerSeries("#PLAYER1", 30, HistoryResolution.RAW))
+        .thenReturn(PlayerHistory.of(List.of(latest)));
+
+    // When
+    RiskService.RiskCalculationResult first = riskService.getPlayerRisk("#PLAYER1", null);
+    RiskService.RiskCalculationResult second = riskService.getPlayerRisk("#PLAYER1", null);
+
+    // Then
+    assertNotNull(first);
+    assertEquals(first.score(), second.score());
+    assertFalse(first.breakdown().isEmpty());
+    verify(playerSnapshotService, times(1)).getPlayerSeries("#PLAYER1", 30, HistoryResolution.RAW);
+  }
+
+  @Test
+  void testGetPlayerRisk_NoSnapshots() {
+    // Given
+    when(playerSnapshotService.getLatestSnapshot("#GHOST")).thenReturn(null);
+
+    // When / Then
+    assertNull(riskService.getPlayerRisk("#GHOST", null));
+    verify(playerSnapshotService, never()).getPlayerSeries(anyString(), anyInt(), any());
   }
 
   @Test
@@ -162,7 +437,7 @@ class RiskServiceTest {
             );
 
     // When
-    int riskScore = riskService.calculateRiskScore(history, null, null);
+    int riskScore = riskService.calculateRiskScore(history, null);
 
     // Then
     assertTrue(riskScore > 0, "Risk score should be > 0 for player with no war attacks");
@@ -181,7 +456,7 @@ class RiskServiceTest {
             recentSnapshot);
 
     // When
-    int riskScore = riskService.calculateRiskScore(history, null, null);
+    int riskScore = riskService.calculateRiskScore(history, null);
 
     // Then
     assertTrue(riskScore > 0, "Risk score should be > 0 for idle player");
@@ -196,7 +471,7 @@ class RiskServiceTest {
             createPlayerSnapshot("#PLAYER1", "Player One", now.minusDays(1), 1000, 500, 300, 2));
 
     // When
-    int riskScore = riskService.calculateRiskScore(history, null, null);
+    int riskScore = riskService.calculateRiskScore(history, null);
 
     // Then
     assertTrue(riskScore >= 0 && riskScore <= 100, "Risk score should be between 0-100");
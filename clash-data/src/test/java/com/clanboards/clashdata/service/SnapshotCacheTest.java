@@ -0,0 +1,293 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotCacheTest {
+
+  private static final Clock CLOCK =
+      Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneOffset.UTC);
+
+  @Mock private StringRedisTemplate redisTemplate;
+  @Mock private RedisConnection connection;
+  @Mock private RedisStringCommands stringCommands;
+  @Mock private RedisMessageListenerContainer listenerContainer;
+
+  private SimpleMeterRegistry meterRegistry;
+  private SnapshotCache snapshotCache;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(connection.stringCommands()).thenReturn(stringCommands);
+    lenient()
+        .when(redisTemplate.execute(any(RedisCallback.class)))
+        .thenAnswer(inv -> inv.<RedisCallback<?>>getArgument(0).doInRedis(connection));
+    lenient()
+        .when(redisTemplate.executePipelined(any(RedisCallback.class)))
+        .thenAnswer(
+            inv -> {
+              inv.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+              return List.of();
+            });
+    meterRegistry = new SimpleMeterRegistry();
+    snapshotCache =
+        new SnapshotCache(redisTemplate, listenerContainer, CLOCK, meterRegistry, 100, 10);
+  }
+
+  @Test
+  void testGet_ReadsBodyAndTimestampInOneMget() {
+    // Given
+    byte[] body = bytes("{\"tag\":\"ABC\"}");
+    when(stringCommands.mGet(
+            bytes("snapshot:clan:ABC"),
+            bytes("snapshot:clan:ABC:ts"),
+            bytes("snapshot:clan:ABC:at")))
+        .thenReturn(Arrays.asList(body, bytes("1735732800"), bytes("1735732860")));
+
+    // When
+    SnapshotCache.Entry entry = snapshotCache.get("snapshot:clan:ABC");
+
+    // Then
+    assertThat(entry.body()).isSameAs(body);
+    assertThat(entry.ts()).isEqualTo(1735732800L);
+    assertThat(entry.cachedAt()).isEqualTo(1735732860L);
+    assertThat(entry.age(1735732900L)).isEqualTo(40L);
+  }
+
+  @Test
+  void testGet_MissReturnsNull() {
+    // Given
+    when(stringCommands.mGet(any(byte[].class), any(byte[].class), any(byte[].class)))
+        .thenReturn(Arrays.asList(null, null, null));
+
+    // When / Then
+    assertThat(snapshotCache.get("snapshot:clan:ABC")).isNull();
+  }
+
+  @Test
+  void testGet_InvalidTimestampIsIgnored() {
+    // Given
+    when(stringCommands.mGet(any(byte[].class), any(byte[].class), any(byte[].class)))
+        .thenReturn(Arrays.asList(bytes("{}"), bytes("not-a-number"), null));
+
+    // When
+    SnapshotCache.Entry entry = snapshotCache.get("snapshot:clan:ABC");
+
+    // Then
+    assertThat(entry.ts()).isNull();
+  }
+
+  @Test
+  void testGetBody_ReturnsRawBytes() {
+    // Given
+    byte[] body = bytes("{\"tag\":\"#P\"}");
+    when(stringCommands.mGet(any(byte[].class), any(byte[].class), any(byte[].class)))
+        .thenReturn(Arrays.asList(body, null, null));
+
+    // When / Then
+    assertThat(snapshotCache.getBody("snapshot:player:P")).isSameAs(body);
+  }
+
+  @Test
+  void testGetAll_ReadsRemainingKeysInOneMget() {
+    // Given - A is already in the near cache, B is in Redis and C is missing
+    byte[] nearBody = bytes("{\"tag\":\"A\"}");
+    snapshotCache.put("snapshot:clan:A", nearBody, 1735732000L, 60);
+    byte[] remoteBody = bytes("{\"tag\":\"B\"}");
+    when(stringCommands.mGet(
+            bytes("snapshot:clan:B"),
+            bytes("snapshot:clan:B:ts"),
+            bytes("snapshot:clan:B:at"),
+            bytes("snapshot:clan:C"),
+            bytes("snapshot:clan:C:ts"),
+            bytes("snapshot:clan:C:at")))
+        .thenReturn(Arrays.asList(remoteBody, bytes("1735732800"), null, null, null, null));
+
+    // When
+    Map<String, SnapshotCache.Entry> entries =
+        snapshotCache.getAll(List.of("snapshot:clan:A", "snapshot:clan:B", "snapshot:clan:C"));
+
+    // Then
+    assertThat(entries).containsOnlyKeys("snapshot:clan:A", "snapshot:clan:B");
+    assertThat(entries.get("snapshot:clan:A").body()).isSameAs(nearBody);
+    assertThat(entries.get("snapshot:clan:B").body()).isSameAs(remoteBody);
+    assertThat(entries.get("snapshot:clan:B").ts()).isEqualTo(1735732800L);
+    assertThat(snapshotCache.get("snapshot:clan:B").body()).isSameAs(remoteBody);
+  }
+
+  @Test
+  void testPutBody_SetsBodyAndWriteTime() {
+    // Given
+    byte[] body = bytes("{}");
+
+    // When
+    snapshotCache.putBody("snapshot:player:P", body, 60);
+
+    // Then
+    verify(stringCommands).set(eq(bytes("snapshot:player:P")), eq(body), any(), any());
+    verify(stringCommands)
+        .set(eq(bytes("snapshot:player:P:at")), eq(bytes("1735732800")), any(), any());
+    verify(stringCommands, never()).set(eq(bytes("snapshot:player:P:ts")), any(), any(), any());
+  }
+
+  @Test
+  void testGet_RepeatLookupServedFromNearCache() {
+    // Given
+    when(stringCommands.mGet(any(byte[].class), any(byte[].class), any(byte[].class)))
+        .thenReturn(Arrays.asList(bytes("{}"), bytes("1735732800"), null));
+
+    // When
+    SnapshotCache.Entry first = snapshotCache.get("snapshot:clan:ABC");
+    SnapshotCache.Entry second = snapshotCache.get("snapshot:clan:ABC");
+
+    // Then
+    assertThat(second).isSameAs(first);
+    verify(stringCommands, times(1)).mGet(any(byte[].class), any(byte[].class), any(byte[].class));
+  }
+
+  @Test
+  void testPutBody_PublishesInvalidationAndFillsNearCache() {
+    // Given
+    byte[] body = bytes("{}");
+
+    // When
+    snapshotCache.putBody("snapshot:war:ABC", body, 60);
+
+    // Then
+    ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+    verify(redisTemplate).convertAndSend(eq(SnapshotCache.INVALIDATION_CHANNEL), message.capture());
+    assertThat(message.getValue()).endsWith(" snapshot:war:ABC");
+    assertThat(snapshotCache.getBody("snapshot:war:ABC")).isSameAs(body);
+    verify(stringCommands, never()).mGet(any(byte[].class), any(byte[].class), any(byte[].class));
+  }
+
+  @Test
+  void testInvalidationFromOtherNode_DropsNearEntry() {
+    // Given
+    snapshotCache.putBody("snapshot:war:ABC", bytes("{\"old\":true}"), 60);
+    byte[] fresh = bytes("{\"old\":false}");
+    when(stringCommands.mGet(any(byte[].class), any(byte[].class), any(byte[].class)))
+        .thenReturn(Arrays.asList(fresh, null, null));
+
+    // When
+    listener().onMessage(message("other-node snapshot:war:ABC"), null);
+
+    // Then
+    assertThat(snapshotCache.getBody("snapshot:war:ABC")).isSameAs(fresh);
+  }
+
+  @Test
+  void testInvalidationFromSelf_KeepsNearEntry() {
+    // Given
+    byte[] body = bytes("{}");
+    snapshotCache.putBody("snapshot:war:ABC", body, 60);
+    ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+    verify(redisTemplate)
+        .convertAndSend(eq(SnapshotCache.INVALIDATION_CHANNEL), published.capture());
+
+    // When
+    listener().onMessage(message(published.getValue()), null);
+
+    // Then
+    assertThat(snapshotCache.getBody("snapshot:war:ABC")).isSameAs(body);
+    verify(stringCommands, never()).mGet(any(byte[].class), any(byte[].class), any(byte[].class));
+  }
+
+  @Test
+  void testGet_TimesRedisRoundTripsByKeyFamily() {
+    // Given
+    when(stringCommands.mGet(any(byte[].class), any(byte[].class), any(byte[].class)))
+        .thenReturn(Arrays.asList(bytes("{}"), null, null));
+
+    // When - the second lookup is served from the near cache
+    snapshotCache.get("snapshot:player:ABC");
+    snapshotCache.get("snapshot:player:ABC");
+
+    // Then
+    assertThat(
+            meterRegistry
+                .get("snapshot.cache.redis")
+                .tags("family", "player", "op", "get")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tags("cache", "snapshot-near").meters())
+        .isNotEmpty();
+  }
+
+  @Test
+  void testRecordLookup_TagsFamilyAndOutcome() {
+    // When
+    long start = System.nanoTime();
+    snapshotCache.recordLookup("snapshot:clan:ABC", SnapshotCache.Outcome.STALE, start);
+    snapshotCache.recordLookup("snapshot:clan:DEF", SnapshotCache.Outcome.STALE, start);
+    snapshotCache.recordLookup("snapshot:war:ABC", SnapshotCache.Outcome.MISS, start);
+
+    // Then
+    assertThat(
+            meterRegistry
+                .get("snapshot.cache.lookup")
+                .tags("family", "clan", "outcome", "stale")
+                .timer()
+                .count())
+        .isEqualTo(2);
+    assertThat(
+            meterRegistry
+                .get("snapshot.cache.lookup")
+                .tags("family", "war", "outcome", "miss")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testFamily_IsSegmentAfterNamespace() {
+    assertThat(SnapshotCache.family("snapshot:clan:ABC")).isEqualTo("clan");
+    assertThat(SnapshotCache.family("snapshot:invalidate")).isEqualTo("other");
+    assertThat(SnapshotCache.family("asset:ABC")).isEqualTo("other");
+  }
+
+  private MessageListener listener() {
+    ArgumentCaptor<MessageListener> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(listenerContainer).addMessageListener(captor.capture(), any(Topic.class));
+    return captor.getValue();
+  }
+
+  private static DefaultMessage message(String body) {
+    return new DefaultMessage(bytes(SnapshotCache.INVALIDATION_CHANNEL), bytes(body));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,145 @@
+package com.clanboards.clashdata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotLoadCoalescerTest {
+
+  @Mock private SnapshotCache snapshotCache;
+
+  @Test
+  void testLoad_LockDisabledRunsLoaderWithoutRedis() {
+    // Given
+    SnapshotLoadCoalescer coalescer = coalescer(false, 100);
+
+    // When
+    String result = coalescer.load("snapshot:clan:ABC", () -> null, () -> "built");
+
+    // Then
+    assertThat(result).isEqualTo("built");
+    verifyNoInteractions(snapshotCache);
+  }
+
+  @Test
+  void testLoad_LockHolderLoadsAndReleases() {
+    // Given
+    SnapshotLoadCoalescer coalescer = coalescer(true, 100);
+    when(snapshotCache.tryLock("snapshot:clan:ABC", 5)).thenReturn(true);
+
+    // When
+    String result = coalescer.load("snapshot:clan:ABC", () -> null, () -> "built");
+
+    // Then
+    assertThat(result).isEqualTo("built");
+    verify(snapshotCache).unlock("snapshot:clan:ABC");
+  }
+
+  @Test
+  void testLoad_LockHeldElsewhereWaitsForCachedValue() {
+    // Given
+    SnapshotLoadCoalescer coalescer = coalescer(true, 1000);
+    when(snapshotCache.tryLock("snapshot:clan:ABC", 5)).thenReturn(false);
+    AtomicInteger polls = new AtomicInteger();
+    AtomicInteger loads = new AtomicInteger();
+
+    // When - the other node's value shows up on the second poll
+    String result =
+        coalescer.load(
+            "snapshot:clan:ABC",
+            () -> polls.incrementAndGet() >= 2 ? "from-other-node" : null,
+            () -> {
+              loads.incrementAndGet();
+              return "built";
+            });
+
+    // Then
+    assertThat(result).isEqualTo("from-other-node");
+    assertThat(loads.get()).isZero();
+    verify(snapshotCache, never()).unlock("snapshot:clan:ABC");
+  }
+
+  @Test
+  void testLoad_LockHeldElsewhereFallsBackAfterWait() {
+    // Given
+    SnapshotLoadCoalescer coalescer = coalescer(true, 100);
+    when(snapshotCache.tryLock("snapshot:clan:ABC", 5)).thenReturn(false);
+
+    // When
+    String result = coalescer.load("snapshot:clan:ABC", () -> null, () -> "built");
+
+    // Then
+    assertThat(result).isEqualTo("built");
+  }
+
+  @Test
+  void testRefreshAsync_RunsLoaderInBackgroundOncePerKey() throws Exception {
+    // Given
+    SnapshotLoadCoalescer coalescer = coalescer(false, 100);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+
+    // When - a second refresh arrives while the first is still running
+    coalescer.refreshAsync(
+        "snapshot:clan:ABC",
+        () -> {
+          loads.incrementAndGet();
+          await(release);
+          done.countDown();
+          return "built";
+        });
+    coalescer.refreshAsync("snapshot:clan:ABC", loads::incrementAndGet);
+    release.countDown();
+
+    // Then
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(loads.get()).isEqualTo(1);
+    coalescer.shutdown();
+  }
+
+  @Test
+  void testRefreshAsync_SkipsWhenAnotherNodeHoldsLock() throws Exception {
+    // Given
+    SnapshotLoadCoalescer coalescer = coalescer(true, 100);
+    CountDownLatch attempted = new CountDownLatch(1);
+    when(snapshotCache.tryLock("snapshot:clan:ABC", 5))
+        .thenAnswer(
+            invocation -> {
+              attempted.countDown();
+              return false;
+            });
+    AtomicInteger loads = new AtomicInteger();
+
+    // When
+    coalescer.refreshAsync("snapshot:clan:ABC", loads::incrementAndGet);
+
+    // Then
+    assertThat(attempted.await(5, TimeUnit.SECONDS)).isTrue();
+    coalescer.shutdown();
+    assertThat(loads.get()).isZero();
+  }
+
+  private SnapshotLoadCoalescer coalescer(boolean lockEnabled, long lockWaitMs) {
+    return new SnapshotLoadCoalescer(snapshotCache, lockEnabled, 5, lockWaitMs, 1, 10);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
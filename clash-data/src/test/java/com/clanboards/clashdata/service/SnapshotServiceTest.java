@@ -2,15 +2,20 @@ package com.clanboards.clashdata.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.clanboards.clashdata.entity.Clan;
 import com.clanboards.clashdata.entity.ClanSnapshot;
-import com.clanboards.clashdata.entity.Player;
-import com.clanboards.clashdata.entity.PlayerSnapshot;
+import com.clanboards.clashdata.entity.LoyaltyMembership;
+import com.clanboards.clashdata.events.ClanSnapshotRebuiltEvent;
+import com.clanboards.clashdata.repository.ClanMemberRow;
 import com.clanboards.clashdata.repository.ClanRepository;
 import com.clanboards.clashdata.repository.ClanSnapshotRepository;
 import com.clanboards.clashdata.repository.LoyaltyMembershipRepository;
@@ -18,35 +23,43 @@ import com.clanboards.clashdata.repository.PlayerRepository;
 import com.clanboards.clashdata.repository.PlayerSnapshotRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.context.ApplicationEventPublisher;
 
 @ExtendWith(MockitoExtension.class)
 class SnapshotServiceTest {
 
+  private static final Instant NOW = Instant.parse("2025-01-15T12:00:00Z");
+
   @Mock private ClanSnapshotRepository clanSnapshotRepository;
   @Mock private ClanRepository clanRepository;
   @Mock private PlayerSnapshotRepository playerSnapshotRepository;
   @Mock private PlayerRepository playerRepository;
   @Mock private LoyaltyMembershipRepository loyaltyMembershipRepository;
-  @Mock private StringRedisTemplate redisTemplate;
-  @Mock private ValueOperations<String, String> valueOperations;
+  @Mock private SnapshotCache snapshotCache;
+  @Mock private AssetPrewarmer assetPrewarmer;
+  @Mock private ApplicationEventPublisher events;
 
+  private final Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
   private SnapshotService snapshotService;
   private ObjectMapper objectMapper;
 
   @BeforeEach
   void setUp() {
-    when(redisTemplate.opsForValue()).thenReturn(valueOperations);
     snapshotService =
         new SnapshotService(
             clanSnapshotRepository,
@@ -54,9 +67,14 @@ class SnapshotServiceTest {
             playerSnapshotRepository,
             playerRepository,
             loyaltyMembershipRepository,
-            redisTemplate,
+            snapshotCache,
+            new SnapshotLoadCoalescer(snapshotCache, false, 5, 2000, 1, 10),
+            assetPrewarmer,
+            events,
+            clock,
             60, // cacheTtl
-            600 // staleAfter
+            600, // staleAfter
+            600 // hardMaxAge
             );
     objectMapper = new ObjectMapper();
   }
@@ -67,13 +85,12 @@ class SnapshotServiceTest {
     String clanTag = "#ABC123";
     String cacheKey = "snapshot:clan:ABC123"; // Tag normalized without #
     // Use a recent timestamp that won't be considered stale
-    String recentTimestamp =
-        LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
-    String cachedDataString =
-        String.format(
-            "{\"tag\":\"ABC123\",\"name\":\"Test Clan\",\"ts\":\"%s\",\"members\":45}",
-            recentTimestamp);
-    when(valueOperations.get(cacheKey)).thenReturn(cachedDataString);
+    long recentTs = LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC);
+    byte[] cachedData =
+        "{\"tag\":\"ABC123\",\"name\":\"Test Clan\",\"members\":45}"
+            .getBytes(StandardCharsets.UTF_8);
+    when(snapshotCache.get(cacheKey))
+        .thenReturn(new SnapshotCache.Entry(cachedData, recentTs, null));
 
     // When
     JsonNode result = snapshotService.getClan(clanTag);
@@ -94,7 +111,7 @@ class SnapshotServiceTest {
     // Given
     String clanTag = "#ABC123";
     String cacheKey = "snapshot:clan:ABC123"; // Tag normalized without #
-    when(valueOperations.get(cacheKey)).thenReturn(null);
+    when(snapshotCache.get(cacheKey)).thenReturn(null);
 
     // Mock clan snapshot
     ClanSnapshot clanSnapshot = new ClanSnapshot();
@@ -124,51 +141,38 @@ class SnapshotServiceTest {
     when(loyaltyMembershipRepository.findActivePlayerTagsByClanTag("ABC123"))
         .thenReturn(List.of("#PLAYER1", "#PLAYER2"));
 
-    // Mock player snapshots
-    PlayerSnapshot player1Snapshot = new PlayerSnapshot();
-    player1Snapshot.setPlayerTag("#PLAYER1");
-    player1Snapshot.setName("Player One");
-    player1Snapshot.setRole("member");
-    player1Snapshot.setTownHall(14);
-    player1Snapshot.setTrophies(3500);
-    player1Snapshot.setDonations(1000);
-    player1Snapshot.setDonationsReceived(800);
-    player1Snapshot.setWarAttacksUsed(2);
-    player1Snapshot.setLastSeen(LocalDateTime.of(2025, 1, 1, 11, 0, 0));
-    JsonNode player1Data =
-        objectMapper.readTree(
-            "{\"league\":{\"iconUrls\":{\"tiny\":\"https://example.com/league1.png\"}},\"labels\":[{\"name\":\"Veteran\"}],\"deep_link\":\"https://link.clashofclans.com/player?tag=#PLAYER1\"}");
-    player1Snapshot.setData(player1Data);
-    player1Snapshot.setTs(LocalDateTime.of(2025, 1, 1, 12, 0, 0));
-
-    PlayerSnapshot player2Snapshot = new PlayerSnapshot();
-    player2Snapshot.setPlayerTag("#PLAYER2");
-    player2Snapshot.setName("Player Two");
-    player2Snapshot.setRole("elder");
-    player2Snapshot.setTownHall(15);
-    player2Snapshot.setTrophies(4000);
-    player2Snapshot.setDonations(1500);
-    player2Snapshot.setDonationsReceived(1200);
-    player2Snapshot.setWarAttacksUsed(3);
-    player2Snapshot.setLastSeen(LocalDateTime.of(2025, 1, 1, 10, 30, 0));
-    // Player2 has no league data to test null leagueIcon behavior
-    JsonNode player2Data = objectMapper.readTree("{}");
-    player2Snapshot.setData(player2Data);
-    player2Snapshot.setTs(LocalDateTime.of(2025, 1, 1, 12, 0, 0));
-
-    when(playerSnapshotRepository.findLatestSnapshotsByPlayerTags(List.of("#PLAYER1", "#PLAYER2")))
-        .thenReturn(List.of(player1Snapshot, player2Snapshot));
-
-    // Mock Player entities
-    Player player1 = new Player();
-    player1.setTag("#PLAYER1");
-    JsonNode player1ExtraData =
-        objectMapper.readTree(
-            "{\"deep_link\":\"https://link.clashofclans.com/player?tag=#PLAYER1\"}");
-    player1.setData(player1ExtraData);
-
-    when(playerRepository.findById("#PLAYER1")).thenReturn(Optional.of(player1));
-    when(playerRepository.findById("#PLAYER2")).thenReturn(Optional.empty());
+    // Mock member rows; player2 has no league data to test null leagueIcon behavior
+    ClanMemberRow player1Row =
+        memberRow(
+            "#PLAYER1",
+            "Player One",
+            "member",
+            14,
+            3500,
+            1000,
+            800,
+            2,
+            LocalDateTime.of(2025, 1, 1, 11, 0, 0),
+            "https://example.com/league1.png",
+            "[{\"name\":\"Veteran\"}]",
+            "https://link.clashofclans.com/player?tag=#PLAYER1");
+    ClanMemberRow player2Row =
+        memberRow(
+            "#PLAYER2",
+            "Player Two",
+            "elder",
+            15,
+            4000,
+            1500,
+            1200,
+            3,
+            LocalDateTime.of(2025, 1, 1, 10, 30, 0),
+            null,
+            null,
+            null);
+
+    when(playerSnapshotRepository.findLatestMemberRows(List.of("#PLAYER1", "#PLAYER2")))
+        .thenReturn(List.of(player1Row, player2Row));
 
     // When
     JsonNode result = snapshotService.getClan(clanTag);
@@ -203,6 +207,8 @@ class SnapshotServiceTest {
     assertThat(member1.get("donationsReceived").asInt()).isEqualTo(800);
     assertThat(member1.get("warAttacksUsed").asInt()).isEqualTo(2);
     assertThat(member1.get("leagueIcon").asText()).isEqualTo("https://example.com/league1.png");
+    assertThat(member1.get("labels").get(0).get("name").asText()).isEqualTo("Veteran");
+    assertThat(member1.get("last_seen").asText()).isEqualTo("2025-01-01T11:00:00Z");
     assertThat(member1.get("deep_link").asText())
         .isEqualTo("https://link.clashofclans.com/player?tag=#PLAYER1");
 
@@ -216,9 +222,24 @@ class SnapshotServiceTest {
     // Verify leagueIcon field is always present - should be null when league data is incomplete
     assertThat(member2.has("leagueIcon")).isTrue();
     assertThat(member2.get("leagueIcon").isNull()).isTrue();
-
-    // Verify cache was set
-    verify(valueOperations).set(eq(cacheKey), any(String.class), eq(60L), any());
+    assertThat(member2.has("labels")).isFalse();
+    assertThat(member2.has("deep_link")).isFalse();
+
+    // Verify cache was set with the snapshot timestamp alongside the body
+    long expectedTs = LocalDateTime.of(2025, 1, 1, 12, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    verify(snapshotCache).put(eq(cacheKey), any(byte[].class), eq(expectedTs), eq(600));
+
+    // Badge and league icons were handed to the prewarmer
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Iterable<String>> iconUrls = ArgumentCaptor.forClass(Iterable.class);
+    verify(assetPrewarmer).prewarm(iconUrls.capture());
+    assertThat(iconUrls.getValue())
+        .contains("https://example.com/badge.png", "https://example.com/league1.png");
+
+    // The rebuild was announced for the at-risk leaderboard
+    verify(events)
+        .publishEvent(
+            new ClanSnapshotRebuiltEvent("ABC123", LocalDateTime.of(2025, 1, 1, 12, 0, 0)));
   }
 
   @Test
@@ -226,7 +247,7 @@ class SnapshotServiceTest {
     // Given
     String clanTag = "#NOTFOUND";
     String cacheKey = "snapshot:clan:NOTFOUND"; // Tag normalized without #
-    when(valueOperations.get(cacheKey)).thenReturn(null);
+    when(snapshotCache.get(cacheKey)).thenReturn(null);
     when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("NOTFOUND")).thenReturn(null);
 
     // When
@@ -236,7 +257,8 @@ class SnapshotServiceTest {
     assertThat(result).isNull();
 
     // Verify cache was checked but not set
-    verify(valueOperations).get(cacheKey);
+    verify(snapshotCache).get(cacheKey);
+    verify(snapshotCache, never()).put(any(), any(), anyLong(), anyInt());
   }
 
   @Test
@@ -244,7 +266,7 @@ class SnapshotServiceTest {
     // Given
     String unnormalizedTag = "abc123"; // no # prefix, lowercase
     String cacheKey = "snapshot:clan:ABC123"; // Tag normalized without #
-    when(valueOperations.get(cacheKey)).thenReturn(null);
+    when(snapshotCache.get(cacheKey)).thenReturn(null);
     when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("ABC123")).thenReturn(null);
 
     // When
@@ -256,4 +278,304 @@ class SnapshotServiceTest {
     // Verify the tag was normalized before database query
     verify(clanSnapshotRepository).findTopByClanTagOrderByTsDesc("ABC123");
   }
+
+  @Test
+  void testGetClanJson_CacheHitReturnsStoredBytes() {
+    // Given
+    String cacheKey = "snapshot:clan:ABC123";
+    byte[] cachedData = "{\"tag\":\"ABC123\"}".getBytes(StandardCharsets.UTF_8);
+    long recentTs = LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC);
+    when(snapshotCache.get(cacheKey))
+        .thenReturn(new SnapshotCache.Entry(cachedData, recentTs, null));
+
+    // When
+    byte[] result = snapshotService.getClanJson("#abc123");
+
+    // Then - the exact cached array is passed through
+    assertThat(result).isSameAs(cachedData);
+    verifyNoInteractions(clanSnapshotRepository);
+    verify(snapshotCache).recordLookup(eq(cacheKey), eq(SnapshotCache.Outcome.HIT), anyLong());
+  }
+
+  @Test
+  void testGetClanJson_StaleTimestampServedWhileRefreshing() {
+    // Given - the entry was written recently but holds an old snapshot
+    String cacheKey = "snapshot:clan:ABC123";
+    byte[] cachedData = "{}".getBytes(StandardCharsets.UTF_8);
+    long staleTs = LocalDateTime.now(clock).minusHours(1).toEpochSecond(ZoneOffset.UTC);
+    long cachedAt = NOW.getEpochSecond();
+    when(snapshotCache.get(cacheKey))
+        .thenReturn(new SnapshotCache.Entry(cachedData, staleTs, cachedAt));
+    when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("ABC123")).thenReturn(null);
+
+    // When
+    byte[] result = snapshotService.getClanJson("#ABC123");
+
+    // Then - the caller gets the cached bytes and the rebuild runs in the background
+    assertThat(result).isSameAs(cachedData);
+    verify(clanSnapshotRepository, timeout(1000)).findTopByClanTagOrderByTsDesc("ABC123");
+    verify(snapshotCache).recordLookup(eq(cacheKey), eq(SnapshotCache.Outcome.STALE), anyLong());
+  }
+
+  @Test
+  void testGetClanJson_PastSoftTtlServedWhileRefreshing() {
+    // Given
+    String cacheKey = "snapshot:clan:ABC123";
+    byte[] cachedData = "{}".getBytes(StandardCharsets.UTF_8);
+    long recentTs = LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC);
+    long cachedAt = NOW.getEpochSecond() - 120;
+    when(snapshotCache.get(cacheKey))
+        .thenReturn(new SnapshotCache.Entry(cachedData, recentTs, cachedAt));
+    when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("ABC123")).thenReturn(null);
+
+    // When
+    byte[] result = snapshotService.getClanJson("#ABC123");
+
+    // Then
+    assertThat(result).isSameAs(cachedData);
+    verify(clanSnapshotRepository, timeout(1000)).findTopByClanTagOrderByTsDesc("ABC123");
+  }
+
+  @Test
+  void testGetClanJson_PastHardMaxAgeRebuildsSynchronously() {
+    // Given
+    String cacheKey = "snapshot:clan:ABC123";
+    long recentTs = LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC);
+    long cachedAt = NOW.getEpochSecond() - 3600;
+    when(snapshotCache.get(cacheKey))
+        .thenReturn(
+            new SnapshotCache.Entry("{}".getBytes(StandardCharsets.UTF_8), recentTs, cachedAt));
+    when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("ABC123")).thenReturn(null);
+
+    // When
+    byte[] result = snapshotService.getClanJson("#ABC123");
+
+    // Then
+    assertThat(result).isNull();
+    verify(clanSnapshotRepository).findTopByClanTagOrderByTsDesc("ABC123");
+  }
+
+  @Test
+  void testGetClanJson_MissingTimestampTreatedAsMiss() {
+    // Given - an entry written without the companion ts key
+    String cacheKey = "snapshot:clan:ABC123";
+    when(snapshotCache.get(cacheKey))
+        .thenReturn(new SnapshotCache.Entry("{}".getBytes(StandardCharsets.UTF_8), null, null));
+    when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("ABC123")).thenReturn(null);
+
+    // When
+    snapshotService.getClanJson("#ABC123");
+
+    // Then
+    verify(clanSnapshotRepository).findTopByClanTagOrderByTsDesc("ABC123");
+  }
+
+  @Test
+  void testGetClanJson_CacheMissStreamsOneBodyForCacheAndCaller() throws Exception {
+    // Given
+    String cacheKey = "snapshot:clan:ABC123";
+    when(snapshotCache.get(cacheKey)).thenReturn(null);
+
+    ClanSnapshot clanSnapshot = new ClanSnapshot();
+    clanSnapshot.setClanTag("ABC123");
+    clanSnapshot.setName("Test Clan");
+    clanSnapshot.setLevel(20);
+    clanSnapshot.setTs(LocalDateTime.of(2025, 1, 1, 12, 0, 0));
+    when(clanSnapshotRepository.findTopByClanTagOrderByTsDesc("ABC123")).thenReturn(clanSnapshot);
+    when(clanRepository.findById("ABC123")).thenReturn(Optional.empty());
+    when(loyaltyMembershipRepository.findActivePlayerTagsByClanTag("ABC123"))
+        .thenReturn(List.of("#PLAYER1"));
+    when(playerSnapshotRepository.findLatestMemberRows(List.of("#PLAYER1")))
+        .thenReturn(
+            List.of(
+                memberRow(
+                    "#PLAYER1",
+                    "Player One",
+                    "member",
+                    14,
+                    null,
+                    0,
+                    0,
+                    null,
+                    LocalDateTime.of(2025, 1, 1, 11, 0, 0),
+                    null,
+                    "not json",
+                    null)));
+
+    // When
+    byte[] result = snapshotService.getClanJson("#ABC123");
+
+    // Then - the streamed body is what was cached, and nulls are written as before
+    ArgumentCaptor<byte[]> cachedBody = ArgumentCaptor.forClass(byte[].class);
+    verify(snapshotCache).put(eq(cacheKey), cachedBody.capture(), anyLong(), eq(600));
+    assertThat(result).isSameAs(cachedBody.getValue());
+
+    JsonNode clan = objectMapper.readTree(result);
+    assertThat(clan.fieldNames())
+        .toIterable()
+        .containsExactly(
+            "tag", "name", "clanLevel", "warWins", "warLosses", "ts", "memberList", "members");
+    assertThat(clan.get("warWins").isNull()).isTrue();
+    assertThat(clan.get("members").asInt()).isEqualTo(1);
+    JsonNode member = clan.get("memberList").get(0);
+    assertThat(member.get("trophies").isNull()).isTrue();
+    assertThat(member.has("warAttacksUsed")).isFalse();
+    assertThat(member.get("leagueIcon").isNull()).isTrue();
+    assertThat(member.has("labels")).isFalse();
+  }
+
+  @Test
+  void testGetClansJson_ServesHitsAndRebuildsMissesInOneBatch() {
+    // Given - AAA is cached and fresh, BBB and CCC miss and only BBB exists in the database
+    long recentTs = LocalDateTime.now(clock).toEpochSecond(ZoneOffset.UTC);
+    byte[] cachedData = "{\"tag\":\"AAA\"}".getBytes(StandardCharsets.UTF_8);
+    when(snapshotCache.getAll(
+            List.of("snapshot:clan:AAA", "snapshot:clan:BBB", "snapshot:clan:CCC")))
+        .thenReturn(
+            Map.of("snapshot:clan:AAA", new SnapshotCache.Entry(cachedData, recentTs, null)));
+
+    ClanSnapshot clanSnapshot = new ClanSnapshot();
+    clanSnapshot.setClanTag("BBB");
+    clanSnapshot.setName("Second Clan");
+    clanSnapshot.setTs(LocalDateTime.of(2025, 1, 1, 12, 0, 0));
+    when(clanSnapshotRepository.findLatestByClanTags(List.of("BBB", "CCC")))
+        .thenReturn(List.of(clanSnapshot));
+    when(clanRepository.findAllById(List.of("BBB"))).thenReturn(List.of());
+    LoyaltyMembership membership = new LoyaltyMembership();
+    membership.setClanTag("BBB");
+    membership.setPlayerTag("#PLAYER1");
+    when(loyaltyMembershipRepository.findByClanTagInAndLeftAtIsNull(List.of("BBB")))
+        .thenReturn(List.of(membership));
+    when(playerSnapshotRepository.findLatestMemberRows(Set.of("#PLAYER1")))
+        .thenReturn(
+            List.of(
+                memberRow(
+                    "#PLAYER1",
+                    "Player One",
+                    "member",
+                    14,
+                    3500,
+                    0,
+                    0,
+                    null,
+                    LocalDateTime.of(2025, 1, 1, 11, 0, 0),
+                    null,
+                    null,
+                    null)));
+
+    // When - tags arrive unnormalized and with a duplicate
+    Map<String, byte[]> result = snapshotService.getClansJson(List.of("#aaa", "BBB", "ccc", "AAA"));
+
+    // Then
+    assertThat(result).containsOnlyKeys("AAA", "BBB");
+    assertThat(result.keySet()).containsExactly("AAA", "BBB");
+    assertThat(result.get("AAA")).isSameAs(cachedData);
+    assertThat(new String(result.get("BBB"), StandardCharsets.UTF_8))
+        .contains("\"name\":\"Second Clan\"")
+        .contains("\"tag\":\"#PLAYER1\"");
+    verify(snapshotCache).put(eq("snapshot:clan:BBB"), eq(result.get("BBB")), anyLong(), eq(600));
+    verify(clanSnapshotRepository, never()).findTopByClanTagOrderByTsDesc(any());
+    verify(snapshotCache)
+        .recordLookup(eq("snapshot:clan:AAA"), eq(SnapshotCache.Outcome.HIT), anyLong());
+    verify(snapshotCache)
+        .recordLookup(eq("snapshot:clan:BBB"), eq(SnapshotCache.Outcome.MISS), anyLong());
+    verify(snapshotCache)
+        .recordLookup(eq("snapshot:clan:CCC"), eq(SnapshotCache.Outcome.MISS), anyLong());
+  }
+
+  @Test
+  void testGetPlayerJson_CacheHitReturnsStoredBytes() {
+    // Given
+    byte[] cachedData = "{\"tag\":\"#PLAYER1\"}".getBytes(StandardCharsets.UTF_8);
+    when(snapshotCache.get("snapshot:player:PLAYER1"))
+        .thenReturn(new SnapshotCache.Entry(cachedData, null, null));
+
+    // When
+    byte[] result = snapshotService.getPlayerJson("#player1");
+
+    // Then
+    assertThat(result).isSameAs(cachedData);
+    verifyNoInteractions(playerSnapshotRepository);
+  }
+
+  private static ClanMemberRow memberRow(
+      String playerTag,
+      String name,
+      String role,
+      Integer townHall,
+      Integer trophies,
+      Integer donations,
+      Integer donationsReceived,
+      Integer warAttacksUsed,
+      LocalDateTime lastSeen,
+      String leagueIcon,
+      String labels,
+      String deepLink) {
+    return new ClanMemberRow() {
+      @Override
+      public String getPlayerTag() {
+        return playerTag;
+      }
+
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public String getRole() {
+        return role;
+      }
+
+      @Override
+      public Integer getTownHall() {
+        return townHall;
+      }
+
+      @Override
+      public Integer getTrophies() {
+        return trophies;
+      }
+
+      @Override
+      public Integer getDonations() {
+        return donations;
+      }
+
+      @Override
+      public Integer getDonationsReceived() {
+        return donationsReceived;
+      }
+
+      @Override
+      public Integer getWarAttacksUsed() {
+        return warAttacksUsed;
+      }
+
+      @Override
+      public LocalDateTime getLastSeen() {
+        return lastSeen;
+      }
+
+      @Override
+      public LocalDateTime getTs() {
+        return LocalDateTime.of(2025, 1, 1, 12, 0, 0);
+      }
+
+      @Override
+      public String getLeagueIcon() {
+        return leagueIcon;
+      }
+
+      @Override
+      public String getLabels() {
+        return labels;
+      }
+
+      @Override
+      public String getDeepLink() {
+        return deepLink;
+      }
+    };
+  }
 }
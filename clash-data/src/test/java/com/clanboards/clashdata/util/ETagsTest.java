@@ -0,0 +1,31 @@
+package com.clanboards.clashdata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ETagsTest {
+
+  @Test
+  void testStrong_IsQuotedAndNotWeak() {
+    String etag = ETags.strong(bytes("{\"tag\":\"#A\"}"));
+    assertThat(etag).startsWith("\"").endsWith("\"").doesNotStartWith("W/");
+  }
+
+  @Test
+  void testStrong_SameBytesSameTag() {
+    assertThat(ETags.strong(bytes("{\"tag\":\"#A\"}")))
+        .isEqualTo(ETags.strong(bytes("{\"tag\":\"#A\"}")));
+  }
+
+  @Test
+  void testStrong_DifferentBytesDifferentTag() {
+    assertThat(ETags.strong(bytes("{\"tag\":\"#A\"}")))
+        .isNotEqualTo(ETags.strong(bytes("{\"tag\":\"#B\"}")));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
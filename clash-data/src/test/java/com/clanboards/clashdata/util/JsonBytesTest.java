@@ -0,0 +1,60 @@
+package com.clanboards.clashdata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JsonBytesTest {
+
+  @Test
+  void testAppendFields_MergesObjects() {
+    byte[] result = JsonBytes.appendFields(bytes("{\"tag\":\"#A\"}"), bytes("{\"loyalty\":3}"));
+    assertThat(text(result)).isEqualTo("{\"tag\":\"#A\",\"loyalty\":3}");
+  }
+
+  @Test
+  void testAppendFields_EmptyBase() {
+    byte[] result = JsonBytes.appendFields(bytes("{ }"), bytes("{\"loyalty\":3}"));
+    assertThat(text(result)).isEqualTo("{ \"loyalty\":3}");
+  }
+
+  @Test
+  void testAppendFields_EmptyExtraReturnsBase() {
+    byte[] base = bytes("{\"tag\":\"#A\"}");
+    assertThat(JsonBytes.appendFields(base, bytes("{}"))).isSameAs(base);
+  }
+
+  @Test
+  void testAppendFields_IgnoresTrailingWhitespace() {
+    byte[] result = JsonBytes.appendFields(bytes("{\"a\":1}\n"), bytes(" {\"b\":2} "));
+    assertThat(text(result)).isEqualTo("{\"a\":1,\"b\":2}");
+  }
+
+  @Test
+  void testAppendFields_RejectsNonObjects() {
+    assertThatThrownBy(() -> JsonBytes.appendFields(bytes("[1]"), bytes("{\"b\":2}")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testArray_JoinsValues() {
+    byte[] result = JsonBytes.array(List.of(bytes("{\"a\":1}"), bytes("{\"b\":2}")));
+    assertThat(text(result)).isEqualTo("[{\"a\":1},{\"b\":2}]");
+  }
+
+  @Test
+  void testArray_Empty() {
+    assertThat(text(JsonBytes.array(List.of()))).isEqualTo("[]");
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String text(byte[] value) {
+    return new String(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,106 @@
+package com.clanboards.clashdata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+  @Test
+  void testExecute_ConcurrentCallersShareOneLoad() throws Exception {
+    SingleFlight singleFlight = new SingleFlight();
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicReference<String> leaderResult = new AtomicReference<>();
+    AtomicReference<String> followerResult = new AtomicReference<>();
+
+    Thread leader =
+        new Thread(
+            () ->
+                leaderResult.set(
+                    singleFlight.execute(
+                        "key",
+                        () -> {
+                          loads.incrementAndGet();
+                          started.countDown();
+                          await(release);
+                          return "value";
+                        })));
+    leader.start();
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    Thread follower =
+        new Thread(
+            () ->
+                followerResult.set(
+                    singleFlight.execute(
+                        "key",
+                        () -> {
+                          loads.incrementAndGet();
+                          return "other";
+                        })));
+    follower.start();
+    // The follower parks on the leader's future once it has joined the load
+    while (follower.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    leader.join(5000);
+    follower.join(5000);
+
+    assertThat(leaderResult.get()).isEqualTo("value");
+    assertThat(followerResult.get()).isEqualTo("value");
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(singleFlight.inFlight()).isZero();
+  }
+
+  @Test
+  void testExecute_SequentialCallsLoadAgain() {
+    SingleFlight singleFlight = new SingleFlight();
+    AtomicInteger loads = new AtomicInteger();
+
+    singleFlight.execute("key", loads::incrementAndGet);
+    singleFlight.execute("key", loads::incrementAndGet);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void testExecute_PropagatesLoaderException() {
+    SingleFlight singleFlight = new SingleFlight();
+
+    assertThatThrownBy(
+            () ->
+                singleFlight.execute(
+                    "key",
+                    () -> {
+                      throw new IllegalStateException("boom");
+                    }))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("boom");
+    assertThat(singleFlight.inFlight()).isZero();
+  }
+
+  @Test
+  void testExecute_NullResultIsShared() {
+    SingleFlight singleFlight = new SingleFlight();
+
+    String result = singleFlight.execute("key", () -> null);
+
+    assertThat(result).isNull();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -59,6 +59,45 @@ class PlayerSnapshot(db.Model):
     __table_args__ = (db.UniqueConstraint("player_tag", "ts", name="uq_player_ts"),)
 
 
+class PlayerLatest(db.Model):
+    """Pointer to each player's newest snapshot.
+
+    Maintained by the ``trg_player_latest_upsert`` trigger on ``player_snapshots``,
+    so writers never touch it directly.
+    """
+
+    __tablename__ = "player_latest"
+    player_tag = db.Column(db.String(15), primary_key=True)
+    snapshot_id = db.Column(db.BigInteger, nullable=False)
+    clan_tag = db.Column(db.String(15), index=True)
+    ts = db.Column(db.DateTime, nullable=False)
+
+
+class PlayerSnapshotDaily(db.Model):
+    """Per-player, per-day rollup of ``player_snapshots``.
+
+    Maintained by the ``trg_player_snapshot_daily_upsert`` trigger on
+    ``player_snapshots``, so writers never touch it directly.
+    """
+
+    __tablename__ = "player_snapshot_daily"
+    player_tag = db.Column(db.String(15), primary_key=True)
+    snapshot_date = db.Column(db.Date, primary_key=True)
+    clan_tag = db.Column(db.String(15))
+    samples = db.Column(db.Integer, nullable=False)
+    first_ts = db.Column(db.DateTime, nullable=False)
+    last_ts = db.Column(db.DateTime, nullable=False)
+    trophies_min = db.Column(db.Integer)
+    trophies_max = db.Column(db.Integer)
+    trophies_last = db.Column(db.Integer)
+    donations_first = db.Column(db.Integer)
+    donations_last = db.Column(db.Integer)
+    donations_received_first = db.Column(db.Integer)
+    donations_received_last = db.Column(db.Integer)
+    war_attacks_used_max = db.Column(db.Integer)
+    last_seen = db.Column(db.DateTime)
+
+
 class Player(db.Model):
     __tablename__ = "players"
     tag = db.Column(db.String(15), primary_key=True)
@@ -0,0 +1,32 @@
+package com.clanboards.runtime;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Applies the pool limits to every {@link HikariDataSource} bean, however the service builds it.
+ *
+ * <p>With virtual threads the pool, not the Tomcat thread count, caps concurrent queries, so the
+ * size is set explicitly and the connection timeout is kept short enough that overload fails fast
+ * instead of parking requests for Hikari's 30 second default. Both settings may also be changed on
+ * a pool that has already started.
+ */
+public class HikariPoolSizer implements BeanPostProcessor {
+
+  private final int maxPoolSize;
+  private final long connectionTimeoutMs;
+
+  public HikariPoolSizer(int maxPoolSize, long connectionTimeoutMs) {
+    this.maxPoolSize = maxPoolSize;
+    this.connectionTimeoutMs = connectionTimeoutMs;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof HikariDataSource dataSource) {
+      dataSource.setMaximumPoolSize(maxPoolSize);
+      dataSource.setConnectionTimeout(connectionTimeoutMs);
+    }
+    return bean;
+  }
+}
@@ -0,0 +1,66 @@
+package com.clanboards.runtime;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records virtual threads that stay pinned to their carrier thread, i.e. block inside a
+ * synchronized block or a native frame, for longer than the threshold. Pinned time is time the
+ * carrier pool cannot run other requests, so this is the number to watch before raising the
+ * connection limits per pod.
+ *
+ * <p>Registered by {@link VirtualThreadsAutoConfiguration} when virtual threads are enabled.
+ */
+public class VirtualThreadPinningMonitor {
+
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+  static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+  private final Timer pinned;
+  private final Duration threshold;
+  private RecordingStream stream;
+
+  public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, long thresholdMs) {
+    this.pinned =
+        Timer.builder("jvm.threads.virtual.pinned")
+            .description("Time virtual threads spent pinned to their carrier thread")
+            .register(meterRegistry);
+    this.threshold = Duration.ofMillis(thresholdMs);
+  }
+
+  public void start() {
+    stream = new RecordingStream();
+    stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+    stream.onEvent(PINNED_EVENT, this::onPinned);
+    stream.startAsync();
+    log.info("Recording virtual thread pinning longer than {} ms", threshold.toMillis());
+  }
+
+  public void stop() {
+    if (stream != null) {
+      stream.close();
+    }
+  }
+
+  void record(Duration duration) {
+    pinned.record(duration);
+  }
+
+  private void onPinned(RecordedEvent event) {
+    record(event.getDuration());
+    if (log.isDebugEnabled() && event.getStackTrace() != null) {
+      RecordedFrame top = event.getStackTrace().getFrames().get(0);
+      log.debug(
+          "Virtual thread pinned for {} ms at {}.{}",
+          event.getDuration().toMillis(),
+          top.getMethod().getType().getName(),
+          top.getMethod().getName());
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.clanboards.runtime;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Runtime wiring shared by the Spring Boot services for running request handlers on virtual
+ * threads.
+ *
+ * <p>{@code VIRTUAL_THREADS_ENABLED} turns the mode on (see {@link
+ * VirtualThreadsEnvironmentPostProcessor}). JDBC pools are sized by {@code DATABASE_POOL_MAX_SIZE}
+ * and {@code DATABASE_POOL_TIMEOUT_MS} whether or not the mode is on, and pinned virtual threads
+ * are recorded once it is.
+ */
+@AutoConfiguration
+public class VirtualThreadsAutoConfiguration {
+
+  @Bean
+  @ConditionalOnClass(name = "com.zaxxer.hikari.HikariDataSource")
+  @ConditionalOnMissingBean
+  public static HikariPoolSizer hikariPoolSizer(
+      @Value("${DATABASE_POOL_MAX_SIZE:10}") int maxPoolSize,
+      @Value("${DATABASE_POOL_TIMEOUT_MS:10000}") long connectionTimeoutMs) {
+    return new HikariPoolSizer(maxPoolSize, connectionTimeoutMs);
+  }
+
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  @ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+  @ConditionalOnMissingBean
+  public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+      MeterRegistry meterRegistry,
+      @Value("${VIRTUAL_THREADS_PINNED_THRESHOLD_MS:20}") long thresholdMs) {
+    return new VirtualThreadPinningMonitor(meterRegistry, thresholdMs);
+  }
+}
@@ -0,0 +1,27 @@
+package com.clanboards.runtime;
+
+import java.util.Map;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Maps {@code VIRTUAL_THREADS_ENABLED} onto {@code spring.threads.virtual.enabled}, off by default.
+ * The default is added last, so a service can still set the Spring property directly.
+ */
+public class VirtualThreadsEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+  static final String PROPERTY_SOURCE = "virtualThreadsDefaults";
+
+  @Override
+  public void postProcessEnvironment(
+      ConfigurableEnvironment environment, SpringApplication application) {
+    environment
+        .getPropertySources()
+        .addLast(
+            new MapPropertySource(
+                PROPERTY_SOURCE,
+                Map.of("spring.threads.virtual.enabled", "${VIRTUAL_THREADS_ENABLED:false}")));
+  }
+}
@@ -0,0 +1,39 @@
+package com.clanboards.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class VirtualThreadPinningMonitorTest {
+
+  @Test
+  void testRecord_AddsPinnedTimeToTimer() {
+    // Given
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(registry, 20);
+
+    // When
+    monitor.record(Duration.ofMillis(35));
+    monitor.record(Duration.ofMillis(15));
+
+    // Then
+    Timer timer = registry.get("jvm.threads.virtual.pinned").timer();
+    assertThat(timer.count()).isEqualTo(2);
+    assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(50.0);
+  }
+
+  @Test
+  void testStartAndStop_OpensAndClosesRecording() {
+    // Given
+    VirtualThreadPinningMonitor monitor =
+        new VirtualThreadPinningMonitor(new SimpleMeterRegistry(), 20);
+
+    // When / Then - the JFR stream starts without a recording configured on the command line
+    monitor.start();
+    monitor.stop();
+  }
+}
@@ -0,0 +1,86 @@
+package com.clanboards.runtime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+class VirtualThreadsAutoConfigurationTest {
+
+  private final ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner()
+          .withConfiguration(AutoConfigurations.of(VirtualThreadsAutoConfiguration.class))
+          .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+          .withBean(HikariDataSource.class, HikariDataSource::new);
+
+  @Test
+  void testAutoConfiguration_SizesHikariPoolsFromEnvironment() {
+    this.contextRunner
+        .withPropertyValues("DATABASE_POOL_MAX_SIZE=25", "DATABASE_POOL_TIMEOUT_MS=3000")
+        .run(
+            context -> {
+              HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+              assertThat(dataSource.getMaximumPoolSize()).isEqualTo(25);
+              assertThat(dataSource.getConnectionTimeout()).isEqualTo(3000);
+            });
+  }
+
+  @Test
+  void testAutoConfiguration_DefaultPoolLimits() {
+    this.contextRunner.run(
+        context -> {
+          HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+          assertThat(dataSource.getMaximumPoolSize()).isEqualTo(10);
+          assertThat(dataSource.getConnectionTimeout()).isEqualTo(10000);
+        });
+  }
+
+  @Test
+  void testAutoConfiguration_PinningMonitorOnlyWithVirtualThreads() {
+    this.contextRunner.run(
+        context -> assertThat(context).doesNotHaveBean(VirtualThreadPinningMonitor.class));
+    this.contextRunner
+        .withPropertyValues("spring.threads.virtual.enabled=true")
+        .run(context -> assertThat(context).hasSingleBean(VirtualThreadPinningMonitor.class));
+  }
+
+  @Test
+  void testEnvironmentPostProcessor_MapsVirtualThreadsEnabled() {
+    // Given
+    StandardEnvironment environment = new StandardEnvironment();
+    environment
+        .getPropertySources()
+        .addFirst(new MapPropertySource("env", Map.of("VIRTUAL_THREADS_ENABLED", "true")));
+
+    // When
+    new VirtualThreadsEnvironmentPostProcessor()
+        .postProcessEnvironment(environment, new SpringApplication());
+
+    // Then
+    assertThat(environment.getProperty("spring.threads.virtual.enabled")).isEqualTo("true");
+  }
+
+  @Test
+  void testEnvironmentPostProcessor_DefaultsToOff() {
+    // Given
+    StandardEnvironment environment = new StandardEnvironment();
+    environment
+        .getPropertySources()
+        .remove(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME);
+
+    // When
+    new VirtualThreadsEnvironmentPostProcessor()
+        .postProcessEnvironment(environment, new SpringApplication());
+
+    // Then
+    assertThat(environment.getProperty("spring.threads.virtual.enabled")).isEqualTo("false");
+  }
+}
@@ -1,10 +1,12 @@
 package com.clanboards.messages.config;
 
 import com.clanboards.messages.repository.ChatRepository;
+import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
@@ -12,8 +14,19 @@ import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 @Configuration
 public class AwsConfig {
   @Bean
-  public DynamoDbClient dynamoDbClient(@Value("${aws.region:us-east-1}") String region) {
-    return DynamoDbClient.builder().region(Region.of(region)).build();
+  public DynamoDbClient dynamoDbClient(
+      @Value("${aws.region:us-east-1}") String region,
+      @Value("${AWS_HTTP_MAX_CONNECTIONS:200}") int maxConnections,
+      @Value("${AWS_HTTP_ACQUIRE_TIMEOUT_MS:5000}") long acquireTimeoutMs) {
+    // The SDK default of 50 connections would become the request limit once handlers run on
+    // virtual threads, so size the pool alongside the JDBC pool instead
+    return DynamoDbClient.builder()
+        .region(Region.of(region))
+        .httpClientBuilder(
+            ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionAcquisitionTimeout(Duration.ofMillis(acquireTimeoutMs)))
+        .build();
   }
 
   @Bean
@@ -5,6 +5,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -17,6 +18,7 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 @Configuration
 @EnableWebSecurity
@@ -95,10 +97,14 @@ public class SecurityConfig {
 
   @Bean
   @Order(1)
-  public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+  public SecurityFilterChain securityFilterChain(
+      HttpSecurity http, @Value("${management.server.port:-1}") int managementPort)
+      throws Exception {
     http.authorizeHttpRequests(
             authz ->
                 authz
+                    .requestMatchers(onManagementPort(managementPort))
+                    .permitAll()
                     .requestMatchers(
                         "/api/v1/health",
                         "/api/v1/chat/health",
@@ -133,4 +139,13 @@ public class SecurityConfig {
 
     return http.build();
   }
+
+  /**
+   * Requests that arrived on the actuator's own port. That port is not routed through the gateway,
+   * so metrics are readable by the scraper inside the network without being public. Matches
+   * nothing when the actuator shares the application port.
+   */
+  static RequestMatcher onManagementPort(int managementPort) {
+    return request -> managementPort > 0 && request.getLocalPort() == managementPort;
+  }
 }
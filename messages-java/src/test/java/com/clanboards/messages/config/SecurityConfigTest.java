@@ -218,6 +218,17 @@ class SecurityConfigTest {
     assertTrue(foundLogWithUnknownId, "Should use 'unknown' when request ID is not available");
   }
 
+  @Test
+  void onManagementPort_ShouldOnlyMatchRequestsOnTheActuatorPort() {
+    // Given
+    when(request.getLocalPort()).thenReturn(8011, 8010);
+
+    // When / Then
+    assertTrue(SecurityConfig.onManagementPort(8011).matches(request));
+    assertFalse(SecurityConfig.onManagementPort(8011).matches(request));
+    assertFalse(SecurityConfig.onManagementPort(-1).matches(request));
+  }
+
   @Test
   void securityFilterChain_ShouldBeConfiguredCorrectly() throws Exception {
     // Given
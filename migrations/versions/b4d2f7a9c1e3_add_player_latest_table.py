@@ -0,0 +1,82 @@
+"""add player_latest table
+
+Revision ID: b4d2f7a9c1e3
+Revises: 9828afe3d8a5
+Create Date: 2026-10-17 09:12:41.518203
+
+"""
+
+from alembic import op
+import sqlalchemy as sa
+
+
+# revision identifiers, used by Alembic.
+revision = "b4d2f7a9c1e3"
+down_revision = "9828afe3d8a5"
+branch_labels = None
+depends_on = None
+
+
+def upgrade():
+    op.create_table(
+        "player_latest",
+        sa.Column("player_tag", sa.String(length=15), nullable=False),
+        sa.Column("snapshot_id", sa.BigInteger(), nullable=False),
+        sa.Column("clan_tag", sa.String(length=15), nullable=True),
+        sa.Column("ts", sa.DateTime(), nullable=False),
+        sa.PrimaryKeyConstraint("player_tag"),
+    )
+    with op.batch_alter_table("player_latest", schema=None) as batch_op:
+        batch_op.create_index(
+            batch_op.f("ix_player_latest_clan_tag"), ["clan_tag"], unique=False
+        )
+
+    if op.get_bind().dialect.name != "postgresql":
+        return
+
+    # Keep player_latest pointing at each player's newest snapshot on every insert,
+    # whichever writer (worker, lambda, backfill) the row came from.
+    op.execute(
+        """
+        CREATE OR REPLACE FUNCTION player_latest_upsert() RETURNS trigger AS $$
+        BEGIN
+            INSERT INTO player_latest (player_tag, snapshot_id, clan_tag, ts)
+            VALUES (NEW.player_tag, NEW.id, NEW.clan_tag, NEW.ts)
+            ON CONFLICT (player_tag) DO UPDATE SET
+                snapshot_id = EXCLUDED.snapshot_id,
+                clan_tag = EXCLUDED.clan_tag,
+                ts = EXCLUDED.ts
+            WHERE player_latest.ts <= EXCLUDED.ts;
+            RETURN NULL;
+        END;
+        $$ LANGUAGE plpgsql
+        """
+    )
+    op.execute(
+        """
+        CREATE TRIGGER trg_player_latest_upsert
+        AFTER INSERT ON player_snapshots
+        FOR EACH ROW EXECUTE FUNCTION player_latest_upsert()
+        """
+    )
+    op.execute(
+        """
+        INSERT INTO player_latest (player_tag, snapshot_id, clan_tag, ts)
+        SELECT DISTINCT ON (player_tag) player_tag, id, clan_tag, ts
+        FROM player_snapshots
+        WHERE player_tag IS NOT NULL AND ts IS NOT NULL
+        ORDER BY player_tag, ts DESC, id DESC
+        ON CONFLICT (player_tag) DO NOTHING
+        """
+    )
+
+
+def downgrade():
+    if op.get_bind().dialect.name == "postgresql":
+        op.execute("DROP TRIGGER IF EXISTS trg_player_latest_upsert ON player_snapshots")
+        op.execute("DROP FUNCTION IF EXISTS player_latest_upsert()")
+
+    with op.batch_alter_table("player_latest", schema=None) as batch_op:
+        batch_op.drop_index(batch_op.f("ix_player_latest_clan_tag"))
+
+    op.drop_table("player_latest")
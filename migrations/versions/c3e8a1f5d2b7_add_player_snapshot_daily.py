@@ -0,0 +1,143 @@
+"""add player_snapshot_daily rollup table
+
+Revision ID: c3e8a1f5d2b7
+Revises: b4d2f7a9c1e3
+Create Date: 2026-10-17 14:03:27.804116
+
+"""
+
+from alembic import op
+import sqlalchemy as sa
+
+
+# revision identifiers, used by Alembic.
+revision = "c3e8a1f5d2b7"
+down_revision = "b4d2f7a9c1e3"
+branch_labels = None
+depends_on = None
+
+
+def upgrade():
+    op.create_table(
+        "player_snapshot_daily",
+        sa.Column("player_tag", sa.String(length=15), nullable=False),
+        sa.Column("snapshot_date", sa.Date(), nullable=False),
+        sa.Column("clan_tag", sa.String(length=15), nullable=True),
+        sa.Column("samples", sa.Integer(), nullable=False),
+        sa.Column("first_ts", sa.DateTime(), nullable=False),
+        sa.Column("last_ts", sa.DateTime(), nullable=False),
+        sa.Column("trophies_min", sa.Integer(), nullable=True),
+        sa.Column("trophies_max", sa.Integer(), nullable=True),
+        sa.Column("trophies_last", sa.Integer(), nullable=True),
+        sa.Column("donations_first", sa.Integer(), nullable=True),
+        sa.Column("donations_last", sa.Integer(), nullable=True),
+        sa.Column("donations_received_first", sa.Integer(), nullable=True),
+        sa.Column("donations_received_last", sa.Integer(), nullable=True),
+        sa.Column("war_attacks_used_max", sa.Integer(), nullable=True),
+        sa.Column("last_seen", sa.DateTime(), nullable=True),
+        sa.PrimaryKeyConstraint("player_tag", "snapshot_date"),
+    )
+
+    if op.get_bind().dialect.name != "postgresql":
+        return
+
+    # Fold every new snapshot into its player's row for that day, whichever writer
+    # inserted it. "first"/"last" columns follow ts, so late or out-of-order rows
+    # only move them when they really are the earliest or newest of the day.
+    op.execute(
+        """
+        CREATE OR REPLACE FUNCTION player_snapshot_daily_upsert() RETURNS trigger AS $$
+        BEGIN
+            IF NEW.player_tag IS NULL OR NEW.ts IS NULL THEN
+                RETURN NULL;
+            END IF;
+            INSERT INTO player_snapshot_daily AS d (
+                player_tag, snapshot_date, clan_tag, samples, first_ts, last_ts,
+                trophies_min, trophies_max, trophies_last,
+                donations_first, donations_last,
+                donations_received_first, donations_received_last,
+                war_attacks_used_max, last_seen
+            )
+            VALUES (
+                NEW.player_tag, NEW.ts::date, NEW.clan_tag, 1, NEW.ts, NEW.ts,
+                NEW.trophies, NEW.trophies, NEW.trophies,
+                NEW.donations, NEW.donations,
+                NEW.donations_received, NEW.donations_received,
+                NEW.war_attacks_used, NEW.last_seen
+            )
+            ON CONFLICT (player_tag, snapshot_date) DO UPDATE SET
+                samples = d.samples + 1,
+                first_ts = LEAST(d.first_ts, EXCLUDED.first_ts),
+                last_ts = GREATEST(d.last_ts, EXCLUDED.last_ts),
+                trophies_min = LEAST(d.trophies_min, EXCLUDED.trophies_min),
+                trophies_max = GREATEST(d.trophies_max, EXCLUDED.trophies_max),
+                war_attacks_used_max =
+                    GREATEST(d.war_attacks_used_max, EXCLUDED.war_attacks_used_max),
+                last_seen = GREATEST(d.last_seen, EXCLUDED.last_seen),
+                donations_first = CASE WHEN EXCLUDED.first_ts < d.first_ts
+                    THEN EXCLUDED.donations_first ELSE d.donations_first END,
+                donations_received_first = CASE WHEN EXCLUDED.first_ts < d.first_ts
+                    THEN EXCLUDED.donations_received_first
+                    ELSE d.donations_received_first END,
+                clan_tag = CASE WHEN EXCLUDED.last_ts >= d.last_ts
+                    THEN EXCLUDED.clan_tag ELSE d.clan_tag END,
+                trophies_last = CASE WHEN EXCLUDED.last_ts >= d.last_ts
+                    THEN EXCLUDED.trophies_last ELSE d.trophies_last END,
+                donations_last = CASE WHEN EXCLUDED.last_ts >= d.last_ts
+                    THEN EXCLUDED.donations_last ELSE d.donations_last END,
+                donations_received_last = CASE WHEN EXCLUDED.last_ts >= d.last_ts
+                    THEN EXCLUDED.donations_received_last
+                    ELSE d.donations_received_last END;
+            RETURN NULL;
+        END;
+        $$ LANGUAGE plpgsql
+        """
+    )
+    op.execute(
+        """
+        CREATE TRIGGER trg_player_snapshot_daily_upsert
+        AFTER INSERT ON player_snapshots
+        FOR EACH ROW EXECUTE FUNCTION player_snapshot_daily_upsert()
+        """
+    )
+    op.execute(
+        """
+        INSERT INTO player_snapshot_daily (
+            player_tag, snapshot_date, clan_tag, samples, first_ts, last_ts,
+            trophies_min, trophies_max, trophies_last,
+            donations_first, donations_last,
+            donations_received_first, donations_received_last,
+            war_attacks_used_max, last_seen
+        )
+        SELECT
+            player_tag,
+            ts::date,
+            (array_agg(clan_tag ORDER BY ts DESC))[1],
+            count(*),
+            min(ts),
+            max(ts),
+            min(trophies),
+            max(trophies),
+            (array_agg(trophies ORDER BY ts DESC))[1],
+            (array_agg(donations ORDER BY ts))[1],
+            (array_agg(donations ORDER BY ts DESC))[1],
+            (array_agg(donations_received ORDER BY ts))[1],
+            (array_agg(donations_received ORDER BY ts DESC))[1],
+            max(war_attacks_used),
+            max(last_seen)
+        FROM player_snapshots
+        WHERE player_tag IS NOT NULL AND ts IS NOT NULL
+        GROUP BY player_tag, ts::date
+        ON CONFLICT (player_tag, snapshot_date) DO NOTHING
+        """
+    )
+
+
+def downgrade():
+    if op.get_bind().dialect.name == "postgresql":
+        op.execute(
+            "DROP TRIGGER IF EXISTS trg_player_snapshot_daily_upsert ON player_snapshots"
+        )
+        op.execute("DROP FUNCTION IF EXISTS player_snapshot_daily_upsert()")
+
+    op.drop_table("player_snapshot_daily")